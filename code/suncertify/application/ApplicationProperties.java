@@ -8,6 +8,12 @@ import java.io.IOException;
 import java.rmi.registry.Registry;
 import java.util.Properties;
 
+import suncertify.db.DatabaseOptions;
+import suncertify.db.LoadMode;
+import suncertify.db.MatchMode;
+import suncertify.db.StorageMode;
+import suncertify.db.SyncPolicy;
+
 /**
  * Properties of the application.
  * <p>
@@ -41,6 +47,26 @@ public class ApplicationProperties {
 
 	private static final String SERVER_PORT = "ServerPort";
 
+	private static final String STORAGE_MODE = "storageMode";
+
+	private static final String LOAD_MODE = "loadMode";
+
+	private static final String LOG_SYNC_POLICY = "logSyncPolicy";
+
+	private static final String LOG_SYNC_INTERVAL = "logSyncInterval";
+
+	private static final String CHECKPOINT_INTERVAL = "checkpointInterval";
+
+	private static final String CHECKPOINT_DIRTY_THRESHOLD = "checkpointDirtyThreshold";
+
+	private static final String MATCH_MODE = "matchMode";
+
+	private static final String SUBSTRING_INDEX = "substringIndex";
+
+	private static final String PARALLEL_SCAN_THRESHOLD = "parallelScanThreshold";
+
+	private static final String LOCK_LEASE = "lockLease";
+
 	private Properties configProperties = null;
 
 	private static final File optionsFile = new File(ApplicationProperties.BASE_DIRECTORY,
@@ -159,6 +185,79 @@ public class ApplicationProperties {
 		this.setProperty(ApplicationProperties.SERVER_PORT, serverPort);
 	}
 
+	/**
+	 * Gets the {@link DatabaseOptions} to be used when accessing the database.
+	 * <p>
+	 * Any option without a (valid) value in the properties file keeps its
+	 * default value.
+	 * 
+	 * @return the database options
+	 */
+	public DatabaseOptions getDatabaseOptions() {
+		final DatabaseOptions options = new DatabaseOptions();
+		final StorageMode storageMode = StorageMode.forValue(this.configProperties
+				.getProperty(ApplicationProperties.STORAGE_MODE));
+		if (storageMode != null) {
+			options.setStorageMode(storageMode);
+		}
+		final LoadMode loadMode = LoadMode.forValue(this.configProperties
+				.getProperty(ApplicationProperties.LOAD_MODE));
+		if (loadMode != null) {
+			options.setLoadMode(loadMode);
+		}
+		final SyncPolicy syncPolicy = SyncPolicy.forValue(this.configProperties
+				.getProperty(ApplicationProperties.LOG_SYNC_POLICY));
+		if (syncPolicy != null) {
+			options.setSyncPolicy(syncPolicy);
+		}
+		final long syncInterval = this.getNumber(ApplicationProperties.LOG_SYNC_INTERVAL);
+		if (syncInterval > 0) {
+			options.setSyncIntervalMillis(syncInterval);
+		}
+		final long checkpointInterval = this.getNumber(ApplicationProperties.CHECKPOINT_INTERVAL);
+		if (checkpointInterval >= 0) {
+			options.setCheckpointIntervalMillis(checkpointInterval);
+		}
+		final long checkpointThreshold = this
+				.getNumber(ApplicationProperties.CHECKPOINT_DIRTY_THRESHOLD);
+		if (checkpointThreshold >= 0 && checkpointThreshold <= Integer.MAX_VALUE) {
+			options.setCheckpointDirtyThreshold((int) checkpointThreshold);
+		}
+		final MatchMode matchMode = MatchMode.forValue(this.configProperties
+				.getProperty(ApplicationProperties.MATCH_MODE));
+		if (matchMode != null) {
+			options.setMatchMode(matchMode);
+		}
+		final String substringIndex = this.configProperties
+				.getProperty(ApplicationProperties.SUBSTRING_INDEX);
+		if (substringIndex != null) {
+			options.setSubstringIndexed(Boolean.parseBoolean(substringIndex.trim()));
+		}
+		final long parallelScanThreshold = this
+				.getNumber(ApplicationProperties.PARALLEL_SCAN_THRESHOLD);
+		if (parallelScanThreshold >= 0 && parallelScanThreshold <= Integer.MAX_VALUE) {
+			options.setParallelScanThreshold((int) parallelScanThreshold);
+		}
+		final long lockLease = this.getNumber(ApplicationProperties.LOCK_LEASE);
+		if (lockLease >= 0) {
+			options.setLockLeaseMillis(lockLease);
+		}
+		return options;
+	}
+
+	private long getNumber(final String name) {
+		final String value = this.configProperties.getProperty(name);
+		long number = -1;
+		if (value != null) {
+			try {
+				number = Long.parseLong(value.trim());
+			} catch (final NumberFormatException canBeIgnored) {
+				// Can be ignored, the default value of the option is used
+			}
+		}
+		return number;
+	}
+
 	private void setProperty(final String name, final String value) {
 		this.configProperties.setProperty(name, value);
 		this.savePropertiesFile();
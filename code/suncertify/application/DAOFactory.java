@@ -2,9 +2,9 @@ package suncertify.application;
 
 import java.rmi.Naming;
 
-import suncertify.db.DB;
 import suncertify.db.Data;
 import suncertify.db.DatabaseException;
+import suncertify.db.PagedDB;
 import suncertify.remote.DBFactory;
 import suncertify.remote.DBRemote;
 import suncertify.remote.DBRemoteAdapter;
@@ -14,7 +14,7 @@ import suncertify.remote.DBRemoteAdapter;
  * <p>
  * This factory will create either a local or remote instance based on this
  * applications {@link LaunchMode}. The DAO returned (whether local or remote)
- * will be an implementation of the {@link DB} interface.
+ * will be an implementation of the {@link PagedDB} interface.
  * 
  * @version 1.0
  * @author Damien O'Toole
@@ -33,18 +33,18 @@ public final class DAOFactory {
 	private static ApplicationProperties applicationProperties = ApplicationProperties
 			.getInstance();
 
-	private static DB dbInstance;
+	private static PagedDB dbInstance;
 
 	/**
-	 * Gets the <i>DAO</i> object which is an instance of the {@link DB}
+	 * Gets the <i>DAO</i> object which is an instance of the {@link PagedDB}
 	 * interface.
 	 * 
 	 * @param launchMode
 	 *            the {@link LaunchMode} of this running application instance
 	 * @return the {@code DAO} object that will interact with the database via
-	 *         the {@code DB} interface
+	 *         the {@code PagedDB} interface
 	 */
-	public static DB getDAO(final LaunchMode launchMode) {
+	public static PagedDB getDAO(final LaunchMode launchMode) {
 		if (launchMode == LaunchMode.STANDALONE_CLIENT) {
 			DAOFactory.dbInstance = DAOFactory.getLocalDBInstance();
 		} else {
@@ -53,16 +53,17 @@ public final class DAOFactory {
 		return DAOFactory.dbInstance;
 	}
 
-	private static DB getLocalDBInstance() {
+	private static PagedDB getLocalDBInstance() {
 		try {
-			Data.getInstance().init(DAOFactory.applicationProperties.getDatabaseLocation());
+			Data.getInstance().init(DAOFactory.applicationProperties.getDatabaseLocation(),
+					DAOFactory.applicationProperties.getDatabaseOptions());
 		} catch (final DatabaseException databaseException) {
 			LaunchApplication.showErrorAndExit(databaseException.getMessage());
 		}
 		return Data.getInstance();
 	}
 
-	private static DB getRemoteDBInstance() {
+	private static PagedDB getRemoteDBInstance() {
 		final String url = "rmi://" + DAOFactory.applicationProperties.getServerAddress() + ":"
 				+ DAOFactory.applicationProperties.getServerPort() + "/" + DBFactory.RMI_KEY;
 		try {
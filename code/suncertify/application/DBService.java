@@ -5,30 +5,52 @@ import java.util.List;
 
 import suncertify.db.CommunicationException;
 import suncertify.db.DB;
+import suncertify.db.FoundRecords;
+import suncertify.db.MatchMode;
+import suncertify.db.PagedDB;
 import suncertify.db.RecordAlreadyBookedException;
+import suncertify.db.RecordBusyException;
 import suncertify.db.RecordNotFoundException;
+import suncertify.db.VersionedRecord;
 import suncertify.domain.Subcontractor;
 
 /**
  * Provides a business method for each use case of the application:
  * <ul>
- * <li>Listing all valid {@code Subcontractors} in the database</li>
+ * <li>Listing all valid {@code Subcontractors} in the database, a page at a time</li>
  * <li>Searching for matching {@code Subccontractor(s)} by name and/or location</li>
  * <li>Booking a {@code Subcontractor} for a specified customer ID</li>
  * </ul>
  * <p>
  * Internally the class uses a {@link DAOFactory} to retrieve an instance of a
- * class implementing the {@link DB} interface to access the data. Since the
- * implementation only uses the methods provided by the {@code DB} interface, we
- * do not need to distinguish whether we operate directly on a data file or
- * whether the data operations are sent over a network.
+ * class implementing the {@link PagedDB} interface to access the data. Besides
+ * the methods of the {@link DB} interface, searches retrieve their results a
+ * page at a time with their field values and versions, and bookings use the
+ * versioned update and the lock with a timeout of {@code PagedDB}. Since the
+ * implementation only uses the methods provided by the {@code PagedDB}
+ * interface, which are available both locally and over RMI, we do not need to
+ * distinguish whether we operate directly on a data file or whether the data
+ * operations are sent over a network.
  * 
  * @version 1.0
  * @author Damien O'Toole
  */
 public class DBService {
 
-	private final DB dao;
+	/**
+	 * Longest time a booking waits for a {@code Subcontractor} locked by
+	 * another booking, so that a booking never ties up a server thread for
+	 * long.
+	 */
+	private static final long BOOKING_LOCK_TIMEOUT_MILLIS = 5000;
+
+	/**
+	 * Number of times a booking tries to update a {@code Subcontractor}
+	 * changed by other bookings before waiting for its lock instead.
+	 */
+	private static final int OPTIMISTIC_BOOKING_ATTEMPTS = 3;
+
+	private final PagedDB dao;
 
 	/**
 	 * Creates a new {@link DBService} instance.
@@ -37,28 +59,18 @@ public class DBService {
 	 *            <i>data access object</i> for interaction with the database
 	 *            containing {@code Subcontractors}
 	 */
-	public DBService(final DB dao) {
+	public DBService(final PagedDB dao) {
 		this.dao = dao;
 	}
 
 	/**
-	 * Returns a list of all valid {@link Subcontractor}'s.
-	 * 
-	 * @return all valid {@code Subcontractors}
-	 */
-	public List<Subcontractor> retrieveAllSubcontractors() {
-		// Fetching all Subcontractors is the same as "searching" for records
-		// without any filtering criteria. The boolean to represent exactMatch
-		// is not of consequence as the name/location are null so all records
-		// will be retrieved and comparison is not possible.
-		return this.searchSubcontractor(null, null, false);
-	}
-
-	/**
-	 * Returns a list of {@link Subcontractor}'s that exactly match the
-	 * specified criteria.
+	 * Returns a page of up to {@code pageSize} {@link Subcontractor}'s that
+	 * match the specified criteria, with a record number greater than the
+	 * specified record number.
 	 * <p>
-	 * A criteria value of null matches any field value.
+	 * A criteria value of null matches any field value. The first page is
+	 * requested with a record number of 0, each next page with the last
+	 * record number of the previous page.
 	 * 
 	 * @param name
 	 *            Criteria for the name field
@@ -67,56 +79,54 @@ public class DBService {
 	 * @param exactMatchRequired
 	 *            boolean value to represent if the name/location should be
 	 *            exactly matched
-	 * @return all {@code Subcontractors} matching the criteria
+	 * @param afterRecordNumber
+	 *            the record number after which the page starts
+	 * @param pageSize
+	 *            the maximum number of {@code Subcontractors} of the page
+	 * @return the page of {@code Subcontractors} matching the criteria
 	 */
-	public List<Subcontractor> searchSubcontractor(final String name, final String location,
-			final boolean exactMatchRequired) {
+	public SubcontractorPage searchSubcontractor(final String name, final String location,
+			final boolean exactMatchRequired, final int afterRecordNumber, final int pageSize) {
 		final String[] searchCriteria = new String[] { name, location, null, null, null, null };
 		final List<Subcontractor> result = new ArrayList<Subcontractor>();
+		int lastRecordNumber = afterRecordNumber;
+		boolean morePages = false;
 
 		try {
-			final int[] matchingRecords = this.dao.find(searchCriteria);
-			if (matchingRecords != null) {
-				for (final int recordNumber : matchingRecords) {
-					String[] recordData;
-					try {
-						recordData = this.dao.read(recordNumber);
-						// Can assume record is valid in the constructor as any
-						// deleted records will be filtered out
-						final Subcontractor subContractor = new Subcontractor(recordNumber,
-								recordData);
-						if (exactMatchRequired) {
-							if (this.isExactMatch(subContractor, name, location)) {
-								result.add(subContractor);
-							}
-						} else {
-							result.add(subContractor);
-						}
-					} catch (final RecordNotFoundException canBeIgnored) {
-						// This exception can be ignored.
-						// This situation may happen, when another client
-						// deletes the Subcontractor between this DAO call to
-						// find and call to read.
-					}
-				}
+			final FoundRecords matchingRecords = this.findRecords(searchCriteria,
+					exactMatchRequired, afterRecordNumber, pageSize);
+			if (matchingRecords.size() > 0) {
+				this.readSubcontractors(matchingRecords, result);
+				lastRecordNumber = matchingRecords.getRecordNumber(matchingRecords.size() - 1);
+				morePages = matchingRecords.size() == pageSize;
 			}
 
 		} catch (final CommunicationException communicationException) {
 			this.handleCommunicationException(communicationException);
 		}
-		return result;
+		return new SubcontractorPage(result, lastRecordNumber, morePages);
 	}
 
-	private boolean isExactMatch(final Subcontractor subContractor, final String name,
-			final String location) {
-		boolean exactMatch = true;
-		if (name != null) {
-			exactMatch &= name.equals(subContractor.getName());
+	private FoundRecords findRecords(final String[] searchCriteria,
+			final boolean exactMatchRequired, final int afterRecordNumber, final int limit) {
+		// Exact matches are found by the database, so that only those are
+		// returned rather than every record beginning with the criteria
+		if (exactMatchRequired) {
+			return this.dao.findRecords(searchCriteria, MatchMode.EXACT, afterRecordNumber, limit);
 		}
-		if (location != null) {
-			exactMatch &= location.equals(subContractor.getLocation());
+		return this.dao.findRecords(searchCriteria, afterRecordNumber, limit);
+	}
+
+	private void readSubcontractors(final FoundRecords matchingRecords,
+			final List<Subcontractor> result) {
+		for (int i = 0; i < matchingRecords.size(); i++) {
+			// Can assume record is valid in the constructor as deleted
+			// records are never found
+			final Subcontractor subContractor = new Subcontractor(
+					matchingRecords.getRecordNumber(i), matchingRecords.getRecordData(i));
+			subContractor.setVersion(matchingRecords.getRecordVersion(i));
+			result.add(subContractor);
 		}
-		return exactMatch;
 	}
 
 	/**
@@ -127,6 +137,12 @@ public class DBService {
 	 * (and does not return an updated record collection), the parameter's
 	 * modified value can be used by callers to receive an updated view of the
 	 * {@code Subcontractors}.
+	 * <p>
+	 * The {@code Subcontractor} is booked in a single request if its record
+	 * has not changed since it was read, by updating the record only if it
+	 * still holds the version it was read from. A booking conflicting with
+	 * another change reads the record again and retries, and only if the
+	 * record keeps changing is it locked for the booking.
 	 * 
 	 * @param subContractor
 	 *            {@code Subcontractor} to be booked.
@@ -139,20 +155,98 @@ public class DBService {
 	 * @return collection of {@code Subcontractors} containing the update
 	 * @throws RecordAlreadyBookedException
 	 *             if the record is already booked
+	 * @throws RecordBusyException
+	 *             if the record stays locked by another booking for too long,
+	 *             in which case the booking may be retried
 	 * @throws RecordNotFoundException
 	 *             if no record with the given record number exists or if it is
 	 *             marked as deleted
 	 */
 	public List<Subcontractor> bookSubcontractor(final Subcontractor subContractor,
 			final List<Subcontractor> subContractors, final String customerID)
-			throws RecordAlreadyBookedException, SecurityException, RecordNotFoundException {
+			throws RecordAlreadyBookedException, RecordBusyException, SecurityException,
+			RecordNotFoundException {
+		try {
+			if (!this.bookWithVersion(subContractor, subContractors, customerID)) {
+				this.bookWithLock(subContractor.getRecordNumber(), subContractors, customerID);
+			}
+		} catch (final CommunicationException communicationException) {
+			this.handleCommunicationException(communicationException);
+		}
+
+		return subContractors;
+	}
+
+	/**
+	 * Tries to book the {@link Subcontractor} without locking its record, by
+	 * updating the record only if it has not changed since it was read.
+	 * 
+	 * @return true if the {@code Subcontractor} was booked, false if its
+	 *         record kept changing
+	 */
+	private boolean bookWithVersion(final Subcontractor subContractor,
+			final List<Subcontractor> subContractors, final String customerID)
+			throws RecordAlreadyBookedException, RecordNotFoundException {
 		final int recordNumber = subContractor.getRecordNumber();
+		// The copy of the caller may be stale, so it only supplies the version
+		// to book with: a record changed since fails the version check and is
+		// read again. Whether the record is booked is only decided on a copy
+		// read from the database.
+		Subcontractor current = subContractor.getVersion() == Subcontractor.NO_VERSION
+				|| subContractor.isBooked() ? null : subContractor;
+		for (int attempt = 0; attempt < DBService.OPTIMISTIC_BOOKING_ATTEMPTS; attempt++) {
+			if (current == null) {
+				current = this.readSubcontractor(recordNumber);
+
+				// If the Subcontractor was already booked by another user,
+				// update the current Subcontractors displayed to reflect this
+				// and report the error to the user.
+				if (current.isBooked()) {
+					this.updateCurrentSubcontractors(subContractors, current);
+					throw new RecordAlreadyBookedException();
+				}
+			}
+
+			final Subcontractor bookedSubcontractor = new Subcontractor(recordNumber,
+					current.getData());
+			bookedSubcontractor.setOwner(customerID);
+			if (this.dao.compareAndUpdate(recordNumber, current.getVersion(),
+					bookedSubcontractor.getData())) {
+				this.updateCurrentSubcontractors(subContractors, bookedSubcontractor);
+				return true;
+			}
+			// The record changed since it was read, or is locked by a booking
+			// in progress, so read it again
+			current = null;
+		}
+		return false;
+	}
+
+	private Subcontractor readSubcontractor(final int recordNumber)
+			throws RecordNotFoundException {
+		final VersionedRecord record = this.dao.readRecord(recordNumber);
+		final Subcontractor subContractor = new Subcontractor(recordNumber, record.getData());
+		subContractor.setVersion(record.getVersion());
+		return subContractor;
+	}
+
+	/**
+	 * Books the {@link Subcontractor} while holding the lock of its record,
+	 * waiting for a booking in progress to release it first.
+	 */
+	private void bookWithLock(final int recordNumber, final List<Subcontractor> subContractors,
+			final String customerID) throws RecordAlreadyBookedException, RecordBusyException,
+			RecordNotFoundException {
 		long lockCookie = -1;
 		boolean locked = false;
 
 		try {
-			lockCookie = this.dao.lock(recordNumber);
-			// if the lock method succeeded (i.e. no exception thrown) then we
+			lockCookie = this.dao.tryLock(recordNumber, DBService.BOOKING_LOCK_TIMEOUT_MILLIS);
+			if (lockCookie == 0) {
+				// Another booking held the lock for the whole timeout
+				throw new RecordBusyException();
+			}
+			// if the lock method succeeded (i.e. a cookie returned) then we
 			// will need to release the lock in the finally block
 			locked = true;
 
@@ -189,8 +283,6 @@ public class DBService {
 				}
 			}
 		}
-
-		return subContractors;
 	}
 
 	/**
@@ -213,6 +305,7 @@ public class DBService {
 				currentSC.setSpecialties(updatedSC.getSpecialties());
 				currentSC.setRate(updatedSC.getRate());
 				currentSC.setOwner(updatedSC.getOwner());
+				currentSC.setVersion(updatedSC.getVersion());
 			}
 		}
 	}
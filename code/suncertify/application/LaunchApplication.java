@@ -6,7 +6,7 @@ import javax.swing.JDialog;
 import javax.swing.JOptionPane;
 import javax.swing.UIManager;
 
-import suncertify.db.DB;
+import suncertify.db.PagedDB;
 import suncertify.ui.client.ClientController;
 import suncertify.ui.client.ClientModel;
 import suncertify.ui.client.ClientStartUpDialog;
@@ -125,7 +125,7 @@ public class LaunchApplication {
 	private void startClient() {
 		final ClientStartUpDialog startUpDialog = new ClientStartUpDialog();
 		startUpDialog.displayDialog();
-		final DB dao = DAOFactory.getDAO(LaunchApplication.launchMode);
+		final PagedDB dao = DAOFactory.getDAO(LaunchApplication.launchMode);
 		final DBService dbService = new DBService(dao);
 		final SubcontractorModel model = new ClientModel(dbService);
 		final SubcontractorController controller = new ClientController(model);
@@ -0,0 +1,72 @@
+package suncertify.application;
+
+import java.util.List;
+
+import suncertify.domain.Subcontractor;
+
+/**
+ * A page of the {@link Subcontractor}'s matching a search, as returned by
+ * {@link DBService#searchSubcontractor(String, String, boolean, int, int)}.
+ * <p>
+ * The next page is requested with the record number returned by
+ * {@link #getLastRecordNumber()}, which is the last record number found by
+ * the search rather than that of the last {@code Subcontractor} of the page,
+ * as records may be found that are then left out of the page.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public final class SubcontractorPage {
+
+	private final List<Subcontractor> subContractors;
+
+	private final int lastRecordNumber;
+
+	private final boolean morePages;
+
+	/**
+	 * Creates a new {@code SubcontractorPage} instance.
+	 * 
+	 * @param subContractors
+	 *            the {@code Subcontractors} of the page
+	 * @param lastRecordNumber
+	 *            the record number after which the next page starts
+	 * @param morePages
+	 *            true if further pages may hold matching
+	 *            {@code Subcontractors}
+	 */
+	SubcontractorPage(final List<Subcontractor> subContractors, final int lastRecordNumber,
+			final boolean morePages) {
+		this.subContractors = subContractors;
+		this.lastRecordNumber = lastRecordNumber;
+		this.morePages = morePages;
+	}
+
+	/**
+	 * Gets the {@code Subcontractors} of this page.
+	 * 
+	 * @return the {@code Subcontractors}
+	 */
+	public List<Subcontractor> getSubcontractors() {
+		return this.subContractors;
+	}
+
+	/**
+	 * Gets the record number after which the next page starts.
+	 * 
+	 * @return the last record number found for this page
+	 */
+	public int getLastRecordNumber() {
+		return this.lastRecordNumber;
+	}
+
+	/**
+	 * Tells whether further pages may hold matching {@code Subcontractors}.
+	 * 
+	 * @return true if there are more pages to be requested
+	 */
+	public boolean hasMorePages() {
+		return this.morePages;
+	}
+
+}
@@ -0,0 +1,98 @@
+package suncertify.db;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the checkpoints of {@link Data} on a background thread.
+ * <p>
+ * A checkpoint is run every time the configured interval elapses, and as soon
+ * as the number of records changed since the last checkpoint reaches the
+ * configured threshold. Checkpoints are run one at a time on a single daemon
+ * thread, so they never hold up the threads changing the records.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see DatabaseOptions#getCheckpointIntervalMillis()
+ * @see DatabaseOptions#getCheckpointDirtyThreshold()
+ */
+final class CheckpointScheduler {
+
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+	private final ScheduledExecutorService executor = Executors
+			.newSingleThreadScheduledExecutor(new DaemonThreadFactory("database-checkpoint"));
+
+	private final AtomicBoolean thresholdCheckpointPending = new AtomicBoolean();
+
+	private final Runnable checkpointTask;
+
+	private final int dirtyThreshold;
+
+	/**
+	 * Creates a scheduler running the specified checkpoint task.
+	 *
+	 * @param checkpointTask
+	 *            the task running a single checkpoint
+	 * @param intervalMillis
+	 *            interval between checkpoints in milliseconds, or 0 if
+	 *            checkpoints are not run periodically
+	 * @param dirtyThreshold
+	 *            number of changed records that triggers a checkpoint, or 0 if
+	 *            checkpoints are not triggered by changes
+	 */
+	CheckpointScheduler(final Runnable checkpointTask, final long intervalMillis,
+			final int dirtyThreshold) {
+		this.checkpointTask = checkpointTask;
+		this.dirtyThreshold = dirtyThreshold;
+		if (intervalMillis > 0) {
+			this.executor.scheduleWithFixedDelay(checkpointTask, intervalMillis, intervalMillis,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Notifies the scheduler that a record was changed, triggering a
+	 * checkpoint if the number of changed records reached the threshold.
+	 *
+	 * @param dirtyCount
+	 *            number of records changed since the last checkpoint
+	 */
+	void recordChanged(final int dirtyCount) {
+		if (this.dirtyThreshold > 0 && dirtyCount >= this.dirtyThreshold
+				&& this.thresholdCheckpointPending.compareAndSet(false, true)) {
+			try {
+				this.executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						CheckpointScheduler.this.thresholdCheckpointPending.set(false);
+						CheckpointScheduler.this.checkpointTask.run();
+					}
+				});
+			} catch (final RejectedExecutionException canBeIgnored) {
+				// Can be ignored, the scheduler is shut down and the database
+				// runs its final checkpoint when it is destroyed
+			}
+		}
+	}
+
+	/**
+	 * Stops scheduling checkpoints and waits for a running checkpoint to
+	 * complete.
+	 */
+	void shutdown() {
+		// Not shutdownNow, as interrupting a checkpoint writing the database
+		// file would close its channel. Delayed periodic runs are cancelled.
+		this.executor.shutdown();
+		try {
+			this.executor.awaitTermination(CheckpointScheduler.SHUTDOWN_TIMEOUT_SECONDS,
+					TimeUnit.SECONDS);
+		} catch (final InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
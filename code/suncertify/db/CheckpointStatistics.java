@@ -0,0 +1,138 @@
+package suncertify.db;
+
+/**
+ * An immutable snapshot of the checkpoints completed by {@link Data} since it
+ * was initialized.
+ * <p>
+ * A checkpoint saves the records changed since the previous checkpoint into
+ * the database file and truncates the database log file.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see Data#getCheckpointStatistics()
+ */
+public final class CheckpointStatistics {
+
+	/** Statistics before any checkpoint has been run. */
+	static final CheckpointStatistics NONE = new CheckpointStatistics(0, 0, 0, 0, 0, 0);
+
+	private final long checkpointCount;
+
+	private final long failedCheckpointCount;
+
+	private final long lastDurationNanos;
+
+	private final long totalDurationNanos;
+
+	private final long lastBytesWritten;
+
+	private final long totalBytesWritten;
+
+	private CheckpointStatistics(final long checkpointCount, final long failedCheckpointCount,
+			final long lastDurationNanos, final long totalDurationNanos,
+			final long lastBytesWritten, final long totalBytesWritten) {
+		this.checkpointCount = checkpointCount;
+		this.failedCheckpointCount = failedCheckpointCount;
+		this.lastDurationNanos = lastDurationNanos;
+		this.totalDurationNanos = totalDurationNanos;
+		this.lastBytesWritten = lastBytesWritten;
+		this.totalBytesWritten = totalBytesWritten;
+	}
+
+	/**
+	 * Returns new statistics including a successfully completed checkpoint.
+	 *
+	 * @param durationNanos
+	 *            duration of the checkpoint in nanoseconds
+	 * @param bytesWritten
+	 *            number of bytes written into the database file
+	 * @return the updated statistics
+	 */
+	CheckpointStatistics withCheckpoint(final long durationNanos, final long bytesWritten) {
+		return new CheckpointStatistics(this.checkpointCount + 1, this.failedCheckpointCount,
+				durationNanos, this.totalDurationNanos + durationNanos, bytesWritten,
+				this.totalBytesWritten + bytesWritten);
+	}
+
+	/**
+	 * Returns new statistics including a failed checkpoint.
+	 *
+	 * @return the updated statistics
+	 */
+	CheckpointStatistics withFailedCheckpoint() {
+		return new CheckpointStatistics(this.checkpointCount, this.failedCheckpointCount + 1,
+				this.lastDurationNanos, this.totalDurationNanos, this.lastBytesWritten,
+				this.totalBytesWritten);
+	}
+
+	/**
+	 * Gets the number of successfully completed checkpoints.
+	 *
+	 * @return the checkpoint count
+	 */
+	public long getCheckpointCount() {
+		return this.checkpointCount;
+	}
+
+	/**
+	 * Gets the number of checkpoints that failed to save the changed records.
+	 *
+	 * @return the failed checkpoint count
+	 */
+	public long getFailedCheckpointCount() {
+		return this.failedCheckpointCount;
+	}
+
+	/**
+	 * Gets the duration of the last completed checkpoint in milliseconds.
+	 *
+	 * @return the last checkpoint duration
+	 */
+	public double getLastDurationMillis() {
+		return this.lastDurationNanos / 1e6;
+	}
+
+	/**
+	 * Gets the combined duration of all completed checkpoints in milliseconds.
+	 *
+	 * @return the total checkpoint duration
+	 */
+	public double getTotalDurationMillis() {
+		return this.totalDurationNanos / 1e6;
+	}
+
+	/**
+	 * Gets the number of bytes written into the database file by the last
+	 * completed checkpoint.
+	 *
+	 * @return the bytes written by the last checkpoint
+	 */
+	public long getLastBytesWritten() {
+		return this.lastBytesWritten;
+	}
+
+	/**
+	 * Gets the number of bytes written into the database file by all completed
+	 * checkpoints.
+	 *
+	 * @return the total bytes written
+	 */
+	public long getTotalBytesWritten() {
+		return this.totalBytesWritten;
+	}
+
+	/**
+	 * Returns a String representation of these statistics.
+	 *
+	 * @return String representation of these statistics.
+	 */
+	@Override
+	public String toString() {
+		return "CheckpointStatistics [checkpoints:" + this.checkpointCount + ", failed:"
+				+ this.failedCheckpointCount + ", lastDurationMillis:"
+				+ this.getLastDurationMillis() + ", totalDurationMillis:"
+				+ this.getTotalDurationMillis() + ", lastBytesWritten:" + this.lastBytesWritten
+				+ ", totalBytesWritten:" + this.totalBytesWritten + "]";
+	}
+
+}
@@ -0,0 +1,166 @@
+package suncertify.db;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A concurrent, growable bit set of record numbers.
+ * <p>
+ * Setting and clearing bits operate on the words of the bit set with atomic
+ * compare and set operations, so they can run concurrently: a bit set twice is
+ * only counted once, and a bit cleared by {@link #clearNextSetBit(int)} is
+ * returned to a single caller. A bit set while {@link #drain()} is in progress
+ * is either returned by that drain or stays set for the next one, it is never
+ * lost. The read/write lock only excludes the rare case where the bit set has
+ * to grow.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see DirtyRecordSet
+ * @see FreeSlotAllocator
+ */
+final class ConcurrentBitSet {
+
+	private static final int INITIAL_WORD_COUNT = 64;
+
+	private static final int ADDRESS_BITS_PER_WORD = 6;
+
+	private final ReadWriteLock resizeLock = new ReentrantReadWriteLock();
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	private volatile AtomicLongArray words = new AtomicLongArray(
+			ConcurrentBitSet.INITIAL_WORD_COUNT);
+
+	/**
+	 * Sets the bit of the specified index, growing the bit set if needed.
+	 *
+	 * @param index
+	 *            the index of the bit, not negative
+	 * @return true if the bit was set by this call, false if it was set
+	 *         already
+	 */
+	boolean set(final int index) {
+		final int wordIndex = index >>> ConcurrentBitSet.ADDRESS_BITS_PER_WORD;
+		final long bit = 1L << index;
+		while (true) {
+			this.resizeLock.readLock().lock();
+			try {
+				final AtomicLongArray currentWords = this.words;
+				if (wordIndex < currentWords.length()) {
+					long word;
+					do {
+						word = currentWords.get(wordIndex);
+						if ((word & bit) != 0) {
+							return false;
+						}
+					} while (!currentWords.compareAndSet(wordIndex, word, word | bit));
+					this.size.incrementAndGet();
+					return true;
+				}
+			} finally {
+				this.resizeLock.readLock().unlock();
+			}
+			this.grow(wordIndex + 1);
+		}
+	}
+
+	private void grow(final int minimumWordCount) {
+		this.resizeLock.writeLock().lock();
+		try {
+			final AtomicLongArray currentWords = this.words;
+			if (currentWords.length() < minimumWordCount) {
+				final AtomicLongArray largerWords = new AtomicLongArray(Math.max(minimumWordCount,
+						currentWords.length() * 2));
+				for (int i = 0; i < currentWords.length(); i++) {
+					largerWords.set(i, currentWords.get(i));
+				}
+				this.words = largerWords;
+			}
+		} finally {
+			this.resizeLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Clears the lowest set bit at or after the specified index.
+	 *
+	 * @param fromIndex
+	 *            the index to start looking from, not negative
+	 * @return the index of the bit cleared, or -1 if no bit is set at or after
+	 *         the index
+	 */
+	int clearNextSetBit(final int fromIndex) {
+		this.resizeLock.readLock().lock();
+		try {
+			final AtomicLongArray currentWords = this.words;
+			// Bits below the start index in its word are masked out, later
+			// words are looked through whole
+			long mask = -1L << fromIndex;
+			int wordIndex = fromIndex >>> ConcurrentBitSet.ADDRESS_BITS_PER_WORD;
+			for (; wordIndex < currentWords.length(); wordIndex++, mask = -1L) {
+				long word = currentWords.get(wordIndex);
+				while ((word & mask) != 0) {
+					final long lowestBit = Long.lowestOneBit(word & mask);
+					if (currentWords.compareAndSet(wordIndex, word, word & ~lowestBit)) {
+						this.size.decrementAndGet();
+						return (wordIndex << ConcurrentBitSet.ADDRESS_BITS_PER_WORD)
+								+ Long.numberOfTrailingZeros(lowestBit);
+					}
+					word = currentWords.get(wordIndex);
+				}
+			}
+			return -1;
+		} finally {
+			this.resizeLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Clears every set bit and returns their indexes.
+	 *
+	 * @return the indexes of the bits that were set, in ascending order
+	 */
+	int[] drain() {
+		this.resizeLock.readLock().lock();
+		try {
+			final AtomicLongArray currentWords = this.words;
+			int[] indexes = new int[Math.max(this.size.get(), 16)];
+			int count = 0;
+			for (int wordIndex = 0; wordIndex < currentWords.length(); wordIndex++) {
+				if (currentWords.get(wordIndex) == 0) {
+					continue;
+				}
+				long word = currentWords.getAndSet(wordIndex, 0);
+				this.size.addAndGet(-Long.bitCount(word));
+				while (word != 0) {
+					if (count == indexes.length) {
+						final int[] larger = new int[count * 2];
+						System.arraycopy(indexes, 0, larger, 0, count);
+						indexes = larger;
+					}
+					indexes[count++] = (wordIndex << ConcurrentBitSet.ADDRESS_BITS_PER_WORD)
+							+ Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+				}
+			}
+			final int[] result = new int[count];
+			System.arraycopy(indexes, 0, result, 0, count);
+			return result;
+		} finally {
+			this.resizeLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of bits currently set.
+	 *
+	 * @return the number of set bits
+	 */
+	int size() {
+		return this.size.get();
+	}
+
+}
@@ -27,7 +27,7 @@ public interface DB {
 	/**
 	 * Modifies the fields of a record. The new value for field n appears in
 	 * data[n]. Throws SecurityException if the record is locked with a cookie
-	 * other than lockCookie.
+	 * other than lockCookie, or if the lease of the lock ran out.
 	 * 
 	 * @param recNo
 	 *            number of the record to be updated.
@@ -39,7 +39,10 @@ public interface DB {
 	 *             If a specified record does not exist or is marked as deleted
 	 *             in the database file
 	 * @throws SecurityException
-	 *             if the record is locked with a cookie other than lockCookie.
+	 *             if the record is locked with a cookie other than lockCookie,
+	 *             or if locks are leased and the lease of the lock ran out,
+	 *             in which case the record may have been locked by another
+	 *             client since.
 	 */
 	public void update(int recNo, String[] data, long lockCookie) throws RecordNotFoundException,
 			SecurityException;
@@ -47,7 +50,8 @@ public interface DB {
 	/**
 	 * Deletes a record, making the record number and associated disk storage
 	 * available for reuse. Throws SecurityException if the record is locked
-	 * with a cookie other than lockCookie.
+	 * with a cookie other than lockCookie, or if the lease of the lock ran
+	 * out.
 	 * 
 	 * @param recNo
 	 *            number of the record to be deleted.
@@ -57,7 +61,10 @@ public interface DB {
 	 *             If a specified record does not exist or is marked as deleted
 	 *             in the database file
 	 * @throws SecurityException
-	 *             if the record is locked with a cookie other than lockCookie
+	 *             if the record is locked with a cookie other than lockCookie,
+	 *             or if locks are leased and the lease of the lock ran out,
+	 *             in which case the record may have been locked by another
+	 *             client since.
 	 */
 	public void delete(int recNo, long lockCookie) throws RecordNotFoundException,
 			SecurityException;
@@ -115,7 +122,9 @@ public interface DB {
 	 *             If a specified record does not exist or is marked as deleted
 	 *             in the database file
 	 * @throws SecurityException
-	 *             if the record is locked with a cookie other than cookie.
+	 *             if the record is locked with a cookie other than cookie, or
+	 *             if locks are leased and the lock was released when its
+	 *             lease ran out.
 	 */
 	public void unlock(int recNo, long cookie) throws RecordNotFoundException, SecurityException;
 
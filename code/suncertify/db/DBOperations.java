@@ -4,9 +4,10 @@ package suncertify.db;
  * The {@link DB} interface is responsible for the <i>CRUD
  * (Create-Read-Update-Delete)</i> use-cases along with locking/unlocking of
  * records where required by the <i>CRUD</i> operations. The
- * {@code DBOperations} interface extends the {@code DB} interface and adds
- * extra functionality that may be required outside of <i>CRUD</i> use-cases,
- * for example any initial setup required for data access.
+ * {@code DBOperations} interface extends the {@code DB} interface, through
+ * {@link PagedDB}, and adds extra functionality that may be required outside
+ * of <i>CRUD</i> use-cases, for example any initial setup required for data
+ * access.
  * <p>
  * Note: {@link DBOperations#init(String)} must be called before any other
  * method is invoked on implementation classes of the {@code DB} interface.
@@ -14,7 +15,7 @@ package suncertify.db;
  * @version 1.0
  * @author Damien O'Toole
  */
-interface DBOperations extends DB {
+interface DBOperations extends PagedDB {
 
 	/**
 	 * Initializing the data access component so that it is in the correct state
@@ -27,6 +28,21 @@ interface DBOperations extends DB {
 	 */
 	public void init(final String databaseLocation) throws DatabaseException;
 
+	/**
+	 * Initializing the data access component, using the specified
+	 * {@link DatabaseOptions}, so that it is in the correct state before any
+	 * request of <i>CRUD</i> operations is allowed.
+	 * 
+	 * @param databaseLocation
+	 *            the database location
+	 * @param options
+	 *            the options to be used while accessing the database
+	 * @throws DatabaseException
+	 *             the invalid database exception
+	 */
+	public void init(final String databaseLocation, final DatabaseOptions options)
+			throws DatabaseException;
+
 	/**
 	 * Destroy the data access component so that any resources are released or
 	 * operations required are completed by the implementation class of this
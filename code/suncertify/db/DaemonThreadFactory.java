@@ -0,0 +1,35 @@
+package suncertify.db;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the daemon threads used for background work on the database, so
+ * that this work never prevents the application from shutting down.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+final class DaemonThreadFactory implements ThreadFactory {
+
+	private final String threadName;
+
+	/**
+	 * Creates a new factory naming every thread it creates with the specified
+	 * name.
+	 *
+	 * @param threadName
+	 *            name of the created threads
+	 */
+	DaemonThreadFactory(final String threadName) {
+		this.threadName = threadName;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Thread newThread(final Runnable runnable) {
+		final Thread thread = new Thread(runnable, this.threadName);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+}
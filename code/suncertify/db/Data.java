@@ -1,12 +1,27 @@
 package suncertify.db;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import suncertify.db.index.FieldIndex;
+import suncertify.db.index.HashIndex;
+import suncertify.db.index.PrefixIndex;
+import suncertify.db.index.QueryPlan;
+import suncertify.db.index.RangeIndex;
+import suncertify.db.index.SearchIndexes;
+import suncertify.db.index.SpecialtyIndex;
+import suncertify.db.index.TrigramIndex;
 import suncertify.db.lock.LockManager;
+import suncertify.db.lock.LockStatistics;
 import suncertify.domain.DatabaseSchema;
 import suncertify.domain.RecordState;
 import suncertify.domain.Subcontractor;
@@ -21,6 +36,41 @@ import suncertify.domain.Subcontractor;
  * {@link DB} interface, the {@link DBOperations#init(String)}
  * <b><i>must</i></b> be requested. Failure to do so will result in an
  * <code>IllegalStateException</code> occuring.
+ * <p>
+ * Every change to a record is appended to a {@link WriteAheadLog} before it is
+ * applied to the cache, so that changes survive the application terminating
+ * unexpectedly. The log is replayed on initialization and folded back into the
+ * database file by a checkpoint.
+ * <p>
+ * With {@link LoadMode#LAZY} records are not loaded during initialization,
+ * instead each record is loaded from the database file the first time it is
+ * touched and then stays in the cache. The first search loads every record
+ * not yet touched, as it has to scan them all.
+ * <p>
+ * Checkpoints are run in the background by a {@link CheckpointScheduler},
+ * periodically and whenever enough records have changed, as well as when the
+ * database is destroyed. {@link #getCheckpointStatistics()} reports their
+ * duration and the number of bytes they wrote.
+ * <p>
+ * The name and location of the valid records are held in hash indexes for
+ * searches with {@link MatchMode#EXACT}, and in prefix indexes with
+ * {@link MatchMode#PREFIX}, all part of the {@link SearchIndexes}; as are the
+ * name, location and specialties with {@link MatchMode#CONTAINS} when
+ * substring indexing is enabled. The indexes are kept up to date by every
+ * change, and a search constraining an indexed field only checks the records
+ * found in the indexes instead of scanning every record. The terms of the
+ * specialties are always indexed, for searches on specialties, as are the
+ * parsed values of the size and rate, for searches on a range of values.
+ * <p>
+ * A search that has to scan every record is split into segments scanned in
+ * parallel on a {@link ForkJoinPool} shared by all searches, once the
+ * database holds at least the configured number of records.
+ * <p>
+ * Record locks are leased for the configured time, renewed by every update
+ * and delete made with the lock, and released by a background reaper once
+ * their lease ran out, so that a client dying while holding a lock does not
+ * keep the record locked. {@link #getLockStatistics()} reports the number of
+ * leases that expired.
  * 
  * @version 1.0
  * @author Damien O'Toole
@@ -29,13 +79,74 @@ public class Data implements DBOperations {
 
 	private FileAccess fileAccess;
 
-	private LockManager lockManager;
+	private WriteAheadLog writeAheadLog;
+
+	private DirtyRecordSet dirtyRecords = new DirtyRecordSet();
+
+	/**
+	 * Held for reading by every change to a record, and for writing while a
+	 * checkpoint saves the cache so that no change is logged after the cache
+	 * was saved and before the log is truncated.
+	 */
+	private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+
+	private volatile CheckpointScheduler checkpointScheduler;
+
+	private volatile CheckpointStatistics checkpointStatistics = CheckpointStatistics.NONE;
+
+	private volatile LockManager lockManager;
+
+	/** Releases the locks whose lease ran out, if locks are leased. */
+	private ScheduledExecutorService lockReaper;
 
 	private final AtomicBoolean initialized = new AtomicBoolean();
 
 	private static final String NON_INITIALIZATION_ERROR_TEXT = "Data File Access has not been correctly initialized prior to this method call";
 
-	private ConcurrentSkipListMap<Integer, Subcontractor> cache = new ConcurrentSkipListMap<Integer, Subcontractor>();
+	private static final String RECORD_READ_ERROR_TEXT = "Error while reading the record from the database file.";
+
+	private static final int LEASE_CHECKS = 4;
+
+	private static final String LOG_WRITE_ERROR_TEXT = "Error while writing the change into the database log file.";
+
+	/**
+	 * Holds the records off-heap, a {@link Subcontractor} is only created when
+	 * a record is handed out.
+	 */
+	private RecordStore cache = new RecordStore();
+
+	/**
+	 * Number of records held by the database file at initialization. Those
+	 * records that are not in the cache yet are loaded on first access.
+	 */
+	private volatile int fileRecordCount;
+
+	/**
+	 * Allocates the record numbers of created records. Built at initialization
+	 * with {@link LoadMode#EAGER}, and by the first create otherwise.
+	 */
+	private volatile FreeSlotAllocator freeSlots;
+
+	private final Object freeSlotsLock = new Object();
+
+	/** Whether every record of the database file is held by the cache. */
+	private volatile boolean allResident;
+
+	private volatile MatchMode matchMode = MatchMode.CONTAINS;
+
+	private volatile boolean substringIndexed;
+
+	/**
+	 * Indexes the valid records for searches. Built at
+	 * initialization with {@link LoadMode#EAGER}, and by the first search
+	 * otherwise.
+	 */
+	private volatile SearchIndexes indexes;
+
+	/** Scans the records in parallel, null if searches scan serially. */
+	private volatile ForkJoinPool searchPool;
+
+	private volatile int parallelScanThreshold;
 
 	/**
 	 * SingletonHolder is loaded on the first execution of
@@ -64,28 +175,301 @@ public class Data implements DBOperations {
 	/** {@inheritDoc} */
 	@Override
 	public synchronized void init(final String databaseLocation) throws DatabaseException {
-		this.fileAccess = new FileAccess(databaseLocation);
-		this.cache.putAll(this.fileAccess.getAllRecords());
-		this.lockManager = new LockManager();
+		this.init(databaseLocation, new DatabaseOptions());
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized void init(final String databaseLocation, final DatabaseOptions options)
+			throws DatabaseException {
+		this.fileAccess = this.createFileAccess(databaseLocation, options.getStorageMode());
+		this.matchMode = options.getMatchMode();
+		this.substringIndexed = options.isSubstringIndexed();
+		this.parallelScanThreshold = options.getParallelScanThreshold();
+		try {
+			this.fileRecordCount = this.fileAccess.getRecordCount();
+			if (options.getLoadMode() == LoadMode.EAGER) {
+				this.fileAccess.loadAllRecords(this.cache);
+				this.allResident = true;
+			}
+			this.writeAheadLog = new WriteAheadLog(databaseLocation, options.getSyncPolicy(),
+					options.getSyncIntervalMillis());
+			final ConcurrentSkipListMap<Integer, Subcontractor> loggedRecords = this.writeAheadLog
+					.replay();
+			if (!loggedRecords.isEmpty()) {
+				// Changes made since the last checkpoint were never saved into
+				// the database file, so fold them back in straight away
+				for (final Map.Entry<Integer, Subcontractor> entry : loggedRecords.entrySet()) {
+					this.cache.put(entry.getKey(), entry.getValue());
+					this.dirtyRecords.mark(entry.getKey());
+				}
+				this.checkpoint();
+			}
+			if (this.allResident) {
+				this.getFreeSlots();
+				this.getIndexes();
+			}
+		} catch (final IOException ioException) {
+			this.release();
+			throw new DatabaseException(
+					"Error while reading the database file or recovering its log file.");
+		} catch (final DatabaseException databaseException) {
+			this.release();
+			throw databaseException;
+		}
+		final LockManager locks = new LockManager(options.getLockLeaseMillis());
+		this.lockManager = locks;
+		if (options.getLockLeaseMillis() > 0) {
+			// Checking a few times per lease releases an abandoned lock soon
+			// after its lease ran out
+			final long reapIntervalMillis = Math.max(options.getLockLeaseMillis()
+					/ Data.LEASE_CHECKS, 1);
+			this.lockReaper = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory(
+					"database-lock-reaper"));
+			this.lockReaper.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					locks.expireLeases();
+				}
+			}, reapIntervalMillis, reapIntervalMillis, TimeUnit.MILLISECONDS);
+		}
+		if (this.parallelScanThreshold > 0) {
+			this.searchPool = new ForkJoinPool();
+		}
+		this.checkpointScheduler = new CheckpointScheduler(new Runnable() {
+			@Override
+			public void run() {
+				Data.this.backgroundCheckpoint();
+			}
+		}, options.getCheckpointIntervalMillis(), options.getCheckpointDirtyThreshold());
 		this.initialized.set(true);
 	}
 
+	private FileAccess createFileAccess(final String databaseLocation,
+			final StorageMode storageMode) throws DatabaseException {
+		if (storageMode == StorageMode.MEMORY_MAPPED) {
+			return new MappedFileAccess(databaseLocation);
+		}
+		return new FileAccess(databaseLocation);
+	}
+
+	/**
+	 * Saves the records changed since the last checkpoint into the database
+	 * file, forces it to the storage device and then truncates the
+	 * {@link WriteAheadLog}, as every change it holds is now contained in the
+	 * database file.
+	 * <p>
+	 * Changes to records are blocked for the duration of the checkpoint, while
+	 * reading, finding and locking records is not affected.
+	 * 
+	 * @throws DatabaseException
+	 *             error while saving the records or truncating the log
+	 */
+	private void checkpoint() throws DatabaseException {
+		this.checkpointLock.writeLock().lock();
+		final long startTime = System.nanoTime();
+		final int[] changedRecords = this.dirtyRecords.drain();
+		try {
+			long bytesWritten = 0;
+			if (changedRecords.length > 0) {
+				bytesWritten = this.fileAccess.saveRecords(this.cache, changedRecords);
+				this.fileAccess.force();
+			}
+			this.writeAheadLog.truncate();
+			this.checkpointStatistics = this.checkpointStatistics.withCheckpoint(System.nanoTime()
+					- startTime, bytesWritten);
+		} catch (final IOException ioException) {
+			// The records are still not saved, so they must be saved by the
+			// next checkpoint
+			for (final int recNo : changedRecords) {
+				this.dirtyRecords.mark(recNo);
+			}
+			this.checkpointStatistics = this.checkpointStatistics.withFailedCheckpoint();
+			throw new DatabaseException("Error while saving records into the database file.");
+		} finally {
+			this.checkpointLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Runs a checkpoint on behalf of the {@link CheckpointScheduler}, unless
+	 * no record has changed since the last one. A failed checkpoint is
+	 * recorded in the statistics and retried by the next one.
+	 */
+	private void backgroundCheckpoint() {
+		if (this.dirtyRecords.size() > 0) {
+			try {
+				this.checkpoint();
+			} catch (final DatabaseException canBeIgnored) {
+				// Can be ignored, the changed records stay marked and are
+				// saved by the next checkpoint
+			}
+		}
+	}
+
+	/**
+	 * Gets the statistics of the checkpoints completed since the database was
+	 * initialized.
+	 * 
+	 * @return the checkpoint statistics
+	 */
+	public CheckpointStatistics getCheckpointStatistics() {
+		return this.checkpointStatistics;
+	}
+
+	/**
+	 * Gets the statistics of the record locks, including the number of locks
+	 * released because their lease ran out.
+	 * 
+	 * @return the lock statistics
+	 */
+	public LockStatistics getLockStatistics() {
+		final LockManager locks = this.lockManager;
+		return locks == null ? LockStatistics.NONE : locks.getStatistics();
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public synchronized void destroy() throws DatabaseException {
+		if (this.lockReaper != null) {
+			this.lockReaper.shutdownNow();
+			this.lockReaper = null;
+		}
+		if (this.checkpointScheduler != null) {
+			// No background checkpoint may run once the files are released
+			this.checkpointScheduler.shutdown();
+			this.checkpointScheduler = null;
+		}
+		if (this.searchPool != null) {
+			this.searchPool.shutdown();
+			this.searchPool = null;
+		}
 		try {
+			if (this.fileAccess != null && this.writeAheadLog != null) {
+				this.checkpoint();
+			}
+		} finally {
+			this.release();
+			this.lockManager = null;
+			this.cache = new RecordStore();
+			this.fileRecordCount = 0;
+			this.allResident = false;
+			this.freeSlots = null;
+			this.indexes = null;
+			this.dirtyRecords = new DirtyRecordSet();
+			this.checkpointStatistics = CheckpointStatistics.NONE;
+			this.initialized.set(false);
+		}
+
+	}
+
+	private void release() throws DatabaseException {
+		try {
+			if (this.writeAheadLog != null) {
+				this.writeAheadLog.close();
+			}
 			if (this.fileAccess != null) {
-				this.fileAccess.saveAllRecords(this.cache);
+				this.fileAccess.close();
 			}
 		} catch (final IOException ioException) {
-			throw new DatabaseException("Error while saving records into the database file.");
+			throw new DatabaseException("Error while closing the database file.");
 		} finally {
+			this.writeAheadLog = null;
 			this.fileAccess = null;
-			this.lockManager = null;
-			this.cache = new ConcurrentSkipListMap<Integer, Subcontractor>();
-			this.initialized.set(false);
 		}
+	}
+
+	/**
+	 * Appends the new state of a record to the {@link WriteAheadLog}, applies
+	 * it to the cache and marks the record to be saved by the next checkpoint,
+	 * which may trigger a background checkpoint. The indexes, if built, are
+	 * updated from the previous and new state of the record as held by the
+	 * cache. Must be called while holding the read lock of the
+	 * {@code checkpointLock}.
+	 */
+	private void applyChange(final int recNo, final Subcontractor subContractor) {
+		try {
+			this.writeAheadLog.append(recNo, subContractor);
+		} catch (final IOException ioException) {
+			throw new IllegalStateException(Data.LOG_WRITE_ERROR_TEXT, ioException);
+		}
+		final SearchIndexes searchIndexes = this.indexes;
+		if (searchIndexes != null) {
+			final Subcontractor previous = this.cache.get(recNo);
+			this.cache.put(recNo, subContractor);
+			if (previous != null && previous.getState() == RecordState.valid) {
+				searchIndexes.remove(recNo, previous.getData());
+			}
+			if (subContractor.getState() == RecordState.valid) {
+				// Index the record as stored, fields longer than the schema
+				// allows having been truncated
+				searchIndexes.add(recNo, this.cache.get(recNo).getData());
+			}
+		} else {
+			this.cache.put(recNo, subContractor);
+		}
+		this.dirtyRecords.mark(recNo);
+		final CheckpointScheduler scheduler = this.checkpointScheduler;
+		if (scheduler != null) {
+			scheduler.recordChanged(this.dirtyRecords.size());
+		}
+	}
+
+	/**
+	 * Makes sure the record is held by the cache, loading it from the database
+	 * file if it has not been accessed before.
+	 * 
+	 * @return true if the record exists, false otherwise
+	 */
+	private boolean ensureResident(final int recNo) {
+		if (this.cache.isResident(recNo)) {
+			return true;
+		}
+		if (recNo < 1 || recNo > this.fileRecordCount) {
+			return false;
+		}
+		try {
+			// A change applied while the record is read takes precedence over
+			// the state read from the file, as loading never replaces a
+			// resident record
+			this.fileAccess.loadRecord(recNo, this.cache);
+		} catch (final IOException ioException) {
+			throw new IllegalStateException(Data.RECORD_READ_ERROR_TEXT, ioException);
+		}
+		return true;
+	}
 
+	/**
+	 * Makes sure every record of the database file is held by the cache, so
+	 * that it can be scanned. Records already resident are not loaded again.
+	 */
+	private void ensureAllResident() {
+		if (!this.allResident) {
+			try {
+				this.fileAccess.loadAllRecords(this.cache);
+			} catch (final DatabaseException databaseException) {
+				throw new IllegalStateException(Data.RECORD_READ_ERROR_TEXT, databaseException);
+			}
+			this.allResident = true;
+		}
+	}
+
+	/**
+	 * Gets a record, loading it from the database file if it has not been
+	 * accessed before.
+	 * 
+	 * @return the record, or null if no record exists with that number
+	 */
+	private Subcontractor getRecord(final int recNo) {
+		return this.ensureResident(recNo) ? this.cache.get(recNo) : null;
+	}
+
+	/**
+	 * Gets the highest record number in use, including records of the
+	 * database file not loaded yet.
+	 */
+	private int getHighestRecNo() {
+		return Math.max(this.fileRecordCount, this.cache.getHighestRecNo());
 	}
 
 	private boolean isInitialized() {
@@ -96,22 +480,95 @@ public class Data implements DBOperations {
 	@Override
 	public String[] read(final int recNo) throws RecordNotFoundException {
 		if (this.isInitialized()) {
-			return this.cache.get(recNo).getData();
+			final Subcontractor contractor = this.getRecord(recNo);
+			if (contractor == null) {
+				throw new RecordNotFoundException("Record with number " + recNo + " does not exist");
+			}
+			return contractor.getData();
+		} else {
+			throw new IllegalStateException(Data.NON_INITIALIZATION_ERROR_TEXT);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public VersionedRecord readRecord(final int recNo) throws RecordNotFoundException {
+		if (this.isInitialized()) {
+			final byte[] record = new byte[DatabaseSchema.TOTAL_FIELD_LENGTH];
+			final long version = this.readValidRecord(recNo, record);
+			return new VersionedRecord(version, RecordCodec.decode(record, 0).getData());
 		} else {
 			throw new IllegalStateException(Data.NON_INITIALIZATION_ERROR_TEXT);
 		}
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public boolean compareAndUpdate(final int recNo, final long expectedVersion,
+			final String[] data) throws RecordNotFoundException {
+		if (this.isInitialized()) {
+			// Holding the record lock for the duration of the compare keeps
+			// out every other change, and a record locked by a client is
+			// about to be changed so the version is as good as stale
+			final long cookie = this.lockManager.tryLock(recNo, 0);
+			if (cookie == 0) {
+				return false;
+			}
+			try {
+				this.checkpointLock.readLock().lock();
+				try {
+					final byte[] record = new byte[DatabaseSchema.TOTAL_FIELD_LENGTH];
+					if (this.readValidRecord(recNo, record) != expectedVersion) {
+						return false;
+					}
+					this.applyChange(recNo, new Subcontractor(RecordState.valid, data));
+					return true;
+				} finally {
+					this.checkpointLock.readLock().unlock();
+				}
+			} finally {
+				this.lockManager.unlock(recNo, cookie);
+			}
+		} else {
+			throw new IllegalStateException(Data.NON_INITIALIZATION_ERROR_TEXT);
+		}
+	}
+
+	/**
+	 * Copies a valid record into the specified array.
+	 * 
+	 * @return the version of the record
+	 * @throws RecordNotFoundException
+	 *             if the record does not exist or is deleted
+	 */
+	private long readValidRecord(final int recNo, final byte[] record)
+			throws RecordNotFoundException {
+		final long version = this.ensureResident(recNo) ? this.cache.read(recNo, record) : 0;
+		if (version == 0 || (record[0] & 0xFF) == RecordState.deleted.getCode()) {
+			throw new RecordNotFoundException("Record with number " + recNo + " does not exist");
+		}
+		return version;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void update(final int recNo, final String[] data, final long lockCookie)
 			throws RecordNotFoundException, SecurityException {
 		if (this.isInitialized()) {
-			this.lockManager.checkCookie(recNo, lockCookie);
-			if (this.cache.containsKey(recNo)) {
-				final Subcontractor subContractor = this.cache.get(recNo);
-				subContractor.setData(data);
-				this.cache.putIfAbsent(recNo, subContractor);
+			// The lease of the lock cannot run out while the change is applied
+			this.lockManager.beginChange(recNo, lockCookie);
+			try {
+				this.checkpointLock.readLock().lock();
+				try {
+					final Subcontractor current = this.getRecord(recNo);
+					if (current != null) {
+						this.applyChange(recNo, new Subcontractor(current.getState(), data));
+					}
+				} finally {
+					this.checkpointLock.readLock().unlock();
+				}
+			} finally {
+				this.lockManager.endChange(recNo, lockCookie);
 			}
 		} else {
 			throw new IllegalStateException(Data.NON_INITIALIZATION_ERROR_TEXT);
@@ -123,11 +580,24 @@ public class Data implements DBOperations {
 	public void delete(final int recNo, final long lockCookie) throws RecordNotFoundException,
 			SecurityException {
 		if (this.isInitialized()) {
-			this.lockManager.checkCookie(recNo, lockCookie);
-			if (this.cache.containsKey(recNo)) {
-				final Subcontractor subContractor = this.cache.get(recNo);
-				subContractor.setState(RecordState.deleted);
-				this.cache.put(recNo, subContractor);
+			this.lockManager.beginChange(recNo, lockCookie);
+			try {
+				this.checkpointLock.readLock().lock();
+				try {
+					final Subcontractor current = this.getRecord(recNo);
+					if (current != null) {
+						this.applyChange(recNo,
+								new Subcontractor(RecordState.deleted, current.getData()));
+						final FreeSlotAllocator allocator = this.freeSlots;
+						if (allocator != null) {
+							allocator.release(recNo);
+						}
+					}
+				} finally {
+					this.checkpointLock.readLock().unlock();
+				}
+			} finally {
+				this.lockManager.endChange(recNo, lockCookie);
 			}
 		} else {
 			throw new IllegalStateException(Data.NON_INITIALIZATION_ERROR_TEXT);
@@ -138,67 +608,330 @@ public class Data implements DBOperations {
 	@Override
 	public int[] find(final String[] criteria) {
 		if (this.isInitialized()) {
-			final List<Integer> matchFound = new ArrayList<Integer>();
-			if (criteria != null && criteria.length == DatabaseSchema.FIELD_COUNT) {
-				for (final Integer key : this.cache.keySet()) {
-					final Subcontractor contractor = this.cache.get(key);
-					if (contractor.getState() != RecordState.deleted) {
-						if (this.isMatchingSubcontractor(contractor.getData(), criteria)) {
-							matchFound.add(key);
-						}
-					}
+			if (criteria == null || criteria.length != DatabaseSchema.FIELD_COUNT) {
+				return new int[0];
+			}
+			final RecordMatcher matcher = new RecordMatcher(criteria, this.matchMode);
+			this.ensureAllResident();
+			final int[] candidates = this.plan(criteria, this.matchMode).findCandidates();
+			if (candidates != null) {
+				// The candidates are checked against the complete criteria,
+				// which also drops any record changed since the lookup
+				final MatchingRecords matchFound = new MatchingRecords(matcher);
+				this.cache.scan(candidates, matchFound);
+				return matchFound.getRecordNumbers();
+			}
+			return this.scanRecords(matcher);
+		} else {
+			throw new IllegalStateException(Data.NON_INITIALIZATION_ERROR_TEXT);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int[] find(final String[] criteria, final int afterRecNo, final int limit) {
+		return this.findPage(criteria, this.matchMode, afterRecNo, limit, false)
+				.getRecordNumbers();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public FoundRecords findRecords(final String[] criteria, final int afterRecNo, final int limit) {
+		return this.findRecords(criteria, this.matchMode, afterRecNo, limit);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public FoundRecords findRecords(final String[] criteria, final MatchMode matchMode,
+			final int afterRecNo, final int limit) {
+		if (matchMode == null) {
+			throw new IllegalArgumentException("matchMode must not be null");
+		}
+		// The field values are decoded from the very bytes that were matched,
+		// so each record returned is consistent with the criteria even if it
+		// is changed or deleted right after the search
+		return this.findPage(criteria, matchMode, afterRecNo, limit, true).getFoundRecords();
+	}
+
+	/**
+	 * Collects up to {@code limit} records matching the criteria whose record
+	 * number is greater than {@code afterRecNo}.
+	 */
+	private MatchingRecords findPage(final String[] criteria, final MatchMode matchMode,
+			final int afterRecNo, final int limit, final boolean collectData) {
+		if (this.isInitialized()) {
+			if (limit < 1) {
+				throw new IllegalArgumentException("limit must be positive");
+			}
+			if (criteria == null || criteria.length != DatabaseSchema.FIELD_COUNT) {
+				// Nothing is visited, so no matcher is needed
+				return new MatchingRecords(null, collectData, limit);
+			}
+			final MatchingRecords matchFound = new MatchingRecords(new RecordMatcher(criteria,
+					matchMode), collectData, limit);
+			this.ensureAllResident();
+			final int[] candidates = this.plan(criteria, matchMode).findCandidates();
+			// The scan stops as soon as the page is full, so the cost of a
+			// page does not grow with the database
+			if (candidates != null) {
+				this.scanCandidates(candidates, afterRecNo, matchFound);
+			} else {
+				final int highestRecNo = this.cache.getHighestRecNo();
+				if (afterRecNo < highestRecNo) {
+					this.cache.scan(Math.max(afterRecNo, 0) + 1, highestRecNo, matchFound);
 				}
 			}
-			final int[] result = new int[matchFound.size()];
-			for (int i = 0; i < result.length; i++) {
-				result[i] = matchFound.get(i);
+			return matchFound;
+		} else {
+			throw new IllegalStateException(Data.NON_INITIALIZATION_ERROR_TEXT);
+		}
+	}
+
+	/**
+	 * Scans every record for those matching the criteria, in parallel if the
+	 * database holds enough records.
+	 */
+	private int[] scanRecords(final RecordMatcher matcher) {
+		final int highestRecNo = this.cache.getHighestRecNo();
+		final ForkJoinPool pool = this.searchPool;
+		if (pool != null && highestRecNo >= this.parallelScanThreshold) {
+			final int segmentCount = (highestRecNo + RecordStore.SEGMENT_RECORDS - 1)
+					/ RecordStore.SEGMENT_RECORDS;
+			return pool.invoke(new RecordScanTask(this.cache, matcher, 0, segmentCount));
+		}
+		final MatchingRecords matchFound = new MatchingRecords(matcher);
+		this.cache.scan(matchFound);
+		return matchFound.getRecordNumbers();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public FoundRecords findBySpecialties(final String[] specialties, final boolean matchAll,
+			final int afterRecNo, final int limit) {
+		if (this.isInitialized()) {
+			if (limit < 1) {
+				throw new IllegalArgumentException("limit must be positive");
+			}
+			if (specialties == null || specialties.length == 0
+					|| Arrays.asList(specialties).contains(null)) {
+				throw new IllegalArgumentException("specialties must not be null or empty");
+			}
+			final MatchingRecords matchFound = new MatchingRecords(new SpecialtyMatcher(
+					specialties, matchAll), true, limit);
+			this.ensureAllResident();
+			this.scanCandidates(this.getIndexes().findSpecialtyCandidates(specialties, matchAll),
+					afterRecNo, matchFound);
+			return matchFound.getFoundRecords();
+		} else {
+			throw new IllegalStateException(Data.NON_INITIALIZATION_ERROR_TEXT);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int[] findInRange(final RangeField field, final long minimum, final long maximum,
+			final int afterRecNo, final int limit) {
+		if (this.isInitialized()) {
+			if (limit < 1) {
+				throw new IllegalArgumentException("limit must be positive");
 			}
-			return result;
+			if (field == null) {
+				throw new IllegalArgumentException("field must not be null");
+			}
+			final MatchingRecords matchFound = new MatchingRecords(new RangeMatcher(field,
+					minimum, maximum), false, limit);
+			this.ensureAllResident();
+			this.scanCandidates(this.getIndexes().findRangeCandidates(field.getFieldIndex(),
+					minimum, maximum), afterRecNo, matchFound);
+			return matchFound.getRecordNumbers();
 		} else {
 			throw new IllegalStateException(Data.NON_INITIALIZATION_ERROR_TEXT);
 		}
 	}
 
-	private boolean isMatchingSubcontractor(final String[] data, final String[] query) {
-		boolean criteriaMatch = true;
-		for (int i = 0; i < query.length; i++) {
-			final String attribute = query[i];
-			if (attribute != null) {
-				if (!data[i].toLowerCase().contains(attribute.toLowerCase())) {
-					criteriaMatch = false;
+	/**
+	 * Checks the sorted candidate records greater than {@code afterRecNo},
+	 * until the limit of the matching records is reached.
+	 */
+	private void scanCandidates(final int[] candidates, final int afterRecNo,
+			final MatchingRecords matchFound) {
+		// The candidates are checked against the complete search, which also
+		// drops any record changed since the lookup
+		final int index = Arrays.binarySearch(candidates, afterRecNo);
+		this.cache.scan(candidates, index < 0 ? -index - 1 : index + 1, matchFound);
+	}
+
+	/**
+	 * Describes how {@link #find(String[])} would search for the records
+	 * matching the criteria: which indexes it would look up, with the number
+	 * of records each is expected to find, or whether it would scan every
+	 * record. Meant for diagnostics.
+	 * 
+	 * @param criteria
+	 *            the search criteria, a null value matching any field value
+	 * @return the description of the search
+	 * @see QueryPlan#toString()
+	 */
+	public String explain(final String[] criteria) {
+		if (this.isInitialized()) {
+			if (criteria == null || criteria.length != DatabaseSchema.FIELD_COUNT) {
+				return "no records are searched for invalid criteria";
+			}
+			this.ensureAllResident();
+			return this.plan(criteria, this.matchMode).toString();
+		} else {
+			throw new IllegalStateException(Data.NON_INITIALIZATION_ERROR_TEXT);
+		}
+	}
+
+	/**
+	 * Plans a search with the indexes able to serve its match mode.
+	 */
+	private QueryPlan plan(final String[] criteria, final MatchMode mode) {
+		final int recordCount = this.cache.getHighestRecNo();
+		if (mode == MatchMode.EXACT) {
+			return this.getIndexes().planExact(criteria, recordCount);
+		}
+		// Any record beginning with a value also contains it, so a prefix
+		// search can be narrowed down by the substring indexes as well
+		if (mode == this.matchMode
+				|| (mode == MatchMode.PREFIX && this.matchMode == MatchMode.CONTAINS)) {
+			return this.getIndexes().plan(criteria, recordCount);
+		}
+		return QueryPlan.fullScan(recordCount);
+	}
+
+	/**
+	 * Creates empty indexes on the fields a search can be narrowed down on
+	 * with the match mode in use.
+	 */
+	private SearchIndexes createIndexes() {
+		final SpecialtyIndex specialtyIndex = new SpecialtyIndex(Subcontractor.INDEX_SPECIALTIES);
+		final RangeIndex[] rangeIndexes = new RangeIndex[RangeField.values().length];
+		for (final RangeField field : RangeField.values()) {
+			rangeIndexes[field.ordinal()] = new RangeIndex(field.getFieldIndex(), field.getScale());
+		}
+		final FieldIndex[] exactIndexes = { new HashIndex(Subcontractor.INDEX_NAME),
+				new HashIndex(Subcontractor.INDEX_LOCATION) };
+		if (this.matchMode == MatchMode.PREFIX) {
+			return new SearchIndexes(specialtyIndex, rangeIndexes, exactIndexes, new PrefixIndex(
+					Subcontractor.INDEX_NAME), new PrefixIndex(Subcontractor.INDEX_LOCATION));
+		}
+		if (this.matchMode == MatchMode.CONTAINS && this.substringIndexed) {
+			return new SearchIndexes(specialtyIndex, rangeIndexes, exactIndexes, new TrigramIndex(
+					Subcontractor.INDEX_NAME), new TrigramIndex(Subcontractor.INDEX_LOCATION),
+					new TrigramIndex(Subcontractor.INDEX_SPECIALTIES));
+		}
+		return new SearchIndexes(specialtyIndex, rangeIndexes, exactIndexes);
+	}
+
+	/**
+	 * Gets the indexes used by searches, building them from the valid records held by the cache on first use.
+	 * No change can be applied while the indexes are built, so that none is
+	 * missed by them.
+	 */
+	private SearchIndexes getIndexes() {
+		SearchIndexes searchIndexes = this.indexes;
+		if (searchIndexes == null) {
+			this.checkpointLock.writeLock().lock();
+			try {
+				searchIndexes = this.indexes;
+				if (searchIndexes == null) {
+					this.ensureAllResident();
+					final SearchIndexes validRecords = this.createIndexes();
+					this.cache.scan(new RecordStore.RecordVisitor() {
+						@Override
+						public boolean visit(final int recNo, final long version, final byte[] record) {
+							if ((record[0] & 0xFF) == RecordState.valid.getCode()) {
+								validRecords.add(recNo, RecordCodec.decode(record, 0).getData());
+							}
+							return true;
+						}
+					});
+					searchIndexes = validRecords;
+					this.indexes = searchIndexes;
 				}
+			} finally {
+				this.checkpointLock.writeLock().unlock();
 			}
 		}
-		return criteriaMatch;
+		return searchIndexes;
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public int create(final String[] data) throws DuplicateKeyException {
 		if (this.isInitialized()) {
-			// We need to check through the current cache for an existing record
-			// who's state is deleted. If no record is found the we need to add
-			// a new entry to our cache
-			final int NO_DELETED_RECORD_FOUND = -1;
-			int availRecordNo = NO_DELETED_RECORD_FOUND;
-			for (final Integer key : this.cache.keySet()) {
-				final Subcontractor subContractor = this.cache.get(key);
-				if (subContractor.getState() == RecordState.deleted
-						&& availRecordNo == NO_DELETED_RECORD_FOUND) {
-					availRecordNo = key;
-					break;
+			this.checkpointLock.readLock().lock();
+			try {
+				return this.createRecord(data);
+			} finally {
+				this.checkpointLock.readLock().unlock();
+			}
+		} else {
+			throw new IllegalStateException(Data.NON_INITIALIZATION_ERROR_TEXT);
+		}
+	}
+
+	private int createRecord(final String[] data) {
+		// Reuse the slot of a deleted record if there is one, otherwise append
+		// the new record after the highest record number
+		final FreeSlotAllocator allocator = this.getFreeSlots();
+		final int availRecordNo = allocator.allocate();
+		final Subcontractor contractor = new Subcontractor(RecordState.valid, data);
+		try {
+			this.applyChange(availRecordNo, contractor);
+		} catch (final IllegalStateException illegalStateException) {
+			allocator.release(availRecordNo);
+			throw illegalStateException;
+		}
+
+		return availRecordNo;
+	}
+
+	/**
+	 * Gets the allocator of record numbers for created records, building it
+	 * from the deleted records held by the cache on first use.
+	 */
+	private FreeSlotAllocator getFreeSlots() {
+		FreeSlotAllocator allocator = this.freeSlots;
+		if (allocator == null) {
+			synchronized (this.freeSlotsLock) {
+				allocator = this.freeSlots;
+				if (allocator == null) {
+					this.ensureAllResident();
+					final FreeSlotAllocator deletedRecords = new FreeSlotAllocator(
+							this.getHighestRecNo());
+					this.cache.scan(new RecordStore.RecordVisitor() {
+						@Override
+						public boolean visit(final int recNo, final long version, final byte[] record) {
+							if ((record[0] & 0xFF) == RecordState.deleted.getCode()) {
+								deletedRecords.release(recNo);
+							}
+							return true;
+						}
+					});
+					allocator = deletedRecords;
+					this.freeSlots = allocator;
 				}
 			}
+		}
+		return allocator;
+	}
 
-			if (availRecordNo == NO_DELETED_RECORD_FOUND) {
-				// If no record in the cache was marked as deleted, use the
-				// cache size to calculate a record number.
-				availRecordNo = this.cache.size() + 1;
+	/** {@inheritDoc} */
+	@Override
+	public long lock(final int recNo) throws RecordNotFoundException {
+		if (this.isInitialized()) {
+			final long cookie = this.lockManager.lock(recNo);
+			if (!this.ensureResident(recNo)) {
+				// Record number does not exist so we need to unlock the record
+				// and then throw the RecordNotFoundException
+				this.lockManager.unlock(recNo, cookie);
+				throw new RecordNotFoundException("Record with number " + recNo + " does not exist");
 			}
-			final Subcontractor contractor = new Subcontractor(RecordState.valid, data);
-			this.cache.put(availRecordNo, contractor);
 
-			return availRecordNo;
+			return cookie;
 		} else {
 			throw new IllegalStateException(Data.NON_INITIALIZATION_ERROR_TEXT);
 		}
@@ -206,10 +939,10 @@ public class Data implements DBOperations {
 
 	/** {@inheritDoc} */
 	@Override
-	public long lock(final int recNo) throws RecordNotFoundException {
+	public long tryLock(final int recNo, final long timeoutMillis) throws RecordNotFoundException {
 		if (this.isInitialized()) {
-			final long cookie = this.lockManager.lock(recNo);
-			if (!this.cache.containsKey(recNo)) {
+			final long cookie = this.lockManager.tryLock(recNo, timeoutMillis);
+			if (cookie != 0 && !this.ensureResident(recNo)) {
 				// Record number does not exist so we need to unlock the record
 				// and then throw the RecordNotFoundException
 				this.lockManager.unlock(recNo, cookie);
@@ -222,6 +955,38 @@ public class Data implements DBOperations {
 		}
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public long lockAll(final int[] recNos) throws RecordNotFoundException {
+		if (this.isInitialized()) {
+			final long cookie = this.lockManager.lockAll(recNos);
+			for (final int recNo : recNos) {
+				if (!this.ensureResident(recNo)) {
+					// One of the record numbers does not exist so we need to
+					// unlock all the records and then throw the
+					// RecordNotFoundException
+					this.lockManager.unlockAll(recNos, cookie);
+					throw new RecordNotFoundException("Record with number " + recNo
+							+ " does not exist");
+				}
+			}
+
+			return cookie;
+		} else {
+			throw new IllegalStateException(Data.NON_INITIALIZATION_ERROR_TEXT);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void unlockAll(final int[] recNos, final long cookie) throws SecurityException {
+		if (this.isInitialized()) {
+			this.lockManager.unlockAll(recNos, cookie);
+		} else {
+			throw new IllegalStateException(Data.NON_INITIALIZATION_ERROR_TEXT);
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void unlock(final int recNo, final long cookie) throws RecordNotFoundException,
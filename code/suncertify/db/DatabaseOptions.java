@@ -0,0 +1,280 @@
+package suncertify.db;
+
+/**
+ * Holds the tunable options used by {@link Data} when it is initialized on a
+ * database file.
+ * <p>
+ * A newly created instance holds the default value for every option, so that
+ * callers only need to set the options they wish to change.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public class DatabaseOptions {
+
+	private StorageMode storageMode = StorageMode.RANDOM_ACCESS;
+
+	private LoadMode loadMode = LoadMode.EAGER;
+
+	private SyncPolicy syncPolicy = SyncPolicy.PER_OPERATION;
+
+	private long syncIntervalMillis = 1000;
+
+	private long checkpointIntervalMillis = 60000;
+
+	private int checkpointDirtyThreshold = 1000;
+
+	private MatchMode matchMode = MatchMode.CONTAINS;
+
+	private boolean substringIndexed;
+
+	private int parallelScanThreshold = 65536;
+
+	private long lockLeaseMillis;
+
+	/**
+	 * Gets the {@link StorageMode} used to access the database file.
+	 *
+	 * @return the storage mode
+	 */
+	public StorageMode getStorageMode() {
+		return this.storageMode;
+	}
+
+	/**
+	 * Sets the {@link StorageMode} used to access the database file.
+	 *
+	 * @param storageMode
+	 *            the storage mode
+	 */
+	public void setStorageMode(final StorageMode storageMode) {
+		if (storageMode == null) {
+			throw new IllegalArgumentException("storage mode must not be null");
+		}
+		this.storageMode = storageMode;
+	}
+
+	/**
+	 * Gets the {@link LoadMode} used to load the records of the database file.
+	 *
+	 * @return the load mode
+	 */
+	public LoadMode getLoadMode() {
+		return this.loadMode;
+	}
+
+	/**
+	 * Sets the {@link LoadMode} used to load the records of the database file.
+	 *
+	 * @param loadMode
+	 *            the load mode
+	 */
+	public void setLoadMode(final LoadMode loadMode) {
+		if (loadMode == null) {
+			throw new IllegalArgumentException("load mode must not be null");
+		}
+		this.loadMode = loadMode;
+	}
+
+	/**
+	 * Gets the {@link SyncPolicy} used to force the database log file to the
+	 * storage device.
+	 *
+	 * @return the sync policy
+	 */
+	public SyncPolicy getSyncPolicy() {
+		return this.syncPolicy;
+	}
+
+	/**
+	 * Sets the {@link SyncPolicy} used to force the database log file to the
+	 * storage device.
+	 *
+	 * @param syncPolicy
+	 *            the sync policy
+	 */
+	public void setSyncPolicy(final SyncPolicy syncPolicy) {
+		if (syncPolicy == null) {
+			throw new IllegalArgumentException("sync policy must not be null");
+		}
+		this.syncPolicy = syncPolicy;
+	}
+
+	/**
+	 * Gets the interval, in milliseconds, between forces of the database log
+	 * file when using {@link SyncPolicy#INTERVAL}.
+	 *
+	 * @return the sync interval in milliseconds
+	 */
+	public long getSyncIntervalMillis() {
+		return this.syncIntervalMillis;
+	}
+
+	/**
+	 * Sets the interval, in milliseconds, between forces of the database log
+	 * file when using {@link SyncPolicy#INTERVAL}.
+	 *
+	 * @param syncIntervalMillis
+	 *            the sync interval in milliseconds
+	 */
+	public void setSyncIntervalMillis(final long syncIntervalMillis) {
+		if (syncIntervalMillis <= 0) {
+			throw new IllegalArgumentException("sync interval must be positive");
+		}
+		this.syncIntervalMillis = syncIntervalMillis;
+	}
+
+	/**
+	 * Gets the interval, in milliseconds, between background checkpoints
+	 * saving the changed records into the database file. An interval of 0
+	 * means checkpoints are not run periodically.
+	 *
+	 * @return the checkpoint interval in milliseconds
+	 */
+	public long getCheckpointIntervalMillis() {
+		return this.checkpointIntervalMillis;
+	}
+
+	/**
+	 * Sets the interval, in milliseconds, between background checkpoints
+	 * saving the changed records into the database file. An interval of 0
+	 * means checkpoints are not run periodically.
+	 *
+	 * @param checkpointIntervalMillis
+	 *            the checkpoint interval in milliseconds
+	 */
+	public void setCheckpointIntervalMillis(final long checkpointIntervalMillis) {
+		if (checkpointIntervalMillis < 0) {
+			throw new IllegalArgumentException("checkpoint interval must not be negative");
+		}
+		this.checkpointIntervalMillis = checkpointIntervalMillis;
+	}
+
+	/**
+	 * Gets the number of changed records that triggers a background checkpoint
+	 * before the checkpoint interval elapses. A threshold of 0 means
+	 * checkpoints are not triggered by the number of changed records.
+	 *
+	 * @return the checkpoint dirty record threshold
+	 */
+	public int getCheckpointDirtyThreshold() {
+		return this.checkpointDirtyThreshold;
+	}
+
+	/**
+	 * Sets the number of changed records that triggers a background checkpoint
+	 * before the checkpoint interval elapses. A threshold of 0 means
+	 * checkpoints are not triggered by the number of changed records.
+	 *
+	 * @param checkpointDirtyThreshold
+	 *            the checkpoint dirty record threshold
+	 */
+	public void setCheckpointDirtyThreshold(final int checkpointDirtyThreshold) {
+		if (checkpointDirtyThreshold < 0) {
+			throw new IllegalArgumentException("checkpoint threshold must not be negative");
+		}
+		this.checkpointDirtyThreshold = checkpointDirtyThreshold;
+	}
+
+	/**
+	 * Gets the {@link MatchMode} used to match the criteria of a search
+	 * against the field values of the records.
+	 *
+	 * @return the match mode
+	 */
+	public MatchMode getMatchMode() {
+		return this.matchMode;
+	}
+
+	/**
+	 * Sets the {@link MatchMode} used to match the criteria of a search
+	 * against the field values of the records.
+	 *
+	 * @param matchMode
+	 *            the match mode
+	 */
+	public void setMatchMode(final MatchMode matchMode) {
+		if (matchMode == null) {
+			throw new IllegalArgumentException("match mode must not be null");
+		}
+		this.matchMode = matchMode;
+	}
+
+	/**
+	 * Tells whether searches with {@link MatchMode#CONTAINS} are answered from
+	 * trigram indexes on the name, location and specialties, rather than by
+	 * scanning every record.
+	 *
+	 * @return true if the substring indexes are maintained
+	 */
+	public boolean isSubstringIndexed() {
+		return this.substringIndexed;
+	}
+
+	/**
+	 * Sets whether searches with {@link MatchMode#CONTAINS} are answered from
+	 * trigram indexes on the name, location and specialties, rather than by
+	 * scanning every record.
+	 *
+	 * @param substringIndexed
+	 *            true if the substring indexes are to be maintained
+	 */
+	public void setSubstringIndexed(final boolean substringIndexed) {
+		this.substringIndexed = substringIndexed;
+	}
+
+	/**
+	 * Gets the number of records from which a search scanning every record is
+	 * run in parallel on all processors. A threshold of 0 means searches are
+	 * always scanned serially.
+	 *
+	 * @return the parallel scan threshold
+	 */
+	public int getParallelScanThreshold() {
+		return this.parallelScanThreshold;
+	}
+
+	/**
+	 * Sets the number of records from which a search scanning every record is
+	 * run in parallel on all processors. A threshold of 0 means searches are
+	 * always scanned serially.
+	 *
+	 * @param parallelScanThreshold
+	 *            the parallel scan threshold
+	 */
+	public void setParallelScanThreshold(final int parallelScanThreshold) {
+		if (parallelScanThreshold < 0) {
+			throw new IllegalArgumentException("parallel scan threshold must not be negative");
+		}
+		this.parallelScanThreshold = parallelScanThreshold;
+	}
+
+	/**
+	 * Gets the time, in milliseconds, a record lock is held after it was
+	 * acquired or last used to change the record, before it is released
+	 * automatically. A lease time of 0 means locks are held until they are
+	 * unlocked.
+	 *
+	 * @return the lock lease time in milliseconds
+	 */
+	public long getLockLeaseMillis() {
+		return this.lockLeaseMillis;
+	}
+
+	/**
+	 * Sets the time, in milliseconds, a record lock is held after it was
+	 * acquired or last used to change the record, before it is released
+	 * automatically. A lease time of 0 means locks are held until they are
+	 * unlocked.
+	 *
+	 * @param lockLeaseMillis
+	 *            the lock lease time in milliseconds
+	 */
+	public void setLockLeaseMillis(final long lockLeaseMillis) {
+		if (lockLeaseMillis < 0) {
+			throw new IllegalArgumentException("lock lease time must not be negative");
+		}
+		this.lockLeaseMillis = lockLeaseMillis;
+	}
+
+}
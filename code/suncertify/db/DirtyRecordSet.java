@@ -0,0 +1,48 @@
+package suncertify.db;
+
+/**
+ * The set of the record numbers whose cached state has not yet been saved into
+ * the database file.
+ * <p>
+ * The record numbers are kept in a {@link ConcurrentBitSet}, so marking and
+ * draining record numbers can run concurrently. A record marked while a drain
+ * is in progress is either returned by that drain or stays marked for the
+ * next one, it is never lost.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see Data
+ */
+final class DirtyRecordSet {
+
+	private final ConcurrentBitSet records = new ConcurrentBitSet();
+
+	/**
+	 * Marks the specified record as changed since it was last saved.
+	 *
+	 * @param recNo
+	 *            the record number
+	 */
+	void mark(final int recNo) {
+		this.records.set(recNo);
+	}
+
+	/**
+	 * Removes every marked record number from the set and returns them.
+	 *
+	 * @return the marked record numbers in ascending order
+	 */
+	int[] drain() {
+		return this.records.drain();
+	}
+
+	/**
+	 * Gets the number of record numbers currently marked.
+	 *
+	 * @return the number of marked records
+	 */
+	int size() {
+		return this.records.size();
+	}
+
+}
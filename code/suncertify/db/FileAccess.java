@@ -1,15 +1,16 @@
 package suncertify.db;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.io.UnsupportedEncodingException;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import suncertify.domain.DatabaseSchema;
-import suncertify.domain.RecordState;
-import suncertify.domain.Subcontractor;
 
 /**
  * This is the worker class that does all the access and manipulation of the
@@ -26,11 +27,20 @@ import suncertify.domain.Subcontractor;
 
 class FileAccess {
 
-	private static final String ENCODING = "US-ASCII";
+	static final String ENCODING = "US-ASCII";
 
-	private static RandomAccessFile database;
+	private RandomAccessFile database;
 
-	private static ReadWriteLock dbReadWriteLock = new ReentrantReadWriteLock();
+	private final ReadWriteLock dbReadWriteLock = new ReentrantReadWriteLock();
+
+	/**
+	 * Number of records above which {@link #loadAllRecords(RecordStore)} loads
+	 * the records in parallel. Below it, starting the worker threads costs more
+	 * than it saves.
+	 */
+	static final int PARALLEL_LOADING_THRESHOLD = 4 * RecordCodec.BATCH_SIZE;
+
+	private final ByteBuffer batchBuffer = RecordCodec.allocateBatch();
 
 	/**
 	 * Instantiates a new file access.
@@ -49,8 +59,8 @@ class FileAccess {
 	private void validateDatabase(final String databaseLocation) throws DatabaseException {
 		int magicCookie = -1;
 		try {
-			FileAccess.database = new RandomAccessFile(databaseLocation, "rw");
-			magicCookie = FileAccess.database.readInt();
+			this.database = new RandomAccessFile(databaseLocation, "rw");
+			magicCookie = this.database.readInt();
 		} catch (final IOException ioException) {
 			throw new DatabaseException("Error while accessing the database file.");
 		}
@@ -61,133 +71,242 @@ class FileAccess {
 	}
 
 	/**
-	 * Gets all records contained in the database.
+	 * Loads all records contained in the database into the record store.
+	 * <p>
+	 * Records are read in batches of {@link RecordCodec#BATCH_SIZE} records, so
+	 * that a single read request is made on the file per batch, and copied
+	 * into the store without being decoded. Once the file holds more than
+	 * {@link #PARALLEL_LOADING_THRESHOLD} records, the batches are read and
+	 * copied in parallel by {@link RecordLoadingTask}s on a
+	 * {@link ForkJoinPool} using every available processor.
 	 * 
-	 * @return A collection of all the {@code Subcontractors} in a map keyed on
-	 *         record numbers based on location in the database
+	 * @param store
+	 *            the store receiving the records
 	 * @throws DatabaseException
-	 * @throws IOException
 	 *             error while accessing the file
 	 */
-	public ConcurrentSkipListMap<Integer, Subcontractor> getAllRecords() throws DatabaseException {
-		final ConcurrentSkipListMap<Integer, Subcontractor> result = new ConcurrentSkipListMap<Integer, Subcontractor>();
+	public void loadAllRecords(final RecordStore store) throws DatabaseException {
 		int recNo = 1;
 
-		FileAccess.dbReadWriteLock.writeLock().lock();
+		this.dbReadWriteLock.writeLock().lock();
 		try {
-			for (long filePosition = DatabaseSchema.EXPECTED_INITIAL_OFFSET; filePosition < FileAccess.database
-					.length(); filePosition += DatabaseSchema.TOTAL_FIELD_LENGTH) {
-				result.put(recNo, this.readSingleEntry(filePosition));
-				recNo++;
+			final int recordCount = this.getRecordCount();
+			if (recordCount > FileAccess.PARALLEL_LOADING_THRESHOLD) {
+				this.loadInParallel(recordCount, store);
+				return;
+			}
+			while (recNo <= recordCount) {
+				final int batchRecords = Math.min(RecordCodec.BATCH_SIZE, recordCount - recNo + 1);
+				this.batchBuffer.clear();
+				this.batchBuffer.limit(batchRecords * DatabaseSchema.TOTAL_FIELD_LENGTH);
+				this.readRecords(this.batchBuffer, FileAccess.getFilePosition(recNo));
+				this.batchBuffer.flip();
+				store.load(recNo, this.batchBuffer);
+				recNo += batchRecords;
 			}
 		} catch (final IOException ioException) {
 			throw new DatabaseException("Error while accessing the database file.");
 		} finally {
-			FileAccess.dbReadWriteLock.writeLock().unlock();
+			this.dbReadWriteLock.writeLock().unlock();
 		}
-
-		return result;
 	}
 
-	private Subcontractor readSingleEntry(final long filePosition) throws IOException {
-		final byte flagByte;
-		final byte[] input = new byte[DatabaseSchema.TOTAL_SCHEMA_LENGTH];
-		final String[] recordData = new String[DatabaseSchema.FIELD_COUNT];
-		synchronized (FileAccess.database) {
-			FileAccess.database.seek(filePosition);
-			flagByte = FileAccess.database.readByte();
-			FileAccess.database.readFully(input);
+	private void loadInParallel(final int recordCount, final RecordStore store)
+			throws IOException {
+		final AtomicReference<IOException> failure = new AtomicReference<IOException>();
+		final ForkJoinPool pool = new ForkJoinPool();
+		try {
+			pool.invoke(new RecordLoadingTask(this, 1, recordCount, store, failure));
+		} finally {
+			pool.shutdown();
+		}
+		if (failure.get() != null) {
+			throw failure.get();
 		}
+	}
+
+	/**
+	 * Loads a single record from the database file into the record store,
+	 * unless the store already holds it.
+	 * 
+	 * @param recNo
+	 *            the record number
+	 * @param store
+	 *            the store receiving the record
+	 * @throws IOException
+	 *             error while accessing the file
+	 */
+	void loadRecord(final int recNo, final RecordStore store) throws IOException {
+		final ByteBuffer record = ByteBuffer.allocate(DatabaseSchema.TOTAL_FIELD_LENGTH);
+		this.readRecords(record, FileAccess.getFilePosition(recNo));
+		record.flip();
+		store.load(recNo, record);
+	}
+
+	/**
+	 * Gets the number of complete records contained in the database file.
+	 * 
+	 * @return the number of records
+	 * @throws IOException
+	 *             error while accessing the file
+	 */
+	int getRecordCount() throws IOException {
+		final long recordsLength = this.getDatabaseLength() - DatabaseSchema.EXPECTED_INITIAL_OFFSET;
+		return (int) Math.max(0, recordsLength / DatabaseSchema.TOTAL_FIELD_LENGTH);
+	}
+
+	/**
+	 * Gets the current length of the database file in bytes.
+	 * 
+	 * @return the length of the database file
+	 * @throws IOException
+	 *             error while accessing the file
+	 */
+	long getDatabaseLength() throws IOException {
+		return this.database.length();
+	}
+
+	/**
+	 * Gets the channel of the database file opened during validation.
+	 * 
+	 * @return the file channel of the database
+	 */
+	FileChannel getChannel() {
+		return this.database.getChannel();
+	}
 
-		/**
-		 * The Class SingleRecordReader.
-		 * <p>
-		 * Responsible for reading a single record representing all the
-		 * available fields for that record in one instance.
-		 */
-		class SingleRecordReader {
-			private int offSet = 0;
-
-			String read(final int length) throws UnsupportedEncodingException {
-				final String string = new String(input, this.offSet, length, FileAccess.ENCODING);
-				this.offSet += length;
-				return string.trim();
+	/**
+	 * Fills the remaining space of the target buffer with the bytes stored in
+	 * the database file from the specified file position onwards.
+	 * <p>
+	 * Positional reads are used, so no seeking or monitor is required.
+	 * 
+	 * @param target
+	 *            the buffer to be filled
+	 * @param filePosition
+	 *            position in the database file of the first byte to be read
+	 * @throws IOException
+	 *             error while accessing the file, or the end of the file was
+	 *             reached before the buffer was filled
+	 */
+	void readRecords(final ByteBuffer target, final long filePosition) throws IOException {
+		final long startPosition = filePosition - target.position();
+		while (target.hasRemaining()) {
+			if (this.getChannel().read(target, startPosition + target.position()) < 0) {
+				throw new EOFException("Unexpected end of the database file.");
 			}
 		}
-
-		final SingleRecordReader entryReader = new SingleRecordReader();
-		final int flag = this.convertByteToInt(flagByte);
-		recordData[0] = entryReader.read(DatabaseSchema.FIELD_LENGTH_NAME);
-		recordData[1] = entryReader.read(DatabaseSchema.FIELD_LENGTH_LOCATION);
-		recordData[2] = entryReader.read(DatabaseSchema.FIELD_LENGTH_SPECIALTIES);
-		recordData[3] = entryReader.read(DatabaseSchema.FIELD_LENGTH_SIZE);
-		recordData[4] = entryReader.read(DatabaseSchema.FIELD_LENGTH_RATE);
-		recordData[5] = entryReader.read(DatabaseSchema.FIELD_LENGTH_OWNER);
-		final Subcontractor subContractor = new Subcontractor(RecordState.forValue(flag),
-				recordData);
-		return subContractor;
 	}
 
-	private int convertByteToInt(final byte flagByte) {
-		return flagByte & 0xFF;
+	/**
+	 * Writes the remaining bytes of the source buffer into the database file
+	 * from the specified file position onwards.
+	 * <p>
+	 * Positional writes are used, so no seeking or monitor is required.
+	 * 
+	 * @param source
+	 *            the buffer holding one or more encoded records
+	 * @param filePosition
+	 *            position in the database file of the first byte to be written
+	 * @throws IOException
+	 *             error while accessing the file
+	 */
+	void writeRecords(final ByteBuffer source, final long filePosition) throws IOException {
+		final long startPosition = filePosition - source.position();
+		while (source.hasRemaining()) {
+			this.getChannel().write(source, startPosition + source.position());
+		}
 	}
 
 	/**
-	 * This method is responsible for saving all data currently stored in the
-	 * {@code Data} class cache and persists it into the database
+	 * This method is responsible for saving the specified records currently
+	 * stored in the {@code Data} class record store and persists them into the
+	 * database.
+	 * <p>
+	 * Each record is written at the fixed position of its record number, so
+	 * only the specified records are written. Records are copied, already
+	 * encoded, into a reusable buffer, and consecutive record numbers are
+	 * written together with a single write of up to
+	 * {@link RecordCodec#BATCH_SIZE} records.
 	 * 
-	 * @param cache
+	 * @param store
 	 *            the living instance of the records read from the database
 	 *            previously but who's state could since have changed.
+	 * @param recordNumbers
+	 *            the record numbers to be saved, in ascending order
+	 * @return the number of bytes written into the database file
 	 * @throws IOException
 	 *             error while accessing the file
 	 */
-	public void saveAllRecords(final ConcurrentSkipListMap<Integer, Subcontractor> cache)
+	public long saveRecords(final RecordStore store, final int[] recordNumbers)
 			throws IOException {
-		FileAccess.dbReadWriteLock.writeLock().lock();
+		this.dbReadWriteLock.writeLock().lock();
 		try {
-			long filePosition = DatabaseSchema.EXPECTED_INITIAL_OFFSET;
-			for (final Integer key : cache.keySet()) {
-				final Subcontractor contractor = cache.get(key);
-				this.writeSingleEntry(filePosition, contractor);
-				filePosition += DatabaseSchema.TOTAL_FIELD_LENGTH;
+			this.batchBuffer.clear();
+			long batchPosition = 0;
+			final byte[] record = new byte[DatabaseSchema.TOTAL_FIELD_LENGTH];
+			long bytesWritten = 0;
+			int nextRecNo = -1;
+			for (final int recNo : recordNumbers) {
+				if (recNo != nextRecNo || !this.batchBuffer.hasRemaining()) {
+					this.flushBatch(batchPosition);
+					batchPosition = FileAccess.getFilePosition(recNo);
+				}
+				if (store.copyRecord(recNo, this.batchBuffer, record)) {
+					bytesWritten += DatabaseSchema.TOTAL_FIELD_LENGTH;
+					nextRecNo = recNo + 1;
+				} else {
+					nextRecNo = -1;
+				}
 			}
+			this.flushBatch(batchPosition);
+			return bytesWritten;
 		} finally {
-			FileAccess.dbReadWriteLock.writeLock().unlock();
+			this.dbReadWriteLock.writeLock().unlock();
 		}
 	}
 
-	private void writeSingleEntry(final long filePosition, final Subcontractor contractor)
-			throws IOException {
-		synchronized (FileAccess.database) {
-			FileAccess.database.seek(filePosition);
-			final byte flagByte = this.convertIntToByte(contractor.getState().getCode());
-			FileAccess.database.writeByte(flagByte);
-
-			final String[] data = contractor.getData();
-			for (int i = 0; i < DatabaseSchema.FIELD_COUNT; i++) {
-				final int fieldLength = DatabaseSchema.FIELD_LENGTHS[i];
-				final byte[] fieldValue = data[i].getBytes(FileAccess.ENCODING);
-
-				/*
-				 * write only the fieldLength bytes. if fieldValue is longer,
-				 * then skip remaining bytes. if fieldValue is shorter, then
-				 * fill to length with blanks (0x020)
-				 */
-				for (int currentPos = 0; currentPos < fieldLength; currentPos++) {
-					if (currentPos < fieldValue.length) {
-						FileAccess.database.writeByte(fieldValue[currentPos]);
-					} else {
-						FileAccess.database.writeByte(0x020);
-					}
-				}
-			}
+	/**
+	 * Gets the position in the database file of the flag byte of the specified
+	 * record.
+	 * 
+	 * @param recNo
+	 *            the record number
+	 * @return the file position of the record
+	 */
+	static long getFilePosition(final int recNo) {
+		return DatabaseSchema.EXPECTED_INITIAL_OFFSET + (long) (recNo - 1)
+				* DatabaseSchema.TOTAL_FIELD_LENGTH;
+	}
+
+	private void flushBatch(final long filePosition) throws IOException {
+		this.batchBuffer.flip();
+		if (this.batchBuffer.hasRemaining()) {
+			this.writeRecords(this.batchBuffer, filePosition);
 		}
+		this.batchBuffer.clear();
 	}
 
-	private byte convertIntToByte(final Integer integer) {
-		final byte flagByte = (byte) (integer >>> 0 * 8);
-		return flagByte;
+	/**
+	 * Forces any records written so far to the storage device containing the
+	 * database file.
+	 * 
+	 * @throws IOException
+	 *             error while accessing the file
+	 */
+	public void force() throws IOException {
+		this.getChannel().force(false);
+	}
+
+	/**
+	 * Releases the database file so that no further access is possible through
+	 * this instance.
+	 * 
+	 * @throws IOException
+	 *             error while closing the file
+	 */
+	public void close() throws IOException {
+		this.database.close();
 	}
 
 }
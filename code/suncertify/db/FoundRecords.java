@@ -0,0 +1,88 @@
+package suncertify.db;
+
+import java.io.Serializable;
+
+/**
+ * The records found by a search together with their field values, as
+ * returned by {@link PagedDB#findRecords(String[], int, int)}.
+ * <p>
+ * The field values of each record are those the record held when it was
+ * matched against the criteria, so they always match the criteria and no
+ * record found can have been deleted before its values were read. Each record
+ * comes with the version it had when its values were read, for use by
+ * {@link PagedDB#compareAndUpdate(int, long, String[])}. Instances are
+ * immutable and are returned over the network as a single response.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public final class FoundRecords implements Serializable {
+
+	private static final long serialVersionUID = 4711245917356237613L;
+
+	private final int[] recordNumbers;
+
+	private final long[] recordVersions;
+
+	private final String[][] recordData;
+
+	/**
+	 * Creates a new {@code FoundRecords} instance.
+	 * 
+	 * @param recordNumbers
+	 *            the record numbers of the records found, in ascending order
+	 * @param recordVersions
+	 *            the version of each record found
+	 * @param recordData
+	 *            the field values of each record found
+	 */
+	FoundRecords(final int[] recordNumbers, final long[] recordVersions,
+			final String[][] recordData) {
+		this.recordNumbers = recordNumbers;
+		this.recordVersions = recordVersions;
+		this.recordData = recordData;
+	}
+
+	/**
+	 * Gets the number of records found.
+	 * 
+	 * @return the number of records
+	 */
+	public int size() {
+		return this.recordNumbers.length;
+	}
+
+	/**
+	 * Gets the record number of a record found.
+	 * 
+	 * @param index
+	 *            the index of the record, from 0 to {@link #size()} - 1
+	 * @return the record number
+	 */
+	public int getRecordNumber(final int index) {
+		return this.recordNumbers[index];
+	}
+
+	/**
+	 * Gets the version a record found had when its field values were read.
+	 * 
+	 * @param index
+	 *            the index of the record, from 0 to {@link #size()} - 1
+	 * @return the record version
+	 */
+	public long getRecordVersion(final int index) {
+		return this.recordVersions[index];
+	}
+
+	/**
+	 * Gets the field values of a record found.
+	 * 
+	 * @param index
+	 *            the index of the record, from 0 to {@link #size()} - 1
+	 * @return a copy of the field values of the record
+	 */
+	public String[] getRecordData(final int index) {
+		return this.recordData[index].clone();
+	}
+
+}
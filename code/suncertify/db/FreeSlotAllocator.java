@@ -0,0 +1,87 @@
+package suncertify.db;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Allocates record numbers for records created by {@link Data}, reusing the
+ * slots of deleted records before appending new ones.
+ * <p>
+ * The numbers of deleted records are kept in a {@link ConcurrentBitSet}.
+ * Releasing a number sets its bit, allocating clears the lowest set bit with
+ * an atomic compare and set, so concurrent creates never receive the same
+ * record number and releasing the same number twice can not hand it out
+ * twice. A hint to the lowest record number that may be free keeps allocation
+ * from rescanning words already emptied. When no slot is free, the next
+ * number after the highest record number in use is taken from an atomic
+ * counter.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see Data#create(String[])
+ */
+final class FreeSlotAllocator {
+
+	private final ConcurrentBitSet freeSlots = new ConcurrentBitSet();
+
+	private final AtomicInteger searchHint = new AtomicInteger();
+
+	private final AtomicInteger nextRecNo;
+
+	/**
+	 * Creates an allocator without any free slot.
+	 *
+	 * @param highestRecNo
+	 *            the highest record number currently in use
+	 */
+	FreeSlotAllocator(final int highestRecNo) {
+		this.nextRecNo = new AtomicInteger(highestRecNo + 1);
+	}
+
+	/**
+	 * Makes the slot of a deleted record available for reuse.
+	 *
+	 * @param recNo
+	 *            the number of the deleted record
+	 */
+	void release(final int recNo) {
+		if (this.freeSlots.set(recNo)) {
+			int hint;
+			do {
+				hint = this.searchHint.get();
+			} while (recNo < hint && !this.searchHint.compareAndSet(hint, recNo));
+		}
+	}
+
+	/**
+	 * Allocates a record number for a new record: the lowest free slot if
+	 * there is one, otherwise the number after the highest allocated so far.
+	 *
+	 * @return the allocated record number
+	 */
+	int allocate() {
+		if (this.freeSlots.size() > 0) {
+			final int recNo = this.claimFreeSlot();
+			if (recNo > 0) {
+				return recNo;
+			}
+		}
+		return this.nextRecNo.getAndIncrement();
+	}
+
+	private int claimFreeSlot() {
+		final int hint = this.searchHint.get();
+		int recNo = this.freeSlots.clearNextSetBit(hint);
+		if (recNo < 0 && hint > 0) {
+			// A slot released while the hint was being raised can be left
+			// below the hint, so look from the start once before giving up
+			this.searchHint.compareAndSet(hint, 0);
+			recNo = this.freeSlots.clearNextSetBit(0);
+		} else if (recNo > hint) {
+			// Skip the emptied slots next time, unless a slot was released
+			// below them in the meantime
+			this.searchHint.compareAndSet(hint, recNo);
+		}
+		return recNo;
+	}
+
+}
@@ -0,0 +1,67 @@
+package suncertify.db;
+
+/**
+ * The supported modes for loading the records of the database file into the
+ * {@link Data} cache.
+ * <ul>
+ * <li>{@link LoadMode#EAGER}</li>
+ * <li>{@link LoadMode#LAZY}</li>
+ * </ul>
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public enum LoadMode {
+
+	/**
+	 * Every record is decoded during initialization, so the time taken to
+	 * initialize grows with the size of the database file.
+	 */
+	EAGER("eager"),
+	/**
+	 * Initialization only validates the database file and counts its records.
+	 * Each record is decoded the first time it is read, found or locked and
+	 * then stays in the cache.
+	 */
+	LAZY("lazy");
+
+	/** The property value associated with this load mode. */
+	private final String propertyValue;
+
+	/**
+	 * Constructor for {@code LoadMode}. Allows specification for the property
+	 * value corresponding to this mode.
+	 *
+	 * @param propertyValue
+	 *            property value corresponding to this mode.
+	 */
+	private LoadMode(final String propertyValue) {
+		this.propertyValue = propertyValue;
+	}
+
+	/**
+	 * Gets the property value associated with this load mode.
+	 *
+	 * @return the property value
+	 */
+	public String getPropertyValue() {
+		return this.propertyValue;
+	}
+
+	/**
+	 * Returns a {@link LoadMode} for a supplied property value.
+	 *
+	 * @param propertyValue
+	 *            the property value
+	 * @return the {@code LoadMode} corresponding to the supplied value or null
+	 *         if the value is not supported
+	 */
+	public static LoadMode forValue(final String propertyValue) {
+		for (final LoadMode mode : LoadMode.values()) {
+			if (mode.getPropertyValue().equalsIgnoreCase(propertyValue)) {
+				return mode;
+			}
+		}
+		return null;
+	}
+}
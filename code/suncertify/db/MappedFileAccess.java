@@ -0,0 +1,128 @@
+package suncertify.db;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link FileAccess} that reads and writes records directly on a memory
+ * mapped region of the database file.
+ * <p>
+ * Each record slot is addressed at
+ * {@code EXPECTED_INITIAL_OFFSET + n * TOTAL_FIELD_LENGTH} using absolute
+ * buffer operations, so no seeking is required and no monitor is shared
+ * between threads accessing different records. Once mapped, reading or writing
+ * a record does not need a system call at all.
+ * <p>
+ * The mapping only ever covers whole records. When more records are saved than
+ * the current mapping can hold (i.e. records were appended by
+ * {@link Data#create(String[])}), the file is remapped to the exact length
+ * required, which also grows the underlying file.
+ * <p>
+ * <b>NOTE:</b> A single mapping is limited to {@code Integer.MAX_VALUE} bytes,
+ * so this backend supports database files of up to roughly 11 million records.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see FileAccess
+ */
+class MappedFileAccess extends FileAccess {
+
+	private volatile MappedByteBuffer mappedDatabase;
+
+	private final Object remapLock = new Object();
+
+	/**
+	 * Instantiates a new memory mapped file access, mapping the whole content
+	 * of the database file.
+	 *
+	 * @param databaseLocation
+	 *            the database location
+	 * @throws DatabaseException
+	 *             the invalid database exception
+	 */
+	public MappedFileAccess(final String databaseLocation) throws DatabaseException {
+		super(databaseLocation);
+		try {
+			this.remap(super.getDatabaseLength());
+		} catch (final IOException ioException) {
+			throw new DatabaseException("Error while mapping the database file.");
+		}
+	}
+
+	private void remap(final long length) throws IOException {
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("Database file is too large to be memory mapped.");
+		}
+		synchronized (this.remapLock) {
+			if (this.mappedDatabase == null || this.mappedDatabase.capacity() < length) {
+				this.mappedDatabase = this.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+						length);
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	long getDatabaseLength() {
+		return this.mappedDatabase.capacity();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Bytes past the end of the mapping are treated as past the end of the
+	 * file.
+	 */
+	@Override
+	void readRecords(final ByteBuffer target, final long filePosition) throws IOException {
+		final ByteBuffer source = this.mappedDatabase.duplicate();
+		if (filePosition < 0 || filePosition + target.remaining() > source.capacity()) {
+			throw new EOFException("Unexpected end of the database file.");
+		}
+		source.position((int) filePosition);
+		source.limit((int) filePosition + target.remaining());
+		target.put(source);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The bytes must be written within the mapping, which
+	 * {@link #saveRecords(RecordStore, int[])} grows beforehand.
+	 */
+	@Override
+	void writeRecords(final ByteBuffer source, final long filePosition) throws IOException {
+		final ByteBuffer target = this.mappedDatabase.duplicate();
+		if (filePosition < 0 || filePosition + source.remaining() > target.capacity()) {
+			throw new IOException("Cannot write past the end of the mapped database file.");
+		}
+		target.position((int) filePosition);
+		target.put(source);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The mapping is grown first if a record is saved beyond the current end
+	 * of the file.
+	 */
+	@Override
+	public long saveRecords(final RecordStore store, final int[] recordNumbers)
+			throws IOException {
+		if (recordNumbers.length > 0) {
+			final int lastRecNo = recordNumbers[recordNumbers.length - 1];
+			this.remap(FileAccess.getFilePosition(lastRecNo + 1));
+		}
+		return super.saveRecords(store, recordNumbers);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void force() {
+		this.mappedDatabase.force();
+	}
+
+}
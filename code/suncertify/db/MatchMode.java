@@ -0,0 +1,76 @@
+package suncertify.db;
+
+/**
+ * The supported ways for a criteria value of {@link DB#find(String[])} to
+ * match a field value. Matching ignores case, except with
+ * {@link MatchMode#EXACT}.
+ * <ul>
+ * <li>{@link MatchMode#CONTAINS}</li>
+ * <li>{@link MatchMode#PREFIX}</li>
+ * <li>{@link MatchMode#EXACT}</li>
+ * </ul>
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public enum MatchMode {
+
+	/**
+	 * A field matches if it contains the criteria value anywhere. Searches on
+	 * the name, location and specialties are answered from trigram indexes
+	 * when substring indexing is enabled, otherwise every record is scanned.
+	 */
+	CONTAINS("contains"),
+	/**
+	 * A field matches if it begins with the criteria value, as described by
+	 * the {@link DB} interface. Searches on the name and location are answered
+	 * from prefix indexes.
+	 */
+	PREFIX("prefix"),
+	/**
+	 * A field matches if it is equal to the criteria value, case included.
+	 * Searches on the name and location are answered from hash indexes, which
+	 * are maintained whatever the match mode configured.
+	 */
+	EXACT("exact");
+
+	/** The property value associated with this match mode. */
+	private final String propertyValue;
+
+	/**
+	 * Constructor for {@code MatchMode}. Allows specification for the
+	 * property value corresponding to this mode.
+	 *
+	 * @param propertyValue
+	 *            property value corresponding to this mode.
+	 */
+	private MatchMode(final String propertyValue) {
+		this.propertyValue = propertyValue;
+	}
+
+	/**
+	 * Gets the property value associated with this match mode.
+	 *
+	 * @return the property value
+	 */
+	public String getPropertyValue() {
+		return this.propertyValue;
+	}
+
+	/**
+	 * Returns a {@link MatchMode} for a supplied property value.
+	 *
+	 * @param propertyValue
+	 *            the property value
+	 * @return the {@code MatchMode} corresponding to the supplied value or
+	 *         null if the value is not supported
+	 */
+	public static MatchMode forValue(final String propertyValue) {
+		for (final MatchMode mode : MatchMode.values()) {
+			if (mode.getPropertyValue().equalsIgnoreCase(propertyValue)) {
+				return mode;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,112 @@
+package suncertify.db;
+
+import java.util.Arrays;
+
+import suncertify.domain.RecordState;
+
+/**
+ * Collects the numbers of the valid records matching the criteria of a search
+ * while the {@link RecordStore} is scanned, and optionally their field values
+ * as decoded from the bytes that were matched, together with the version of
+ * those bytes. The scan is stopped as soon as the limit of matching records
+ * is reached.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see Data#find(String[])
+ */
+final class MatchingRecords implements RecordStore.RecordVisitor {
+
+	private final RecordFilter filter;
+
+	private final int limit;
+
+	private int[] recordNumbers = new int[16];
+
+	private long[] recordVersions;
+
+	private String[][] recordData;
+
+	private int count;
+
+	/**
+	 * Creates an empty collection of matching records.
+	 *
+	 * @param filter
+	 *            the filter of the records searched for
+	 */
+	MatchingRecords(final RecordFilter filter) {
+		this(filter, false, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates an empty collection of at most {@code limit} matching records.
+	 *
+	 * @param filter
+	 *            the filter of the records searched for
+	 * @param collectData
+	 *            true if the field values of the matching records are to be
+	 *            collected
+	 * @param limit
+	 *            the number of matching records after which the scan stops
+	 */
+	MatchingRecords(final RecordFilter filter, final boolean collectData, final int limit) {
+		this.filter = filter;
+		this.limit = limit;
+		this.recordData = collectData ? new String[this.recordNumbers.length][] : null;
+		this.recordVersions = collectData ? new long[this.recordNumbers.length] : null;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean visit(final int recNo, final long version, final byte[] record) {
+		if ((record[0] & 0xFF) == RecordState.deleted.getCode()) {
+			return true;
+		}
+		if (this.filter.matches(record, 0)) {
+			if (this.count == this.recordNumbers.length) {
+				final int[] larger = new int[this.count * 2];
+				System.arraycopy(this.recordNumbers, 0, larger, 0, this.count);
+				this.recordNumbers = larger;
+				if (this.recordData != null) {
+					this.recordData = Arrays.copyOf(this.recordData, this.count * 2);
+					this.recordVersions = Arrays.copyOf(this.recordVersions, this.count * 2);
+				}
+			}
+			if (this.recordData != null) {
+				this.recordData[this.count] = RecordCodec.decode(record, 0).getData();
+				this.recordVersions[this.count] = version;
+			}
+			this.recordNumbers[this.count++] = recNo;
+		}
+		return this.count < this.limit;
+	}
+
+	/**
+	 * Gets the numbers of the matching records, in the order they were
+	 * visited.
+	 *
+	 * @return the record numbers
+	 */
+	int[] getRecordNumbers() {
+		final int[] result = new int[this.count];
+		System.arraycopy(this.recordNumbers, 0, result, 0, this.count);
+		return result;
+	}
+
+	/**
+	 * Gets the matching records, with their field values and versions if these
+	 * were collected.
+	 *
+	 * @return the matching records, in the order they were visited
+	 */
+	FoundRecords getFoundRecords() {
+		final int size = this.count;
+		if (this.recordData == null) {
+			return new FoundRecords(Arrays.copyOf(this.recordNumbers, size), new long[size],
+					new String[size][]);
+		}
+		return new FoundRecords(Arrays.copyOf(this.recordNumbers, size), Arrays.copyOf(
+				this.recordVersions, size), Arrays.copyOf(this.recordData, size));
+	}
+}
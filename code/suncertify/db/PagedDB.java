@@ -0,0 +1,238 @@
+package suncertify.db;
+
+/**
+ * Extends the {@link DB} interface with a search returning the matching
+ * records a page at a time, so that a client can show the first matches of a
+ * search without waiting for every match to be found and transferred.
+ * <p>
+ * Pages are requested by record number rather than by position, the search
+ * continuing after the last record number of the previous page, so the
+ * server keeps no state between pages and records created or deleted between
+ * two requests never cause a match to be skipped or returned twice.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public interface PagedDB extends DB {
+
+	/**
+	 * Returns an array of up to {@code limit} record numbers, in ascending
+	 * order, of the records matching the specified criteria whose record
+	 * number is greater than {@code afterRecNo}. Criteria are matched as by
+	 * {@link DB#find(String[])}.
+	 * <p>
+	 * The first page is found with an {@code afterRecNo} of 0, each next page
+	 * with the last record number of the previous page. A page holding fewer
+	 * than {@code limit} record numbers is the last one.
+	 * 
+	 * @param criteria
+	 *            the criteria to be used for finding the applicable record(s)
+	 * @param afterRecNo
+	 *            the record number after which the matching records are
+	 *            returned
+	 * @param limit
+	 *            the maximum number of record numbers to be returned
+	 * @return the array of record numbers that match the specified criteria
+	 * @throws IllegalArgumentException
+	 *             if the limit is not positive
+	 */
+	public int[] find(String[] criteria, int afterRecNo, int limit);
+
+	/**
+	 * Returns up to {@code limit} records matching the specified criteria
+	 * whose record number is greater than {@code afterRecNo}, together with
+	 * their field values. Records are found as by
+	 * {@link #find(String[], int, int)}, but the field values are read in the
+	 * same operation, so no further request per record is needed.
+	 * 
+	 * @param criteria
+	 *            the criteria to be used for finding the applicable record(s)
+	 * @param afterRecNo
+	 *            the record number after which the matching records are
+	 *            returned
+	 * @param limit
+	 *            the maximum number of records to be returned
+	 * @return the matching records in ascending record number order
+	 * @throws IllegalArgumentException
+	 *             if the limit is not positive
+	 */
+	public FoundRecords findRecords(String[] criteria, int afterRecNo, int limit);
+
+	/**
+	 * Returns up to {@code limit} records matching the specified criteria in
+	 * the specified way whose record number is greater than
+	 * {@code afterRecNo}, together with their field values. Allows a single
+	 * search to use a match mode other than the one the database is
+	 * configured with, in particular {@link MatchMode#EXACT} so that only the
+	 * records with equal field values are returned.
+	 * 
+	 * @param criteria
+	 *            the criteria to be used for finding the applicable record(s)
+	 * @param matchMode
+	 *            how a criteria value matches a field value
+	 * @param afterRecNo
+	 *            the record number after which the matching records are
+	 *            returned
+	 * @param limit
+	 *            the maximum number of records to be returned
+	 * @return the matching records in ascending record number order
+	 * @throws IllegalArgumentException
+	 *             if the match mode is null or the limit is not positive
+	 */
+	public FoundRecords findRecords(String[] criteria, MatchMode matchMode, int afterRecNo,
+			int limit);
+
+	/**
+	 * Returns up to {@code limit} records holding all, or any, of the
+	 * specified specialties whose record number is greater than
+	 * {@code afterRecNo}, together with their field values. The specialties
+	 * of a record are the comma separated terms of its specialties field, and
+	 * a specialty is held if it is equal to one of them, ignoring case and
+	 * surrounding spaces.
+	 * 
+	 * @param specialties
+	 *            the specialties searched for
+	 * @param matchAll
+	 *            true if a record must hold every specialty, false if any one
+	 *            suffices
+	 * @param afterRecNo
+	 *            the record number after which the matching records are
+	 *            returned
+	 * @param limit
+	 *            the maximum number of records to be returned
+	 * @return the matching records in ascending record number order
+	 * @throws IllegalArgumentException
+	 *             if no specialty is specified or the limit is not positive
+	 */
+	public FoundRecords findBySpecialties(String[] specialties, boolean matchAll, int afterRecNo,
+			int limit);
+
+	/**
+	 * Returns an array of up to {@code limit} record numbers, in ascending
+	 * order, of the records whose numeric field value lies within the
+	 * specified range and whose record number is greater than
+	 * {@code afterRecNo}. The values of the range are whole numbers of units
+	 * of the field, such as cents for {@link RangeField#RATE}. Records whose
+	 * field does not hold a valid value are never returned.
+	 * 
+	 * @param field
+	 *            the numeric field
+	 * @param minimum
+	 *            the lowest value of the range, inclusive
+	 * @param maximum
+	 *            the highest value of the range, inclusive
+	 * @param afterRecNo
+	 *            the record number after which the matching records are
+	 *            returned
+	 * @param limit
+	 *            the maximum number of record numbers to be returned
+	 * @return the array of record numbers of the matching records
+	 * @throws IllegalArgumentException
+	 *             if the field is null or the limit is not positive
+	 */
+	public int[] findInRange(RangeField field, long minimum, long maximum, int afterRecNo,
+			int limit);
+
+	/**
+	 * Locks a record so that it can only be updated or deleted by this client,
+	 * as {@link DB#lock(int)} does, but waits no longer than the specified
+	 * timeout for the record to be unlocked by a different client. This
+	 * bounds the time a client, and the server thread serving it, waits for
+	 * a popular record.
+	 * 
+	 * @param recNo
+	 *            number of the record to be locked.
+	 * @param timeoutMillis
+	 *            the longest time to wait for the lock in milliseconds
+	 * @return the lock cookie value, or 0 if the record is still locked by a
+	 *         different client when the timeout elapses
+	 * @throws RecordNotFoundException
+	 *             If a specified record does not exist or is marked as deleted
+	 *             in the database file
+	 * @throws IllegalArgumentException
+	 *             if the timeout is negative
+	 */
+	public long tryLock(int recNo, long timeoutMillis) throws RecordNotFoundException;
+
+	/**
+	 * Reads a record from the file together with its version, which changes
+	 * every time the record is changed.
+	 * 
+	 * @param recNo
+	 *            number of the record to be read.
+	 * @return the field values and version of the record
+	 * @throws RecordNotFoundException
+	 *             If a specified record does not exist or is marked as deleted
+	 *             in the database file
+	 */
+	public VersionedRecord readRecord(int recNo) throws RecordNotFoundException;
+
+	/**
+	 * Modifies the fields of a record, as {@link DB#update(int, String[], long)}
+	 * does, if the record still holds the specified version, that is if it has
+	 * not been changed since that version was read. The version is checked and
+	 * the record updated atomically, without the caller locking the record. A
+	 * record locked by a client is not updated, as that client may be about to
+	 * change it.
+	 * <p>
+	 * Versions are those returned by {@link #readRecord(int)} and
+	 * {@link FoundRecords#getRecordVersion(int)}. A version read before the
+	 * database was closed and opened again never matches a record of the
+	 * reopened database, so such a record is never updated.
+	 * 
+	 * @param recNo
+	 *            number of the record to be updated.
+	 * @param expectedVersion
+	 *            the version the record must hold to be updated
+	 * @param data
+	 *            data to be updated
+	 * @return true if the record was updated, false if it no longer holds the
+	 *         expected version or is locked by a client
+	 * @throws RecordNotFoundException
+	 *             If a specified record does not exist or is marked as deleted
+	 *             in the database file
+	 */
+	public boolean compareAndUpdate(int recNo, long expectedVersion, String[] data)
+			throws RecordNotFoundException;
+
+	/**
+	 * Locks several records so that they can only be updated or deleted by
+	 * this client, and returns a single cookie valid for each of them. The
+	 * cookie is used to update or delete each record, and to unlock them all
+	 * with {@link #unlockAll(int[], long)}.
+	 * <p>
+	 * The records are locked in ascending record number order whatever the
+	 * order they are given in, so clients locking overlapping sets of records
+	 * can not deadlock one another. This method blocks until every record is
+	 * locked.
+	 * 
+	 * @param recNos
+	 *            numbers of the records to be locked.
+	 * @return the lock cookie value of every record
+	 * @throws RecordNotFoundException
+	 *             If any of the records does not exist or is marked as deleted
+	 *             in the database file, in which case none of them is locked
+	 * @throws IllegalArgumentException
+	 *             if no record number is given
+	 */
+	public long lockAll(int[] recNos) throws RecordNotFoundException;
+
+	/**
+	 * Releases the locks on several records locked by {@link #lockAll(int[])}.
+	 * Cookie must be the cookie returned when the records were locked;
+	 * otherwise throws SecurityException, once every record locked with the
+	 * cookie has been unlocked.
+	 * 
+	 * @param recNos
+	 *            numbers of the records to be unlocked.
+	 * @param cookie
+	 *            the lock cookie value
+	 * @throws SecurityException
+	 *             if any of the records is locked with a cookie other than
+	 *             cookie
+	 * @throws IllegalArgumentException
+	 *             if no record number is given
+	 */
+	public void unlockAll(int[] recNos, long cookie) throws SecurityException;
+
+}
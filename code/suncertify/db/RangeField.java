@@ -0,0 +1,73 @@
+package suncertify.db;
+
+import suncertify.db.index.RangeIndex;
+import suncertify.domain.Subcontractor;
+
+/**
+ * The numeric fields a search can constrain to a range of values with
+ * {@link PagedDB#findInRange(RangeField, long, long, int, int)}. The records
+ * hold these fields as text, which is parsed into a whole number of units.
+ * <ul>
+ * <li>{@link RangeField#SIZE}</li>
+ * <li>{@link RangeField#RATE}</li>
+ * </ul>
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public enum RangeField {
+
+	/** The number of staff, such as {@code "10"}, in persons. */
+	SIZE(Subcontractor.INDEX_SIZE, 0),
+	/** The hourly rate, such as {@code "$75.00"}, in cents. */
+	RATE(Subcontractor.INDEX_RATE, 2);
+
+	/** The index of the field in the record data. */
+	private final int fieldIndex;
+
+	/** The number of decimal places of a unit of the field. */
+	private final int scale;
+
+	/**
+	 * Constructor for {@code RangeField}.
+	 *
+	 * @param fieldIndex
+	 *            index of the field in the record data
+	 * @param scale
+	 *            the number of decimal places of a unit of the field
+	 */
+	private RangeField(final int fieldIndex, final int scale) {
+		this.fieldIndex = fieldIndex;
+		this.scale = scale;
+	}
+
+	/**
+	 * Gets the index of the field in the record data.
+	 *
+	 * @return the field index
+	 */
+	public int getFieldIndex() {
+		return this.fieldIndex;
+	}
+
+	/**
+	 * Gets the number of decimal places of a unit of the field.
+	 *
+	 * @return the scale
+	 */
+	public int getScale() {
+		return this.scale;
+	}
+
+	/**
+	 * Parses the text of the field into a whole number of units.
+	 *
+	 * @param value
+	 *            the text of the field, trimmed
+	 * @return the number of units, or {@link RangeIndex#INVALID} if the text
+	 *         is not a valid value of the field
+	 */
+	public long parse(final String value) {
+		return RangeIndex.parse(value, this.scale);
+	}
+}
@@ -0,0 +1,54 @@
+package suncertify.db;
+
+import suncertify.db.index.RangeIndex;
+
+/**
+ * Matches the value of a numeric field of a record against a range of
+ * values, parsing the field as it is indexed by {@link RangeIndex}.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see Data#findInRange(RangeField, long, long, int, int)
+ */
+final class RangeMatcher implements RecordFilter {
+
+	private final RangeField field;
+
+	private final long minimum;
+
+	private final long maximum;
+
+	/**
+	 * Creates a matcher for the specified range.
+	 *
+	 * @param field
+	 *            the numeric field
+	 * @param minimum
+	 *            the lowest value of the range, inclusive
+	 * @param maximum
+	 *            the highest value of the range, inclusive
+	 */
+	RangeMatcher(final RangeField field, final long minimum, final long maximum) {
+		this.field = field;
+		this.minimum = minimum;
+		this.maximum = maximum;
+	}
+
+	/**
+	 * Tells whether the value of the field of the encoded record lies within
+	 * the range. The state of the record is not checked.
+	 *
+	 * @param record
+	 *            array holding the encoded record
+	 * @param offset
+	 *            offset of the record's flag byte within the array
+	 * @return true if the value lies within the range
+	 */
+	@Override
+	public boolean matches(final byte[] record, final int offset) {
+		final long value = this.field.parse(RecordCodec.decodeField(record, offset,
+				this.field.getFieldIndex()));
+		return value != RangeIndex.INVALID && value >= this.minimum && value <= this.maximum;
+	}
+
+}
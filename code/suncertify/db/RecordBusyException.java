@@ -0,0 +1,32 @@
+package suncertify.db;
+
+/**
+ * Instances of this exception class are thrown if during an attempt to book a
+ * record it fails to succeed as the record stayed locked by another client for
+ * longer than the booking is willing to wait. The booking may be retried.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public class RecordBusyException extends Exception {
+
+	private static final long serialVersionUID = -2817348860315470528L;
+
+	/**
+	 * Creates a new exception instance.
+	 */
+	public RecordBusyException() {
+		super();
+	}
+
+	/**
+	 * Creates a new exception instance with the specified description.
+	 * 
+	 * @param exceptionText
+	 *            the exception text
+	 */
+	public RecordBusyException(final String exceptionText) {
+		super(exceptionText);
+	}
+
+}
@@ -0,0 +1,143 @@
+package suncertify.db;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import suncertify.domain.DatabaseSchema;
+import suncertify.domain.RecordState;
+import suncertify.domain.Subcontractor;
+
+/**
+ * Converts a {@link Subcontractor} to and from the fixed width record layout
+ * of the database file: a single flag byte holding the {@link RecordState}
+ * followed by each field, space padded to its length in
+ * {@link DatabaseSchema#FIELD_LENGTHS}.
+ * <p>
+ * Encoding writes straight into a caller supplied {@code ByteBuffer} so that
+ * many records can be batched into one buffer and written to the file with a
+ * single call, without any intermediate arrays being allocated per record.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see FileAccess
+ */
+final class RecordCodec {
+
+	/** Number of records held in a buffer used for batched file access. */
+	static final int BATCH_SIZE = 512;
+
+	private static final Charset CHARSET = Charset.forName(FileAccess.ENCODING);
+
+	private static final byte PADDING = 0x20;
+
+	private static final byte UNMAPPABLE = '?';
+
+	/**
+	 * private constructor to prevent creation of a {@code RecordCodec}
+	 * instance.
+	 */
+	private RecordCodec() {
+	}
+
+	/**
+	 * Allocates a buffer large enough to hold {@link #BATCH_SIZE} records.
+	 *
+	 * @return a new, empty batch buffer
+	 */
+	static ByteBuffer allocateBatch() {
+		return ByteBuffer.allocate(RecordCodec.BATCH_SIZE * DatabaseSchema.TOTAL_FIELD_LENGTH);
+	}
+
+	/**
+	 * Encodes the specified {@code Subcontractor} at the current position of
+	 * the target buffer, advancing the position by
+	 * {@link DatabaseSchema#TOTAL_FIELD_LENGTH}.
+	 * <p>
+	 * Field values longer than their schema length are truncated and
+	 * characters that cannot be represented in US-ASCII are written as
+	 * {@code '?'}.
+	 *
+	 * @param contractor
+	 *            the {@code Subcontractor} to be encoded
+	 * @param target
+	 *            the buffer receiving the record
+	 */
+	static void encode(final Subcontractor contractor, final ByteBuffer target) {
+		target.put((byte) contractor.getState().getCode());
+		RecordCodec.putField(contractor.getName(), DatabaseSchema.FIELD_LENGTH_NAME, target);
+		RecordCodec.putField(contractor.getLocation(), DatabaseSchema.FIELD_LENGTH_LOCATION,
+				target);
+		RecordCodec.putField(contractor.getSpecialties(), DatabaseSchema.FIELD_LENGTH_SPECIALTIES,
+				target);
+		RecordCodec.putField(contractor.getSize(), DatabaseSchema.FIELD_LENGTH_SIZE, target);
+		RecordCodec.putField(contractor.getRate(), DatabaseSchema.FIELD_LENGTH_RATE, target);
+		RecordCodec.putField(contractor.getOwner(), DatabaseSchema.FIELD_LENGTH_OWNER, target);
+	}
+
+	private static void putField(final String value, final int fieldLength,
+			final ByteBuffer target) {
+		final int valueLength = value == null ? 0 : Math.min(value.length(), fieldLength);
+		for (int i = 0; i < valueLength; i++) {
+			final char character = value.charAt(i);
+			target.put(character < 0x80 ? (byte) character : RecordCodec.UNMAPPABLE);
+		}
+		for (int i = valueLength; i < fieldLength; i++) {
+			target.put(RecordCodec.PADDING);
+		}
+	}
+
+	/**
+	 * Decodes the record starting at the specified offset of the byte array.
+	 *
+	 * @param record
+	 *            array holding one or more encoded records
+	 * @param offset
+	 *            offset of the record's flag byte within the array
+	 * @return the decoded {@code Subcontractor}
+	 */
+	static Subcontractor decode(final byte[] record, final int offset) {
+		final int flag = record[offset] & 0xFF;
+		final String[] recordData = new String[DatabaseSchema.FIELD_COUNT];
+		int fieldOffset = offset + DatabaseSchema.FIELD_LENGTH_STATE;
+		for (int i = 0; i < DatabaseSchema.FIELD_COUNT; i++) {
+			recordData[i] = RecordCodec.getField(record, fieldOffset, DatabaseSchema.FIELD_LENGTHS[i]);
+			fieldOffset += DatabaseSchema.FIELD_LENGTHS[i];
+		}
+		return new Subcontractor(RecordState.forValue(flag), recordData);
+	}
+
+	/**
+	 * Decodes a single field of the record starting at the specified offset
+	 * of the byte array.
+	 *
+	 * @param record
+	 *            array holding one or more encoded records
+	 * @param offset
+	 *            offset of the record's flag byte within the array
+	 * @param fieldIndex
+	 *            index of the field in the record data
+	 * @return the decoded and trimmed field value
+	 */
+	static String decodeField(final byte[] record, final int offset, final int fieldIndex) {
+		int fieldOffset = offset + DatabaseSchema.FIELD_LENGTH_STATE;
+		for (int i = 0; i < fieldIndex; i++) {
+			fieldOffset += DatabaseSchema.FIELD_LENGTHS[i];
+		}
+		return RecordCodec.getField(record, fieldOffset, DatabaseSchema.FIELD_LENGTHS[fieldIndex]);
+	}
+
+	private static String getField(final byte[] record, final int offset, final int fieldLength) {
+		// Trim before creating the String so only a single String is created
+		// per field, matching the result of String.trim()
+		int start = offset;
+		int end = offset + fieldLength;
+		while (start < end && (record[start] & 0xFF) <= RecordCodec.PADDING) {
+			start++;
+		}
+		while (end > start && (record[end - 1] & 0xFF) <= RecordCodec.PADDING) {
+			end--;
+		}
+		return new String(record, start, end - start, RecordCodec.CHARSET);
+	}
+
+}
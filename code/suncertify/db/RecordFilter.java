@@ -0,0 +1,25 @@
+package suncertify.db;
+
+/**
+ * Tells whether a record, in its encoded form, is one that a search is
+ * looking for.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see MatchingRecords
+ */
+interface RecordFilter {
+
+	/**
+	 * Tells whether the encoded record is one the search is looking for. The
+	 * state of the record is not checked.
+	 *
+	 * @param record
+	 *            array holding the encoded record
+	 * @param offset
+	 *            offset of the record's flag byte within the array
+	 * @return true if the record matches the search
+	 */
+	boolean matches(byte[] record, int offset);
+
+}
@@ -0,0 +1,93 @@
+package suncertify.db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+import suncertify.domain.DatabaseSchema;
+
+/**
+ * Reads a range of consecutive records of the database file into the
+ * {@link RecordStore} on a {@link java.util.concurrent.ForkJoinPool}.
+ * <p>
+ * The range is split in halves, always on a record boundary, until it holds
+ * no more than {@link RecordCodec#BATCH_SIZE} records. Such a chunk is read
+ * with a single positional read into a buffer of its own and copied into the
+ * store, so chunks are processed independently of one another.
+ * <p>
+ * The first error reading the file is kept in the shared failure reference
+ * rather than thrown, the remaining chunks are then skipped.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see FileAccess#loadAllRecords(RecordStore)
+ */
+final class RecordLoadingTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private final FileAccess fileAccess;
+
+	private final int firstRecNo;
+
+	private final int recordCount;
+
+	private final RecordStore store;
+
+	private final AtomicReference<IOException> failure;
+
+	/**
+	 * Creates a task loading the specified range of records.
+	 *
+	 * @param fileAccess
+	 *            the file access used to read the records
+	 * @param firstRecNo
+	 *            the record number of the first record of the range
+	 * @param recordCount
+	 *            the number of records in the range
+	 * @param store
+	 *            the store receiving the records
+	 * @param failure
+	 *            receives the first error reading the database file
+	 */
+	RecordLoadingTask(final FileAccess fileAccess, final int firstRecNo, final int recordCount,
+			final RecordStore store, final AtomicReference<IOException> failure) {
+		this.fileAccess = fileAccess;
+		this.firstRecNo = firstRecNo;
+		this.recordCount = recordCount;
+		this.store = store;
+		this.failure = failure;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void compute() {
+		if (this.recordCount <= RecordCodec.BATCH_SIZE) {
+			this.loadChunk();
+		} else {
+			final int firstHalf = this.recordCount / 2;
+			RecursiveAction.invokeAll(new RecordLoadingTask(this.fileAccess, this.firstRecNo,
+					firstHalf, this.store, this.failure), new RecordLoadingTask(this.fileAccess,
+					this.firstRecNo + firstHalf, this.recordCount - firstHalf, this.store,
+					this.failure));
+		}
+	}
+
+	private void loadChunk() {
+		if (this.failure.get() != null) {
+			return;
+		}
+		final ByteBuffer chunk = ByteBuffer.allocate(this.recordCount
+				* DatabaseSchema.TOTAL_FIELD_LENGTH);
+		try {
+			this.fileAccess.readRecords(chunk, FileAccess.getFilePosition(this.firstRecNo));
+		} catch (final IOException ioException) {
+			this.failure.compareAndSet(null, ioException);
+			return;
+		}
+		chunk.flip();
+		this.store.load(this.firstRecNo, chunk);
+	}
+
+}
@@ -0,0 +1,170 @@
+package suncertify.db;
+
+import suncertify.db.index.CaseFolding;
+import suncertify.domain.DatabaseSchema;
+
+/**
+ * Matches the criteria of a search against records in their encoded form,
+ * so that a search scanning every record decodes none of them.
+ * <p>
+ * The criteria are case folded once, when the matcher is created. Each field
+ * is then compared byte by byte, folding the case of the record bytes through
+ * a lookup table, which gives the same result as comparing the lower case
+ * form of the decoded and trimmed field but without creating a
+ * {@code String} per field or a {@code String[]} per record. Matching a
+ * record allocates nothing. Case is folded by {@link CaseFolding}, the same
+ * way as by the indexes. With {@link MatchMode#EXACT} the case is kept and a
+ * field matches if its trimmed bytes are those of the criteria value.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see RecordCodec
+ */
+final class RecordMatcher implements RecordFilter {
+
+	private static final int PADDING = 0x20;
+
+	private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+	private final MatchMode matchMode;
+
+	/**
+	 * The case folded criteria, or the criteria as encoded with
+	 * {@link MatchMode#EXACT}, null for any field not constrained.
+	 */
+	private final byte[][] criteria = new byte[DatabaseSchema.FIELD_COUNT][];
+
+	/** Offset of each field from the start of the record. */
+	private final int[] fieldOffsets = new int[DatabaseSchema.FIELD_COUNT];
+
+	/** Whether a criteria value holds a character no record can hold. */
+	private final boolean unmatchable;
+
+	/**
+	 * Creates a matcher for the specified criteria.
+	 *
+	 * @param criteria
+	 *            the search criteria, one value per field, a null value
+	 *            matching any field value
+	 * @param matchMode
+	 *            how a criteria value matches a field value
+	 */
+	RecordMatcher(final String[] criteria, final MatchMode matchMode) {
+		this.matchMode = matchMode;
+		boolean anyUnmatchable = false;
+		int fieldOffset = DatabaseSchema.FIELD_LENGTH_STATE;
+		for (int i = 0; i < DatabaseSchema.FIELD_COUNT; i++) {
+			this.fieldOffsets[i] = fieldOffset;
+			fieldOffset += DatabaseSchema.FIELD_LENGTHS[i];
+			if (criteria[i] != null) {
+				this.criteria[i] = matchMode == MatchMode.EXACT ? RecordMatcher
+						.encodeCriteria(criteria[i]) : CaseFolding.foldCriteria(criteria[i]);
+				anyUnmatchable |= this.criteria[i] == null;
+			}
+		}
+		this.unmatchable = anyUnmatchable;
+	}
+
+	/**
+	 * Encodes a criteria value into the bytes of a field equal to it, mapping
+	 * the replacement character to {@link CaseFolding#NON_ASCII} as any byte
+	 * outside of US-ASCII is decoded to it.
+	 *
+	 * @return the encoded bytes, or null if the value holds a character that
+	 *         no record can hold
+	 */
+	private static byte[] encodeCriteria(final String value) {
+		final byte[] encoded = new byte[value.length()];
+		for (int i = 0; i < encoded.length; i++) {
+			final char character = value.charAt(i);
+			if (character < CaseFolding.NON_ASCII) {
+				encoded[i] = (byte) character;
+			} else if (character == RecordMatcher.REPLACEMENT_CHARACTER) {
+				encoded[i] = (byte) CaseFolding.NON_ASCII;
+			} else {
+				return null;
+			}
+		}
+		return encoded;
+	}
+
+	/**
+	 * Tells whether the encoded record matches every criteria value. The
+	 * state of the record is not checked.
+	 *
+	 * @param record
+	 *            array holding the encoded record
+	 * @param offset
+	 *            offset of the record's flag byte within the array
+	 * @return true if the record matches the criteria
+	 */
+	@Override
+	public boolean matches(final byte[] record, final int offset) {
+		if (this.unmatchable) {
+			return false;
+		}
+		for (int i = 0; i < DatabaseSchema.FIELD_COUNT; i++) {
+			final byte[] criterion = this.criteria[i];
+			if (criterion != null
+					&& !this.matchesField(record, offset + this.fieldOffsets[i],
+							DatabaseSchema.FIELD_LENGTHS[i], criterion)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean matchesField(final byte[] record, final int fieldOffset,
+			final int fieldLength, final byte[] criterion) {
+		// Trim the field the way RecordCodec does when decoding it
+		int start = fieldOffset;
+		int end = fieldOffset + fieldLength;
+		while (start < end && (record[start] & 0xFF) <= RecordMatcher.PADDING) {
+			start++;
+		}
+		while (end > start && (record[end - 1] & 0xFF) <= RecordMatcher.PADDING) {
+			end--;
+		}
+		if (this.matchMode == MatchMode.EXACT) {
+			return end - start == criterion.length
+					&& RecordMatcher.regionEquals(record, start, criterion);
+		}
+		if (this.matchMode == MatchMode.PREFIX) {
+			return RecordMatcher.regionMatches(record, start, end, criterion);
+		}
+		for (int position = start; position <= end - criterion.length; position++) {
+			if (RecordMatcher.regionMatches(record, position, end, criterion)) {
+				return true;
+			}
+		}
+		return criterion.length == 0;
+	}
+
+	private static boolean regionMatches(final byte[] record, final int position, final int end,
+			final byte[] criterion) {
+		if (end - position < criterion.length) {
+			return false;
+		}
+		for (int i = 0; i < criterion.length; i++) {
+			if (CaseFolding.fold(record[position + i]) != criterion[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean regionEquals(final byte[] record, final int position,
+			final byte[] criterion) {
+		for (int i = 0; i < criterion.length; i++) {
+			// Any byte outside of US-ASCII is decoded as the replacement
+			// character, so it is compared as such
+			final int value = record[position + i] & 0xFF;
+			final int decoded = value < CaseFolding.NON_ASCII ? value : CaseFolding.NON_ASCII;
+			if (decoded != (criterion[i] & 0xFF)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,73 @@
+package suncertify.db;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scans a range of records of the {@link RecordStore} for those matching the
+ * criteria of a search on a {@link java.util.concurrent.ForkJoinPool}.
+ * <p>
+ * The range is split in halves, always on a segment boundary of the store,
+ * until it spans a single segment. Each segment is scanned independently
+ * into its own {@link MatchingRecords}, and the results of the two halves
+ * are concatenated, so the record numbers are returned in ascending order
+ * just as by a serial scan.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see Data#find(String[])
+ */
+final class RecordScanTask extends RecursiveTask<int[]> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final RecordStore store;
+
+	private final RecordMatcher matcher;
+
+	private final int firstSegment;
+
+	private final int segmentCount;
+
+	/**
+	 * Creates a task scanning the specified segments.
+	 *
+	 * @param store
+	 *            the store holding the records
+	 * @param matcher
+	 *            the matcher of the search criteria
+	 * @param firstSegment
+	 *            the index of the first segment of the range
+	 * @param segmentCount
+	 *            the number of segments in the range
+	 */
+	RecordScanTask(final RecordStore store, final RecordMatcher matcher, final int firstSegment,
+			final int segmentCount) {
+		this.store = store;
+		this.matcher = matcher;
+		this.firstSegment = firstSegment;
+		this.segmentCount = segmentCount;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected int[] compute() {
+		if (this.segmentCount == 1) {
+			final MatchingRecords matchFound = new MatchingRecords(this.matcher);
+			final int firstRecNo = this.firstSegment * RecordStore.SEGMENT_RECORDS + 1;
+			this.store.scan(firstRecNo, firstRecNo + RecordStore.SEGMENT_RECORDS - 1, matchFound);
+			return matchFound.getRecordNumbers();
+		}
+		final int firstHalf = this.segmentCount / 2;
+		final RecordScanTask secondTask = new RecordScanTask(this.store, this.matcher,
+				this.firstSegment + firstHalf, this.segmentCount - firstHalf);
+		secondTask.fork();
+		final int[] first = new RecordScanTask(this.store, this.matcher, this.firstSegment,
+				firstHalf).compute();
+		final int[] second = secondTask.join();
+		final int[] result = new int[first.length + second.length];
+		System.arraycopy(first, 0, result, 0, first.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+
+}
@@ -0,0 +1,485 @@
+package suncertify.db;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import suncertify.domain.DatabaseSchema;
+import suncertify.domain.RecordState;
+import suncertify.domain.Subcontractor;
+
+/**
+ * Holds the cached records of {@link Data} outside of the Java heap, in a
+ * table indexed directly by record number.
+ * <p>
+ * Each record occupies a fixed width slot of
+ * {@link DatabaseSchema#TOTAL_FIELD_LENGTH} bytes laid out exactly as in the
+ * database file, so records are copied to and from the file without being
+ * decoded. A {@link Subcontractor} or {@code String[]} is only created when a
+ * record is handed out by {@link Data}. The slots are allocated in direct
+ * buffers of {@link #SEGMENT_RECORDS} records, so the garbage collector only
+ * sees a handful of buffer objects however many records are held, and the
+ * table grows a segment at a time as records are created.
+ * <p>
+ * Reads never lock. Every slot has a stamp used as a sequence lock: a stamp of
+ * 0 means the slot holds no record yet, an odd stamp means the slot is being
+ * written and an even stamp identifies the version of the record in the slot.
+ * A writer makes the stamp odd, writes the slot and advances the stamp to the
+ * next even value. A reader copies the slot between two reads of the stamp
+ * and retries if the stamp changed, so it never returns a half written
+ * record.
+ * <p>
+ * The version of a record holds the epoch of the store in its high 32 bits and
+ * the stamp of its slot in its low 32 bits. The epoch is taken from the clock,
+ * in seconds, when the store is created. A store replacing another one, on
+ * reinitialization or on restart, starts its stamps over but has a later
+ * epoch, so the versions it hands out are not those of the store it replaced.
+ * <p>
+ * <b>NOTE:</b> The direct buffers count against the maximum direct memory of
+ * the JVM ({@code -XX:MaxDirectMemorySize}), roughly 183MB per million
+ * records.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see Data
+ */
+final class RecordStore {
+
+	/** Number of record slots held by each segment. */
+	static final int SEGMENT_RECORDS = 4096;
+
+	private static final int SEGMENT_SHIFT = 12;
+
+	private static final int NOT_RESIDENT = 0;
+
+	private static final int EPOCH_SHIFT = 32;
+
+	private static final long UNSIGNED_INT_MASK = 0xFFFFFFFFL;
+
+	/** The epoch of the store created last. */
+	private static final AtomicLong LAST_EPOCH = new AtomicLong();
+
+	private final long epoch = RecordStore.nextEpoch();
+
+	private final Object growLock = new Object();
+
+	private final AtomicInteger highestRecNo = new AtomicInteger();
+
+	private volatile Segment[] segments = new Segment[0];
+
+	/**
+	 * Receives the records visited by {@link RecordStore#scan(RecordVisitor)},
+	 * and can stop the scan early.
+	 */
+	interface RecordVisitor {
+
+		/**
+		 * Visits a single record.
+		 *
+		 * @param recNo
+		 *            the record number
+		 * @param version
+		 *            the version of the record, as returned by
+		 *            {@link RecordStore#read(int, byte[])}
+		 * @param record
+		 *            the encoded record, only valid until this method returns
+		 * @return true to go on with the scan, false to stop it
+		 */
+		boolean visit(int recNo, long version, byte[] record);
+	}
+
+	/**
+	 * A direct buffer of record slots and the stamps of those slots.
+	 */
+	private static final class Segment {
+
+		private final ByteBuffer slots = ByteBuffer.allocateDirect(RecordStore.SEGMENT_RECORDS
+				* DatabaseSchema.TOTAL_FIELD_LENGTH);
+
+		private final AtomicIntegerArray stamps = new AtomicIntegerArray(
+				RecordStore.SEGMENT_RECORDS);
+
+		/**
+		 * Copies the slot into the target array, retrying until no write
+		 * overlapped the copy.
+		 *
+		 * @return the stamp of the copied record, or {@code NOT_RESIDENT}
+		 */
+		private int read(final int slot, final byte[] target) {
+			final ByteBuffer source = this.slots.duplicate();
+			while (true) {
+				final int stamp = this.stamps.get(slot);
+				if (stamp == RecordStore.NOT_RESIDENT) {
+					return stamp;
+				}
+				if ((stamp & 1) == 0) {
+					source.position(RecordStore.getSlotOffset(slot));
+					source.get(target, 0, DatabaseSchema.TOTAL_FIELD_LENGTH);
+					// Java 7 has no standalone load fence, the atomic compare
+					// keeps the copy from being ordered after the validation
+					if (this.stamps.compareAndSet(slot, stamp, stamp)) {
+						return stamp;
+					}
+				}
+				Thread.yield();
+			}
+		}
+
+		/**
+		 * Makes the stamp of the slot odd, waiting for any other writer of the
+		 * slot to finish first.
+		 *
+		 * @param onlyIfAbsent
+		 *            true if the slot must not be written once it holds a
+		 *            record
+		 * @return the stamp before the write, or -1 if the slot must not be
+		 *         written
+		 */
+		private int beginWrite(final int slot, final boolean onlyIfAbsent) {
+			while (true) {
+				final int stamp = this.stamps.get(slot);
+				if (onlyIfAbsent && stamp != RecordStore.NOT_RESIDENT) {
+					return -1;
+				}
+				if ((stamp & 1) == 0 && this.stamps.compareAndSet(slot, stamp, stamp + 1)) {
+					return stamp;
+				}
+				Thread.yield();
+			}
+		}
+
+		private void endWrite(final int slot, final int previousStamp) {
+			final int stamp = (previousStamp + 2) & Integer.MAX_VALUE;
+			this.stamps.set(slot, stamp == RecordStore.NOT_RESIDENT ? 2 : stamp);
+		}
+	}
+
+	/**
+	 * Gets an epoch later than that of every store created before, the
+	 * current time in seconds unless stores are created faster than that. The
+	 * epoch fits in 32 bits until 2106.
+	 */
+	private static long nextEpoch() {
+		while (true) {
+			final long last = RecordStore.LAST_EPOCH.get();
+			final long next = Math.max(System.currentTimeMillis() / 1000, last + 1)
+					& RecordStore.UNSIGNED_INT_MASK;
+			if (RecordStore.LAST_EPOCH.compareAndSet(last, next)) {
+				return next;
+			}
+		}
+	}
+
+	/**
+	 * Combines a stamp with the epoch of the store into a record version.
+	 */
+	private long toVersion(final int stamp) {
+		return stamp == RecordStore.NOT_RESIDENT ? RecordStore.NOT_RESIDENT
+				: (this.epoch << RecordStore.EPOCH_SHIFT)
+						| (stamp & RecordStore.UNSIGNED_INT_MASK);
+	}
+
+	private Segment getSegment(final int recNo) {
+		final int index = (recNo - 1) >>> RecordStore.SEGMENT_SHIFT;
+		final Segment[] current = this.segments;
+		return index < current.length ? current[index] : null;
+	}
+
+	private Segment getOrCreateSegment(final int recNo) {
+		final Segment segment = this.getSegment(recNo);
+		if (segment != null) {
+			return segment;
+		}
+		final int index = (recNo - 1) >>> RecordStore.SEGMENT_SHIFT;
+		synchronized (this.growLock) {
+			final Segment[] current = this.segments;
+			if (index < current.length && current[index] != null) {
+				return current[index];
+			}
+			// The array is copied on every change, so that readers never see
+			// an element written after the array was published
+			final Segment[] copy = new Segment[Math.max(index + 1, current.length)];
+			System.arraycopy(current, 0, copy, 0, current.length);
+			copy[index] = new Segment();
+			this.segments = copy;
+			return copy[index];
+		}
+	}
+
+	private static int getSlot(final int recNo) {
+		return (recNo - 1) & (RecordStore.SEGMENT_RECORDS - 1);
+	}
+
+	private static int getSlotOffset(final int slot) {
+		return slot * DatabaseSchema.TOTAL_FIELD_LENGTH;
+	}
+
+	private void updateHighestRecNo(final int recNo) {
+		int highest;
+		do {
+			highest = this.highestRecNo.get();
+		} while (highest < recNo && !this.highestRecNo.compareAndSet(highest, recNo));
+	}
+
+	/**
+	 * Gets the highest record number put into the store.
+	 *
+	 * @return the highest record number, or 0 if the store is empty
+	 */
+	int getHighestRecNo() {
+		return this.highestRecNo.get();
+	}
+
+	/**
+	 * Tells whether the specified record is held by the store.
+	 *
+	 * @param recNo
+	 *            the record number
+	 * @return true if the record is resident
+	 */
+	boolean isResident(final int recNo) {
+		final Segment segment = recNo > 0 ? this.getSegment(recNo) : null;
+		return segment != null
+				&& segment.stamps.get(RecordStore.getSlot(recNo)) != RecordStore.NOT_RESIDENT;
+	}
+
+	/**
+	 * Gets the state of the specified record without decoding its fields.
+	 *
+	 * @param recNo
+	 *            the record number
+	 * @return the record state, or null if the record is not resident
+	 */
+	RecordState getState(final int recNo) {
+		final Segment segment = recNo > 0 ? this.getSegment(recNo) : null;
+		if (segment == null) {
+			return null;
+		}
+		final int slot = RecordStore.getSlot(recNo);
+		while (true) {
+			final int stamp = segment.stamps.get(slot);
+			if (stamp == RecordStore.NOT_RESIDENT) {
+				return null;
+			}
+			if ((stamp & 1) == 0) {
+				final int flag = segment.slots.get(RecordStore.getSlotOffset(slot)) & 0xFF;
+				if (segment.stamps.compareAndSet(slot, stamp, stamp)) {
+					return RecordState.forValue(flag);
+				}
+			}
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * Decodes the specified record into a new {@code Subcontractor}.
+	 *
+	 * @param recNo
+	 *            the record number
+	 * @return the record, or null if the record is not resident
+	 */
+	Subcontractor get(final int recNo) {
+		final Segment segment = recNo > 0 ? this.getSegment(recNo) : null;
+		if (segment == null) {
+			return null;
+		}
+		final byte[] record = new byte[DatabaseSchema.TOTAL_FIELD_LENGTH];
+		if (segment.read(RecordStore.getSlot(recNo), record) == RecordStore.NOT_RESIDENT) {
+			return null;
+		}
+		return RecordCodec.decode(record, 0);
+	}
+
+	/**
+	 * Copies the encoded bytes of the specified record into an array, and
+	 * returns the version of the copied record. The version changes every
+	 * time the record is written, so a record still holding the version
+	 * returned has not been changed since.
+	 *
+	 * @param recNo
+	 *            the record number
+	 * @param record
+	 *            array receiving the record
+	 * @return the version of the record, or 0 if the record is not resident
+	 */
+	long read(final int recNo, final byte[] record) {
+		final Segment segment = recNo > 0 ? this.getSegment(recNo) : null;
+		if (segment == null) {
+			return RecordStore.NOT_RESIDENT;
+		}
+		return this.toVersion(segment.read(RecordStore.getSlot(recNo), record));
+	}
+
+	/**
+	 * Copies the encoded bytes of the specified record to the current position
+	 * of the target buffer.
+	 *
+	 * @param recNo
+	 *            the record number
+	 * @param target
+	 *            the buffer receiving the record
+	 * @param record
+	 *            array used to copy the record
+	 * @return true if the record was copied, false if it is not resident
+	 */
+	boolean copyRecord(final int recNo, final ByteBuffer target, final byte[] record) {
+		final Segment segment = recNo > 0 ? this.getSegment(recNo) : null;
+		if (segment == null
+				|| segment.read(RecordStore.getSlot(recNo), record) == RecordStore.NOT_RESIDENT) {
+			return false;
+		}
+		target.put(record, 0, DatabaseSchema.TOTAL_FIELD_LENGTH);
+		return true;
+	}
+
+	/**
+	 * Visits every resident record in ascending record number order, reading
+	 * the segments sequentially, until the visitor stops the scan.
+	 *
+	 * @param visitor
+	 *            the visitor receiving the records
+	 */
+	void scan(final RecordVisitor visitor) {
+		this.scan(1, this.highestRecNo.get(), visitor);
+	}
+
+	/**
+	 * Visits every resident record of a range in ascending record number
+	 * order, reading the segments sequentially, until the visitor stops the
+	 * scan. Ranges not overlapping one another can be scanned concurrently.
+	 *
+	 * @param firstRecNo
+	 *            the record number of the first record of the range
+	 * @param lastRecNo
+	 *            the record number of the last record of the range
+	 * @param visitor
+	 *            the visitor receiving the records
+	 */
+	void scan(final int firstRecNo, final int lastRecNo, final RecordVisitor visitor) {
+		final byte[] record = new byte[DatabaseSchema.TOTAL_FIELD_LENGTH];
+		final int last = Math.min(lastRecNo, this.highestRecNo.get());
+		final Segment[] current = this.segments;
+		int recNo = Math.max(firstRecNo, 1);
+		while (recNo <= last) {
+			final int index = (recNo - 1) >>> RecordStore.SEGMENT_SHIFT;
+			if (index >= current.length) {
+				return;
+			}
+			final Segment segment = current[index];
+			int slot = RecordStore.getSlot(recNo);
+			if (segment == null) {
+				recNo += RecordStore.SEGMENT_RECORDS - slot;
+				continue;
+			}
+			for (; slot < RecordStore.SEGMENT_RECORDS && recNo <= last; slot++, recNo++) {
+				final int stamp = segment.read(slot, record);
+				if (stamp != RecordStore.NOT_RESIDENT
+						&& !visitor.visit(recNo, this.toVersion(stamp), record)) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Visits the specified records in the order given, skipping those that are
+	 * not resident, until the visitor stops the scan.
+	 *
+	 * @param recordNumbers
+	 *            the numbers of the records to visit
+	 * @param visitor
+	 *            the visitor receiving the records
+	 */
+	void scan(final int[] recordNumbers, final RecordVisitor visitor) {
+		this.scan(recordNumbers, 0, visitor);
+	}
+
+	/**
+	 * Visits the specified records in the order given, starting at an index of
+	 * the array and skipping those that are not resident, until the visitor
+	 * stops the scan.
+	 *
+	 * @param recordNumbers
+	 *            the numbers of the records to visit
+	 * @param fromIndex
+	 *            the index of the first record number to visit
+	 * @param visitor
+	 *            the visitor receiving the records
+	 */
+	void scan(final int[] recordNumbers, final int fromIndex, final RecordVisitor visitor) {
+		final byte[] record = new byte[DatabaseSchema.TOTAL_FIELD_LENGTH];
+		for (int i = fromIndex; i < recordNumbers.length; i++) {
+			final int recNo = recordNumbers[i];
+			final Segment segment = recNo > 0 ? this.getSegment(recNo) : null;
+			if (segment != null) {
+				final int stamp = segment.read(RecordStore.getSlot(recNo), record);
+				if (stamp != RecordStore.NOT_RESIDENT
+						&& !visitor.visit(recNo, this.toVersion(stamp), record)) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Encodes the specified {@code Subcontractor} into the slot of the record,
+	 * replacing any record held there.
+	 *
+	 * @param recNo
+	 *            the record number
+	 * @param contractor
+	 *            the new state of the record
+	 */
+	void put(final int recNo, final Subcontractor contractor) {
+		final Segment segment = this.getOrCreateSegment(recNo);
+		final int slot = RecordStore.getSlot(recNo);
+		final int stamp = segment.beginWrite(slot, false);
+		try {
+			final ByteBuffer target = segment.slots.duplicate();
+			target.position(RecordStore.getSlotOffset(slot));
+			RecordCodec.encode(contractor, target);
+		} finally {
+			segment.endWrite(slot, stamp);
+		}
+		this.updateHighestRecNo(recNo);
+	}
+
+	/**
+	 * Copies consecutive encoded records, as read from the database file, into
+	 * their slots. Records already resident are left unchanged, as their
+	 * cached state is at least as recent as the file.
+	 *
+	 * @param firstRecNo
+	 *            the record number of the first record in the source buffer
+	 * @param source
+	 *            buffer whose remaining bytes hold one or more whole records
+	 */
+	void load(final int firstRecNo, final ByteBuffer source) {
+		final ByteBuffer records = source.duplicate();
+		int recNo = firstRecNo;
+		Segment segment = null;
+		while (records.hasRemaining()) {
+			final int slot = RecordStore.getSlot(recNo);
+			if (segment == null || slot == 0) {
+				segment = this.getOrCreateSegment(recNo);
+			}
+			records.limit(records.position() + DatabaseSchema.TOTAL_FIELD_LENGTH);
+			final int stamp = segment.beginWrite(slot, true);
+			if (stamp == RecordStore.NOT_RESIDENT) {
+				try {
+					final ByteBuffer target = segment.slots.duplicate();
+					target.position(RecordStore.getSlotOffset(slot));
+					target.put(records);
+				} finally {
+					segment.endWrite(slot, stamp);
+				}
+			}
+			records.position(records.limit());
+			records.limit(source.limit());
+			recNo++;
+		}
+		this.updateHighestRecNo(recNo - 1);
+	}
+
+}
@@ -0,0 +1,60 @@
+package suncertify.db;
+
+import java.util.Set;
+
+import suncertify.db.index.SpecialtyIndex;
+import suncertify.domain.Subcontractor;
+
+/**
+ * Matches the specialties of a record against those a search is looking for,
+ * term by term as they are indexed by {@link SpecialtyIndex}, ignoring case.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see Data#findBySpecialties(String[], boolean, int, int)
+ */
+final class SpecialtyMatcher implements RecordFilter {
+
+	/** The terms searched for, null for any that no record can hold. */
+	private final String[] terms;
+
+	private final boolean matchAll;
+
+	/**
+	 * Creates a matcher for the specified specialties.
+	 *
+	 * @param specialties
+	 *            the specialties searched for
+	 * @param matchAll
+	 *            true if a record must hold every specialty, false if any one
+	 *            suffices
+	 */
+	SpecialtyMatcher(final String[] specialties, final boolean matchAll) {
+		this.terms = SpecialtyIndex.getCriteriaTerms(specialties);
+		this.matchAll = matchAll;
+	}
+
+	/**
+	 * Tells whether the encoded record holds all, or any, of the specialties.
+	 * The state of the record is not checked.
+	 *
+	 * @param record
+	 *            array holding the encoded record
+	 * @param offset
+	 *            offset of the record's flag byte within the array
+	 * @return true if the record holds the specialties
+	 */
+	@Override
+	public boolean matches(final byte[] record, final int offset) {
+		final Set<String> recordTerms = SpecialtyIndex.getTerms(RecordCodec.decodeField(record,
+				offset, Subcontractor.INDEX_SPECIALTIES));
+		for (final String term : this.terms) {
+			final boolean held = term != null && recordTerms.contains(term);
+			if (held != this.matchAll) {
+				return held;
+			}
+		}
+		return this.matchAll;
+	}
+
+}
@@ -0,0 +1,65 @@
+package suncertify.db;
+
+/**
+ * The supported storage backends used to access the database file.
+ * <ul>
+ * <li>{@link StorageMode#RANDOM_ACCESS}</li>
+ * <li>{@link StorageMode#MEMORY_MAPPED}</li>
+ * </ul>
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public enum StorageMode {
+
+	/**
+	 * Records are read and written through a {@code RandomAccessFile}, seeking
+	 * to the position of each record.
+	 */
+	RANDOM_ACCESS("randomAccess"),
+	/**
+	 * Records are read and written directly on a memory mapped region of the
+	 * database file, without seeking.
+	 */
+	MEMORY_MAPPED("memoryMapped");
+
+	/** The property value associated with this storage mode. */
+	private final String propertyValue;
+
+	/**
+	 * Constructor for {@code StorageMode}. Allows specification for the
+	 * property value corresponding to this mode.
+	 *
+	 * @param propertyValue
+	 *            property value corresponding to this mode.
+	 */
+	private StorageMode(final String propertyValue) {
+		this.propertyValue = propertyValue;
+	}
+
+	/**
+	 * Gets the property value associated with this storage mode.
+	 *
+	 * @return the property value
+	 */
+	public String getPropertyValue() {
+		return this.propertyValue;
+	}
+
+	/**
+	 * Returns a {@link StorageMode} for a supplied property value.
+	 *
+	 * @param propertyValue
+	 *            the property value
+	 * @return the {@code StorageMode} corresponding to the supplied value or
+	 *         null if the value is not supported
+	 */
+	public static StorageMode forValue(final String propertyValue) {
+		for (final StorageMode mode : StorageMode.values()) {
+			if (mode.getPropertyValue().equalsIgnoreCase(propertyValue)) {
+				return mode;
+			}
+		}
+		return null;
+	}
+}
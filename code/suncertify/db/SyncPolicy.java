@@ -0,0 +1,75 @@
+package suncertify.db;
+
+/**
+ * The supported policies for forcing the database log file to the storage
+ * device.
+ * <ul>
+ * <li>{@link SyncPolicy#PER_OPERATION}</li>
+ * <li>{@link SyncPolicy#INTERVAL}</li>
+ * <li>{@link SyncPolicy#NONE}</li>
+ * </ul>
+ * Irrespective of the policy, every change is written to the log file before
+ * the operation making the change returns, so it survives the application
+ * being killed. The policy only decides how much may be lost if the operating
+ * system itself fails.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public enum SyncPolicy {
+
+	/**
+	 * The log is forced before any operation returns. Operations running
+	 * concurrently share a single force of the log.
+	 */
+	PER_OPERATION("perOperation"),
+	/**
+	 * The log is forced periodically in the background, at the interval given
+	 * by {@link DatabaseOptions#getSyncIntervalMillis()}.
+	 */
+	INTERVAL("interval"),
+	/**
+	 * The log is only forced when it is checkpointed or closed.
+	 */
+	NONE("none");
+
+	/** The property value associated with this sync policy. */
+	private final String propertyValue;
+
+	/**
+	 * Constructor for {@code SyncPolicy}. Allows specification for the
+	 * property value corresponding to this policy.
+	 *
+	 * @param propertyValue
+	 *            property value corresponding to this policy.
+	 */
+	private SyncPolicy(final String propertyValue) {
+		this.propertyValue = propertyValue;
+	}
+
+	/**
+	 * Gets the property value associated with this sync policy.
+	 *
+	 * @return the property value
+	 */
+	public String getPropertyValue() {
+		return this.propertyValue;
+	}
+
+	/**
+	 * Returns a {@link SyncPolicy} for a supplied property value.
+	 *
+	 * @param propertyValue
+	 *            the property value
+	 * @return the {@code SyncPolicy} corresponding to the supplied value or
+	 *         null if the value is not supported
+	 */
+	public static SyncPolicy forValue(final String propertyValue) {
+		for (final SyncPolicy policy : SyncPolicy.values()) {
+			if (policy.getPropertyValue().equalsIgnoreCase(propertyValue)) {
+				return policy;
+			}
+		}
+		return null;
+	}
+}
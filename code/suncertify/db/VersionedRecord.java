@@ -0,0 +1,55 @@
+package suncertify.db;
+
+import java.io.Serializable;
+
+/**
+ * The field values of a record together with the version of the record they
+ * were read from, as returned by {@link PagedDB#readRecord(int)}.
+ * <p>
+ * The version changes every time the record is changed, so passing it to
+ * {@link PagedDB#compareAndUpdate(int, long, String[])} updates the record only
+ * if it still holds these field values. Instances are immutable.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public final class VersionedRecord implements Serializable {
+
+	private static final long serialVersionUID = -6203391850421475120L;
+
+	private final long version;
+
+	private final String[] data;
+
+	/**
+	 * Creates a new {@code VersionedRecord} instance.
+	 * 
+	 * @param version
+	 *            the version of the record
+	 * @param data
+	 *            the field values of the record
+	 */
+	VersionedRecord(final long version, final String[] data) {
+		this.version = version;
+		this.data = data;
+	}
+
+	/**
+	 * Gets the version of the record the field values were read from.
+	 * 
+	 * @return the record version
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Gets the field values of the record.
+	 * 
+	 * @return a copy of the field values of the record
+	 */
+	public String[] getData() {
+		return this.data.clone();
+	}
+
+}
@@ -0,0 +1,292 @@
+package suncertify.db;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import suncertify.domain.DatabaseSchema;
+import suncertify.domain.Subcontractor;
+
+/**
+ * An append-only log of record changes kept next to the database file.
+ * <p>
+ * Every change made to a record is appended to the log before it is applied
+ * to the {@link Data} cache, so that the change survives the application
+ * terminating before the cache is saved into the database file. Each entry
+ * holds the record number, the complete record as laid out in the database
+ * file and a checksum used to detect an entry that was only partially written.
+ * <p>
+ * Appends use group commit: while one thread writes (and, depending on the
+ * {@link SyncPolicy}, forces) the log, other threads add their entries to the
+ * next batch and wait for it, so concurrent changes share a single write.
+ * <p>
+ * Once the records have been saved into the database file, the log is
+ * truncated by a checkpoint.
+ *
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see Data
+ */
+final class WriteAheadLog {
+
+	/** Extension appended to the database location to name the log file. */
+	static final String FILE_EXTENSION = ".wal";
+
+	private static final int CHECKSUM_LENGTH = 4;
+
+	private static final int ENTRY_LENGTH = 4 + DatabaseSchema.TOTAL_FIELD_LENGTH
+			+ WriteAheadLog.CHECKSUM_LENGTH;
+
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+	private final RandomAccessFile logFile;
+
+	private final FileChannel channel;
+
+	private final SyncPolicy syncPolicy;
+
+	private final ScheduledExecutorService syncExecutor;
+
+	private final Lock lock = new ReentrantLock();
+
+	private final Condition batchWritten = this.lock.newCondition();
+
+	private final CRC32 checksum = new CRC32();
+
+	private ByteBuffer pendingEntries = RecordCodec.allocateBatch();
+
+	private ByteBuffer spareEntries = RecordCodec.allocateBatch();
+
+	private long appendedSequence;
+
+	private long writtenSequence;
+
+	private boolean writing;
+
+	private IOException writeFailure;
+
+	/**
+	 * Opens the log file of the specified database, creating it if it does not
+	 * exist yet.
+	 *
+	 * @param databaseLocation
+	 *            the database location
+	 * @param syncPolicy
+	 *            the policy used to force the log to the storage device
+	 * @param syncIntervalMillis
+	 *            interval between forces of the log in milliseconds, only used
+	 *            by {@link SyncPolicy#INTERVAL}
+	 * @throws IOException
+	 *             error while accessing the log file
+	 */
+	WriteAheadLog(final String databaseLocation, final SyncPolicy syncPolicy,
+			final long syncIntervalMillis) throws IOException {
+		this.logFile = new RandomAccessFile(databaseLocation + WriteAheadLog.FILE_EXTENSION, "rw");
+		this.channel = this.logFile.getChannel();
+		this.syncPolicy = syncPolicy;
+		if (syncPolicy == SyncPolicy.INTERVAL) {
+			this.syncExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory(
+					"database-log-sync"));
+			this.syncExecutor.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					WriteAheadLog.this.sync();
+				}
+			}, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+		} else {
+			this.syncExecutor = null;
+		}
+	}
+
+	/**
+	 * Reads every complete entry of the log, in the order they were appended.
+	 * <p>
+	 * Reading stops at the first entry that was only partially written or
+	 * whose checksum does not match, and the log is truncated at that point so
+	 * that new entries are appended after the last valid one.
+	 *
+	 * @return the latest logged version of each record keyed on record number
+	 * @throws IOException
+	 *             error while accessing the log file
+	 */
+	ConcurrentSkipListMap<Integer, Subcontractor> replay() throws IOException {
+		final ConcurrentSkipListMap<Integer, Subcontractor> result = new ConcurrentSkipListMap<Integer, Subcontractor>();
+		final ByteBuffer entry = ByteBuffer.allocate(WriteAheadLog.ENTRY_LENGTH);
+		long validLength = 0;
+		while (this.readEntry(entry, validLength)) {
+			final int recNo = entry.getInt(0);
+			result.put(recNo, RecordCodec.decode(entry.array(), 4));
+			validLength += WriteAheadLog.ENTRY_LENGTH;
+		}
+		this.channel.truncate(validLength);
+		this.channel.position(validLength);
+		return result;
+	}
+
+	private boolean readEntry(final ByteBuffer entry, final long filePosition) throws IOException {
+		entry.clear();
+		while (entry.hasRemaining()) {
+			if (this.channel.read(entry, filePosition + entry.position()) < 0) {
+				return false;
+			}
+		}
+		this.checksum.reset();
+		this.checksum.update(entry.array(), 0, WriteAheadLog.ENTRY_LENGTH
+				- WriteAheadLog.CHECKSUM_LENGTH);
+		return entry.getInt(0) > 0
+				&& entry.getInt(WriteAheadLog.ENTRY_LENGTH - WriteAheadLog.CHECKSUM_LENGTH) == (int) this.checksum
+						.getValue();
+	}
+
+	/**
+	 * Appends the new state of a record to the log. This method returns once
+	 * the entry has been written to the log file and, for
+	 * {@link SyncPolicy#PER_OPERATION}, forced to the storage device.
+	 *
+	 * @param recNo
+	 *            the record number
+	 * @param contractor
+	 *            the new state of the record
+	 * @throws IOException
+	 *             error while writing the log file
+	 */
+	void append(final int recNo, final Subcontractor contractor) throws IOException {
+		this.lock.lock();
+		try {
+			this.checkWriteFailure();
+			if (this.pendingEntries.remaining() < WriteAheadLog.ENTRY_LENGTH) {
+				final ByteBuffer largerEntries = ByteBuffer
+						.allocate(this.pendingEntries.capacity() * 2);
+				this.pendingEntries.flip();
+				largerEntries.put(this.pendingEntries);
+				this.pendingEntries = largerEntries;
+			}
+			final int entryStart = this.pendingEntries.position();
+			this.pendingEntries.putInt(recNo);
+			RecordCodec.encode(contractor, this.pendingEntries);
+			this.checksum.reset();
+			this.checksum.update(this.pendingEntries.array(), entryStart, WriteAheadLog.ENTRY_LENGTH
+					- WriteAheadLog.CHECKSUM_LENGTH);
+			this.pendingEntries.putInt((int) this.checksum.getValue());
+
+			final long sequence = ++this.appendedSequence;
+			while (this.writtenSequence < sequence) {
+				if (this.writing) {
+					this.batchWritten.awaitUninterruptibly();
+				} else {
+					this.writeBatch();
+				}
+			}
+			this.checkWriteFailure();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes every pending entry as a single batch. Must be called while
+	 * holding the lock, which is released during the write so that other
+	 * threads can add entries to the next batch.
+	 */
+	private void writeBatch() {
+		this.writing = true;
+		final ByteBuffer batch = this.pendingEntries;
+		final long batchSequence = this.appendedSequence;
+		this.pendingEntries = this.spareEntries;
+		this.lock.unlock();
+
+		IOException failure = null;
+		try {
+			batch.flip();
+			while (batch.hasRemaining()) {
+				this.channel.write(batch);
+			}
+			if (this.syncPolicy == SyncPolicy.PER_OPERATION) {
+				this.channel.force(false);
+			}
+		} catch (final IOException ioException) {
+			failure = ioException;
+		} finally {
+			batch.clear();
+			this.lock.lock();
+			this.spareEntries = batch;
+			this.writing = false;
+			this.writtenSequence = batchSequence;
+			if (failure != null) {
+				this.writeFailure = failure;
+			}
+			this.batchWritten.signalAll();
+		}
+	}
+
+	private void checkWriteFailure() throws IOException {
+		if (this.writeFailure != null) {
+			throw new IOException("Database log file can no longer be written.", this.writeFailure);
+		}
+	}
+
+	private void sync() {
+		try {
+			this.channel.force(false);
+		} catch (final IOException canBeIgnored) {
+			// Can be ignored, the log is forced again on the next interval and
+			// at the latest when it is checkpointed or closed.
+		}
+	}
+
+	/**
+	 * Discards every entry of the log. Must only be called once all records
+	 * have been saved into, and forced to, the database file and while no
+	 * entries are being appended.
+	 *
+	 * @throws IOException
+	 *             error while accessing the log file
+	 */
+	void truncate() throws IOException {
+		this.lock.lock();
+		try {
+			this.checkWriteFailure();
+			this.channel.truncate(0);
+			this.channel.position(0);
+			this.channel.force(true);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Forces any outstanding entries to the storage device and closes the log
+	 * file.
+	 *
+	 * @throws IOException
+	 *             error while accessing the log file
+	 */
+	void close() throws IOException {
+		if (this.syncExecutor != null) {
+			// Not shutdownNow, as interrupting a force would close the channel
+			// and lose the entries not forced yet
+			this.syncExecutor.shutdown();
+			try {
+				this.syncExecutor.awaitTermination(WriteAheadLog.SHUTDOWN_TIMEOUT_SECONDS,
+						TimeUnit.SECONDS);
+			} catch (final InterruptedException interruptedException) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		try {
+			this.channel.force(true);
+		} finally {
+			this.logFile.close();
+		}
+	}
+
+}
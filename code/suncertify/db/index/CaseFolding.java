@@ -0,0 +1,115 @@
+package suncertify.db.index;
+
+/**
+ * Folds the case of record field values and search criteria, so that the
+ * indexes and the matching of records in the {@code suncertify.db} package
+ * agree on which values match.
+ * <p>
+ * The records only ever hold US-ASCII, so folding is limited to the letters
+ * {@code 'A'} to {@code 'Z'} and does not depend on the default locale. Every
+ * byte outside of US-ASCII is decoded as the replacement character U+FFFD and
+ * is folded to the single value {@link #NON_ASCII}, which a criteria value
+ * only produces from that character.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public final class CaseFolding {
+
+	/** The folded value of any character or byte outside of US-ASCII. */
+	public static final int NON_ASCII = 0x80;
+
+	private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+	/** The case folded form of every byte value. */
+	private static final byte[] FOLDED = new byte[256];
+
+	static {
+		for (int i = 0; i < CaseFolding.FOLDED.length; i++) {
+			if (i >= 'A' && i <= 'Z') {
+				CaseFolding.FOLDED[i] = (byte) (i + ('a' - 'A'));
+			} else if (i >= CaseFolding.NON_ASCII) {
+				CaseFolding.FOLDED[i] = (byte) CaseFolding.NON_ASCII;
+			} else {
+				CaseFolding.FOLDED[i] = (byte) i;
+			}
+		}
+	}
+
+	/**
+	 * private constructor to prevent creation of a {@code CaseFolding}
+	 * instance.
+	 */
+	private CaseFolding() {
+	}
+
+	/**
+	 * Folds a byte of an encoded record.
+	 * 
+	 * @param value
+	 *            the byte as held by the record
+	 * @return the folded byte
+	 */
+	public static byte fold(final byte value) {
+		return CaseFolding.FOLDED[value & 0xFF];
+	}
+
+	/**
+	 * Folds the field value of a decoded record.
+	 * 
+	 * @param value
+	 *            the field value
+	 * @return the folded bytes of the value
+	 */
+	public static byte[] foldField(final String value) {
+		final byte[] folded = new byte[value.length()];
+		for (int i = 0; i < folded.length; i++) {
+			final char character = value.charAt(i);
+			folded[i] = character < CaseFolding.NON_ASCII ? CaseFolding.FOLDED[character]
+					: (byte) CaseFolding.NON_ASCII;
+		}
+		return folded;
+	}
+
+	/**
+	 * Folds a criteria value into the bytes a matching field holds once
+	 * folded.
+	 * 
+	 * @param value
+	 *            the criteria value
+	 * @return the folded bytes, or null if the value holds a character that
+	 *         no record can hold, so that it matches no record
+	 */
+	public static byte[] foldCriteria(final String value) {
+		final byte[] folded = new byte[value.length()];
+		for (int i = 0; i < folded.length; i++) {
+			final char character = value.charAt(i);
+			final char lowerCase = Character.toLowerCase(character);
+			if (lowerCase < CaseFolding.NON_ASCII) {
+				folded[i] = CaseFolding.FOLDED[lowerCase];
+			} else if (character == CaseFolding.REPLACEMENT_CHARACTER) {
+				folded[i] = (byte) CaseFolding.NON_ASCII;
+			} else {
+				return null;
+			}
+		}
+		return folded;
+	}
+
+	/**
+	 * Converts folded bytes into a {@code String} keeping their order, for use
+	 * as a sorted key.
+	 * 
+	 * @param folded
+	 *            the folded bytes
+	 * @return the key
+	 */
+	static String toKey(final byte[] folded) {
+		final char[] key = new char[folded.length];
+		for (int i = 0; i < folded.length; i++) {
+			key[i] = (char) (folded[i] & 0xFF);
+		}
+		return new String(key);
+	}
+
+}
@@ -0,0 +1,373 @@
+package suncertify.db.index;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A compressed set of record numbers, holding the records sharing a single
+ * index key.
+ * <p>
+ * Record numbers are grouped on their upper 16 bits into containers of up to
+ * 65536 numbers each. A container holding few numbers stores their lower 16
+ * bits in a sorted {@code char[]}, two bytes per record; once it holds more
+ * than {@link #ARRAY_CONTAINER_LIMIT} numbers it switches to a bitmap of
+ * 8KB, which is smaller from then on. Dense sets, such as the records sharing
+ * a common trigram, cost a bit per record and sparse ones two bytes per
+ * record, instead of the four bytes per record of an {@code int[]}.
+ * <p>
+ * Once the last number is removed the set is discarded, telling a concurrent
+ * {@link #add(int)} to create a new set for the key.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+final class CompressedRecordSet {
+
+	/** Maximum number of records held by an array container. */
+	private static final int ARRAY_CONTAINER_LIMIT = 4096;
+
+	private static final int CONTAINER_SHIFT = 16;
+
+	private static final int LOW_MASK = 0xFFFF;
+
+	private int[] containerKeys = new int[1];
+
+	private Container[] containers = new Container[1];
+
+	private int containerCount;
+
+	private int size;
+
+	private boolean discarded;
+
+	/**
+	 * Holds the lower 16 bits of the record numbers sharing the same upper 16
+	 * bits.
+	 */
+	private abstract static class Container {
+
+		/** @return the container now holding the value, this or a new one */
+		abstract Container add(int low);
+
+		/** @return the container now holding the remaining values */
+		abstract Container remove(int low);
+
+		abstract boolean contains(int low);
+
+		abstract int cardinality();
+
+		/** @return the offset after the last record number copied */
+		abstract int copyTo(int high, int[] target, int offset);
+	}
+
+	private static final class ArrayContainer extends Container {
+
+		private char[] values;
+
+		private int count;
+
+		ArrayContainer(final int capacity) {
+			this.values = new char[capacity];
+		}
+
+		@Override
+		Container add(final int low) {
+			final int index = Arrays.binarySearch(this.values, 0, this.count, (char) low);
+			if (index >= 0) {
+				return this;
+			}
+			if (this.count == CompressedRecordSet.ARRAY_CONTAINER_LIMIT) {
+				final BitmapContainer bitmap = new BitmapContainer();
+				for (int i = 0; i < this.count; i++) {
+					bitmap.add(this.values[i]);
+				}
+				return bitmap.add(low);
+			}
+			final int insertionPoint = -index - 1;
+			if (this.count == this.values.length) {
+				this.values = Arrays.copyOf(this.values, Math.min(this.count * 2,
+						CompressedRecordSet.ARRAY_CONTAINER_LIMIT));
+			}
+			System.arraycopy(this.values, insertionPoint, this.values, insertionPoint + 1,
+					this.count - insertionPoint);
+			this.values[insertionPoint] = (char) low;
+			this.count++;
+			return this;
+		}
+
+		@Override
+		Container remove(final int low) {
+			final int index = Arrays.binarySearch(this.values, 0, this.count, (char) low);
+			if (index >= 0) {
+				System.arraycopy(this.values, index + 1, this.values, index, this.count - index
+						- 1);
+				this.count--;
+			}
+			return this;
+		}
+
+		@Override
+		boolean contains(final int low) {
+			return Arrays.binarySearch(this.values, 0, this.count, (char) low) >= 0;
+		}
+
+		@Override
+		int cardinality() {
+			return this.count;
+		}
+
+		@Override
+		int copyTo(final int high, final int[] target, final int offset) {
+			final int base = high << CompressedRecordSet.CONTAINER_SHIFT;
+			for (int i = 0; i < this.count; i++) {
+				target[offset + i] = base | this.values[i];
+			}
+			return offset + this.count;
+		}
+	}
+
+	private static final class BitmapContainer extends Container {
+
+		private final long[] words = new long[(CompressedRecordSet.LOW_MASK + 1) / 64];
+
+		private int cardinality;
+
+		@Override
+		Container add(final int low) {
+			final long bit = 1L << low;
+			if ((this.words[low >>> 6] & bit) == 0) {
+				this.words[low >>> 6] |= bit;
+				this.cardinality++;
+			}
+			return this;
+		}
+
+		@Override
+		Container remove(final int low) {
+			final long bit = 1L << low;
+			if ((this.words[low >>> 6] & bit) != 0) {
+				this.words[low >>> 6] &= ~bit;
+				this.cardinality--;
+			}
+			// Switching back at half the limit keeps a container hovering
+			// around the limit from being converted on every change
+			if (this.cardinality <= CompressedRecordSet.ARRAY_CONTAINER_LIMIT / 2) {
+				final ArrayContainer array = new ArrayContainer(this.cardinality);
+				for (int i = 0; i < this.words.length; i++) {
+					long word = this.words[i];
+					while (word != 0) {
+						array.values[array.count++] = (char) ((i << 6) + Long
+								.numberOfTrailingZeros(word));
+						word &= word - 1;
+					}
+				}
+				return array;
+			}
+			return this;
+		}
+
+		@Override
+		boolean contains(final int low) {
+			return (this.words[low >>> 6] & (1L << low)) != 0;
+		}
+
+		@Override
+		int cardinality() {
+			return this.cardinality;
+		}
+
+		@Override
+		int copyTo(final int high, final int[] target, final int offset) {
+			final int base = high << CompressedRecordSet.CONTAINER_SHIFT;
+			int position = offset;
+			for (int i = 0; i < this.words.length; i++) {
+				long word = this.words[i];
+				while (word != 0) {
+					target[position++] = base | ((i << 6) + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return position;
+		}
+	}
+
+	/**
+	 * Adds a record number to the set held for a key of an index, creating
+	 * the set if the key has none.
+	 * 
+	 * @param sets
+	 *            the sets of the index keyed on index key
+	 * @param key
+	 *            the index key
+	 * @param recNo
+	 *            the record number
+	 * @return true if the key was added to the index
+	 */
+	static <K> boolean add(final ConcurrentMap<K, CompressedRecordSet> sets, final K key,
+			final int recNo) {
+		while (true) {
+			final CompressedRecordSet current = sets.get(key);
+			if (current == null) {
+				final CompressedRecordSet created = new CompressedRecordSet();
+				created.add(recNo);
+				if (sets.putIfAbsent(key, created) == null) {
+					return true;
+				}
+			} else if (current.add(recNo)) {
+				return false;
+			} else {
+				// The set was emptied by a concurrent remove, which is about
+				// to take it out of the index
+				sets.remove(key, current);
+			}
+		}
+	}
+
+	/**
+	 * Removes a record number from the set held for a key of an index,
+	 * removing the set once it is empty.
+	 * 
+	 * @param sets
+	 *            the sets of the index keyed on index key
+	 * @param key
+	 *            the index key
+	 * @param recNo
+	 *            the record number
+	 * @return true if the key was removed from the index, as its set was
+	 *         emptied
+	 */
+	static <K> boolean remove(final ConcurrentMap<K, CompressedRecordSet> sets, final K key,
+			final int recNo) {
+		final CompressedRecordSet current = sets.get(key);
+		if (current != null && current.remove(recNo)) {
+			// Whichever thread takes the set out of the index, it was
+			// discarded exactly once, here
+			sets.remove(key, current);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Adds a record number to the set.
+	 * 
+	 * @param recNo
+	 *            the record number
+	 * @return false if the set was discarded and the number was not added
+	 */
+	synchronized boolean add(final int recNo) {
+		if (this.discarded) {
+			return false;
+		}
+		final int high = recNo >>> CompressedRecordSet.CONTAINER_SHIFT;
+		int index = Arrays.binarySearch(this.containerKeys, 0, this.containerCount, high);
+		if (index < 0) {
+			index = -index - 1;
+			this.insertContainer(index, high);
+		}
+		final Container container = this.containers[index];
+		final int before = container.cardinality();
+		this.containers[index] = container.add(recNo & CompressedRecordSet.LOW_MASK);
+		this.size += this.containers[index].cardinality() - before;
+		return true;
+	}
+
+	private void insertContainer(final int index, final int high) {
+		if (this.containerCount == this.containers.length) {
+			this.containerKeys = Arrays.copyOf(this.containerKeys, this.containerCount * 2);
+			this.containers = Arrays.copyOf(this.containers, this.containerCount * 2);
+		}
+		System.arraycopy(this.containerKeys, index, this.containerKeys, index + 1,
+				this.containerCount - index);
+		System.arraycopy(this.containers, index, this.containers, index + 1, this.containerCount
+				- index);
+		this.containerKeys[index] = high;
+		this.containers[index] = new ArrayContainer(4);
+		this.containerCount++;
+	}
+
+	/**
+	 * Removes a record number from the set, discarding the set once it is
+	 * empty.
+	 * 
+	 * @param recNo
+	 *            the record number
+	 * @return true if the set is now discarded and must be removed from the
+	 *         index
+	 */
+	synchronized boolean remove(final int recNo) {
+		final int index = Arrays.binarySearch(this.containerKeys, 0, this.containerCount,
+				recNo >>> CompressedRecordSet.CONTAINER_SHIFT);
+		if (index >= 0) {
+			final Container container = this.containers[index];
+			final int before = container.cardinality();
+			final Container remaining = container.remove(recNo & CompressedRecordSet.LOW_MASK);
+			this.size -= before - remaining.cardinality();
+			if (remaining.cardinality() == 0) {
+				System.arraycopy(this.containerKeys, index + 1, this.containerKeys, index,
+						this.containerCount - index - 1);
+				System.arraycopy(this.containers, index + 1, this.containers, index,
+						this.containerCount - index - 1);
+				this.containers[--this.containerCount] = null;
+			} else {
+				this.containers[index] = remaining;
+			}
+		}
+		if (this.size == 0) {
+			this.discarded = true;
+		}
+		return this.discarded;
+	}
+
+	/**
+	 * Gets the number of record numbers held by the set.
+	 * 
+	 * @return the size of the set
+	 */
+	synchronized int size() {
+		return this.size;
+	}
+
+	/**
+	 * Gets the record numbers held by the set.
+	 * 
+	 * @return the sorted record numbers
+	 */
+	synchronized int[] toArray() {
+		final int[] result = new int[this.size];
+		int offset = 0;
+		for (int i = 0; i < this.containerCount; i++) {
+			offset = this.containers[i].copyTo(this.containerKeys[i], result, offset);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the record numbers held both by the set and by the specified
+	 * array.
+	 * 
+	 * @param recordNumbers
+	 *            sorted record numbers
+	 * @return the sorted record numbers held by both
+	 */
+	synchronized int[] retain(final int[] recordNumbers) {
+		final int[] result = new int[recordNumbers.length];
+		int count = 0;
+		int index = 0;
+		for (final int recNo : recordNumbers) {
+			final int high = recNo >>> CompressedRecordSet.CONTAINER_SHIFT;
+			while (index < this.containerCount && this.containerKeys[index] < high) {
+				index++;
+			}
+			if (index == this.containerCount) {
+				break;
+			}
+			if (this.containerKeys[index] == high
+					&& this.containers[index].contains(recNo & CompressedRecordSet.LOW_MASK)) {
+				result[count++] = recNo;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+}
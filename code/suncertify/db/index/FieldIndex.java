@@ -0,0 +1,57 @@
+package suncertify.db.index;
+
+/**
+ * A {@link RecordIndex} over a single field, able to find the records whose
+ * field value may match a criteria value.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public interface FieldIndex extends RecordIndex {
+
+	/**
+	 * Gets the index of the field covered by this index.
+	 * 
+	 * @return the field index
+	 */
+	int getFieldIndex();
+
+	/**
+	 * Finds the records whose field value may match the criteria value. Every
+	 * matching record is found, but records found may not match, so they must
+	 * still be checked against the criteria.
+	 * 
+	 * @param criteria
+	 *            the criteria value for the field
+	 * @return the sorted record numbers of the candidate records, or null if
+	 *         the index can not narrow down the records for this value
+	 */
+	int[] findCandidates(String criteria);
+
+	/**
+	 * Estimates the number of records {@link #findCandidates(String)} finds
+	 * for the criteria value, at a cost much lower than finding them.
+	 * 
+	 * @param criteria
+	 *            the criteria value for the field
+	 * @return the estimated number of candidate records, or -1 if the index
+	 *         can not narrow down the records for this value
+	 */
+	int estimateCandidates(String criteria);
+
+	/**
+	 * Gets the number of distinct keys held by the index, the cardinality of
+	 * the field as seen by the index.
+	 * 
+	 * @return the number of keys
+	 */
+	int getKeyCount();
+
+	/**
+	 * Gets the number of records held by the index.
+	 * 
+	 * @return the number of records
+	 */
+	int getRecordCount();
+
+}
@@ -0,0 +1,94 @@
+package suncertify.db.index;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Indexes a single field on its exact value, as decoded and trimmed from the
+ * record, in a hash table.
+ * <p>
+ * A lookup costs a single hash table access plus the number of records
+ * matching, however many records the database holds, and only finds records
+ * whose value is equal to the criteria value.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public final class HashIndex implements FieldIndex {
+
+	private final int fieldIndex;
+
+	private final ConcurrentHashMap<String, CompressedRecordSet> keys = new ConcurrentHashMap<String, CompressedRecordSet>();
+
+	private final AtomicInteger recordCount = new AtomicInteger();
+
+	/**
+	 * Creates an empty index on the specified field.
+	 * 
+	 * @param fieldIndex
+	 *            index of the field in the record data
+	 */
+	public HashIndex(final int fieldIndex) {
+		this.fieldIndex = fieldIndex;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getFieldIndex() {
+		return this.fieldIndex;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void add(final int recNo, final String[] data) {
+		CompressedRecordSet.add(this.keys, data[this.fieldIndex], recNo);
+		this.recordCount.incrementAndGet();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void remove(final int recNo, final String[] data) {
+		CompressedRecordSet.remove(this.keys, data[this.fieldIndex], recNo);
+		this.recordCount.decrementAndGet();
+	}
+
+	/**
+	 * Finds the records whose field value is equal to the criteria value.
+	 * 
+	 * @param criteria
+	 *            the field value
+	 * @return the sorted record numbers of the matching records
+	 */
+	@Override
+	public int[] findCandidates(final String criteria) {
+		final CompressedRecordSet recordNumbers = this.keys.get(criteria);
+		return recordNumbers == null ? RecordNumbers.EMPTY : recordNumbers.toArray();
+	}
+
+	/**
+	 * Gets the number of records whose field value is equal to the criteria
+	 * value, which is exact rather than estimated.
+	 * 
+	 * @param criteria
+	 *            the field value
+	 * @return the number of matching records
+	 */
+	@Override
+	public int estimateCandidates(final String criteria) {
+		final CompressedRecordSet recordNumbers = this.keys.get(criteria);
+		return recordNumbers == null ? 0 : recordNumbers.size();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getKeyCount() {
+		return this.keys.size();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getRecordCount() {
+		return this.recordCount.get();
+	}
+
+}
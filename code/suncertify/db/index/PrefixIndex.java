@@ -0,0 +1,156 @@
+package suncertify.db.index;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Indexes a single field on its case folded value, kept in sorted order so
+ * that every value beginning with a given prefix is found in a single range
+ * of the index.
+ * <p>
+ * A lookup costs one search for the start of the range plus the number of
+ * records matching, however many records the database holds.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public final class PrefixIndex implements FieldIndex {
+
+	/** The number of keys walked at most to estimate a lookup. */
+	private static final int ESTIMATE_KEY_LIMIT = 1024;
+
+	private final int fieldIndex;
+
+	private final ConcurrentSkipListMap<String, CompressedRecordSet> keys = new ConcurrentSkipListMap<String, CompressedRecordSet>();
+
+	/** The number of keys, as the size of a skip list is not kept. */
+	private final AtomicInteger keyCount = new AtomicInteger();
+
+	private final AtomicInteger recordCount = new AtomicInteger();
+
+	/**
+	 * Creates an empty index on the specified field.
+	 * 
+	 * @param fieldIndex
+	 *            index of the field in the record data
+	 */
+	public PrefixIndex(final int fieldIndex) {
+		this.fieldIndex = fieldIndex;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getFieldIndex() {
+		return this.fieldIndex;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void add(final int recNo, final String[] data) {
+		if (CompressedRecordSet.add(this.keys,
+				CaseFolding.toKey(CaseFolding.foldField(data[this.fieldIndex])), recNo)) {
+			this.keyCount.incrementAndGet();
+		}
+		this.recordCount.incrementAndGet();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void remove(final int recNo, final String[] data) {
+		if (CompressedRecordSet.remove(this.keys,
+				CaseFolding.toKey(CaseFolding.foldField(data[this.fieldIndex])), recNo)) {
+			this.keyCount.decrementAndGet();
+		}
+		this.recordCount.decrementAndGet();
+	}
+
+	/**
+	 * Finds the records whose field value begins with the criteria value,
+	 * ignoring case.
+	 * 
+	 * @param criteria
+	 *            the prefix
+	 * @return the sorted record numbers of the matching records, or null if
+	 *         the prefix is empty and so matches every record
+	 */
+	@Override
+	public int[] findCandidates(final String criteria) {
+		if (criteria.isEmpty()) {
+			return null;
+		}
+		final byte[] folded = CaseFolding.foldCriteria(criteria);
+		if (folded == null) {
+			return RecordNumbers.EMPTY;
+		}
+		final String from = CaseFolding.toKey(folded);
+		int[] result = new int[16];
+		int count = 0;
+		for (final Map.Entry<String, CompressedRecordSet> entry : this.keys.tailMap(from)
+				.entrySet()) {
+			if (!entry.getKey().startsWith(from)) {
+				break;
+			}
+			final int[] recordNumbers = entry.getValue().toArray();
+			if (count + recordNumbers.length > result.length) {
+				result = Arrays.copyOf(result, Math.max(result.length * 2, count
+						+ recordNumbers.length));
+			}
+			System.arraycopy(recordNumbers, 0, result, count, recordNumbers.length);
+			count += recordNumbers.length;
+		}
+		result = Arrays.copyOf(result, count);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Estimates the number of records whose field value begins with the
+	 * criteria value by adding up the records of the keys beginning with it.
+	 * Once more keys than a fixed limit begin with the value, the prefix is
+	 * taken as matching every record, to keep the estimate cheap.
+	 * 
+	 * @param criteria
+	 *            the prefix
+	 * @return the estimated number of matching records, or -1 if the prefix
+	 *         is empty
+	 */
+	@Override
+	public int estimateCandidates(final String criteria) {
+		if (criteria.isEmpty()) {
+			return -1;
+		}
+		final byte[] folded = CaseFolding.foldCriteria(criteria);
+		if (folded == null) {
+			return 0;
+		}
+		final String from = CaseFolding.toKey(folded);
+		int count = 0;
+		int keysWalked = 0;
+		for (final Map.Entry<String, CompressedRecordSet> entry : this.keys.tailMap(from)
+				.entrySet()) {
+			if (!entry.getKey().startsWith(from)) {
+				break;
+			}
+			if (++keysWalked > PrefixIndex.ESTIMATE_KEY_LIMIT) {
+				return Math.max(count, this.recordCount.get());
+			}
+			count += entry.getValue().size();
+		}
+		return count;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getKeyCount() {
+		return this.keyCount.get();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getRecordCount() {
+		return this.recordCount.get();
+	}
+
+}
@@ -0,0 +1,199 @@
+package suncertify.db.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import suncertify.domain.DatabaseSchema;
+
+/**
+ * The access path chosen for a search: either scanning every record, or
+ * looking up one or more {@link FieldIndex}'s and checking only the candidate
+ * records they find.
+ * <p>
+ * A plan is made from the estimates of the indexes whose field is
+ * constrained by the criteria. The most selective index is looked up first,
+ * and only if it is expected to find a small enough share of the records,
+ * as checking most records through an index costs more than scanning them
+ * in order. Each further index is intersected with the candidates, most
+ * selective first, only while it is expected to find not many more records
+ * than the candidates found so far; otherwise checking the candidates
+ * against the criteria is cheaper than looking it up.
+ * <p>
+ * {@link #toString()} describes the plan, its estimates and the statistics
+ * of the indexes considered, for diagnostics.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public final class QueryPlan {
+
+	/**
+	 * An index is looked up first only if it is expected to find fewer than
+	 * one in this many records.
+	 */
+	private static final int SCAN_RATIO = 4;
+
+	/**
+	 * A further index is intersected only if it is expected to find at most
+	 * this many times the candidates found so far.
+	 */
+	private static final int INTERSECTION_RATIO = 8;
+
+	private final int recordCount;
+
+	private final List<Lookup> lookups;
+
+	private final List<Lookup> skipped;
+
+	private QueryPlan(final int recordCount, final List<Lookup> lookups, final List<Lookup> skipped) {
+		this.recordCount = recordCount;
+		this.lookups = lookups;
+		this.skipped = skipped;
+	}
+
+	/**
+	 * Creates a plan scanning every record.
+	 * 
+	 * @param recordCount
+	 *            the number of records a scan reads
+	 * @return the plan
+	 */
+	public static QueryPlan fullScan(final int recordCount) {
+		return new QueryPlan(recordCount, Collections.<Lookup> emptyList(),
+				Collections.<Lookup> emptyList());
+	}
+
+	/**
+	 * Chooses the cheapest access path for the criteria among a scan and the
+	 * specified indexes.
+	 * 
+	 * @param indexes
+	 *            the indexes able to serve the search
+	 * @param criteria
+	 *            the search criteria, a null value matching any field value
+	 * @param recordCount
+	 *            the number of records a scan reads
+	 * @return the plan
+	 */
+	static QueryPlan create(final FieldIndex[] indexes, final String[] criteria,
+			final int recordCount) {
+		final List<Lookup> usable = new ArrayList<Lookup>();
+		for (final FieldIndex index : indexes) {
+			final String value = criteria[index.getFieldIndex()];
+			if (value != null) {
+				final int estimate = index.estimateCandidates(value);
+				if (estimate >= 0) {
+					usable.add(new Lookup(index, value, estimate));
+				}
+			}
+		}
+		Collections.sort(usable, new Comparator<Lookup>() {
+			@Override
+			public int compare(final Lookup first, final Lookup second) {
+				return first.estimate < second.estimate ? -1 : first.estimate == second.estimate ? 0
+						: 1;
+			}
+		});
+		final List<Lookup> lookups = new ArrayList<Lookup>();
+		final List<Lookup> skipped = new ArrayList<Lookup>();
+		long expected = recordCount;
+		for (final Lookup lookup : usable) {
+			final boolean cheaper = lookups.isEmpty() ? lookup.estimate == 0
+					|| (long) lookup.estimate * QueryPlan.SCAN_RATIO < recordCount : expected > 0
+					&& lookup.estimate <= expected * QueryPlan.INTERSECTION_RATIO;
+			if (cheaper) {
+				lookups.add(lookup);
+				expected = Math.min(expected, lookup.estimate);
+			} else {
+				skipped.add(lookup);
+			}
+		}
+		return new QueryPlan(recordCount, lookups, skipped);
+	}
+
+	/**
+	 * Tells whether the plan scans every record.
+	 * 
+	 * @return true if no index is looked up
+	 */
+	public boolean isFullScan() {
+		return this.lookups.isEmpty();
+	}
+
+	/**
+	 * Looks up the indexes of the plan and intersects their results. The
+	 * candidates must still be checked against the criteria.
+	 * 
+	 * @return the sorted record numbers of the candidate records, or null if
+	 *         the plan scans every record
+	 */
+	public int[] findCandidates() {
+		int[] candidates = null;
+		for (final Lookup lookup : this.lookups) {
+			final int[] found = lookup.index.findCandidates(lookup.value);
+			if (found != null) {
+				candidates = candidates == null ? found : RecordNumbers.intersect(candidates,
+						found);
+				if (candidates.length == 0) {
+					break;
+				}
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Returns a description of the plan: the indexes looked up and skipped,
+	 * with the number of records each is expected to find and its key and
+	 * record counts, or the scan of every record.
+	 * 
+	 * @return the description of the plan
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder result = new StringBuilder();
+		if (this.isFullScan()) {
+			result.append("scan all ").append(this.recordCount).append(" records");
+		} else {
+			for (int i = 0; i < this.lookups.size(); i++) {
+				result.append(i == 0 ? "look up " : "\nintersect ").append(this.lookups.get(i));
+			}
+			result.append("\ncheck the candidates against the criteria");
+		}
+		for (final Lookup lookup : this.skipped) {
+			result.append("\nskip ").append(lookup);
+		}
+		return result.toString();
+	}
+
+	/** The lookup of a single index for a criteria value. */
+	private static final class Lookup {
+
+		private final FieldIndex index;
+
+		private final String value;
+
+		private final int estimate;
+
+		private Lookup(final FieldIndex index, final String value, final int estimate) {
+			this.index = index;
+			this.value = value;
+			this.estimate = estimate;
+		}
+
+		@Override
+		public String toString() {
+			final int keyCount = this.index.getKeyCount();
+			final int recordCount = this.index.getRecordCount();
+			return this.index.getClass().getSimpleName() + " on "
+					+ DatabaseSchema.FIELD_NAMES[this.index.getFieldIndex()] + " for \""
+					+ this.value + "\": ~" + this.estimate + " records (" + keyCount + " keys, "
+					+ recordCount + " records, ~"
+					+ (keyCount == 0 ? 0 : Math.round((double) recordCount / keyCount))
+					+ " records per key)";
+		}
+	}
+
+}
@@ -0,0 +1,160 @@
+package suncertify.db.index;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Indexes a single numeric field, held by the records as text such as
+ * {@code "$100.00"} or {@code "10"}, on its parsed value, kept in sorted order
+ * so that every value within a range is found in a single range of the index.
+ * <p>
+ * Values are parsed into a whole number of units of the field, such as cents
+ * for a rate, and a lookup costs one search for the start of the range plus
+ * the number of records within it. Field values that can not be parsed are
+ * not indexed and are never within a range.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public final class RangeIndex implements RecordIndex {
+
+	/** The value returned by {@link #parse(String, int)} for invalid text. */
+	public static final long INVALID = -1;
+
+	private static final char CURRENCY_SYMBOL = '$';
+
+	private static final char DECIMAL_SEPARATOR = '.';
+
+	/** The largest value that can be parsed without overflowing. */
+	private static final long MAXIMUM = (Long.MAX_VALUE - 9) / 10;
+
+	private final int fieldIndex;
+
+	private final int scale;
+
+	private final ConcurrentSkipListMap<Long, CompressedRecordSet> values = new ConcurrentSkipListMap<Long, CompressedRecordSet>();
+
+	/**
+	 * Creates an empty index on the specified field.
+	 * 
+	 * @param fieldIndex
+	 *            index of the field in the record data
+	 * @param scale
+	 *            the number of decimal places of a unit of the field, such as
+	 *            2 for a rate indexed in cents
+	 */
+	public RangeIndex(final int fieldIndex, final int scale) {
+		this.fieldIndex = fieldIndex;
+		this.scale = scale;
+	}
+
+	/**
+	 * Parses the text of a numeric field into a whole number of units. The
+	 * text may begin with a {@code '$'} and may have up to {@code scale}
+	 * decimal places.
+	 * 
+	 * @param value
+	 *            the text of the field, trimmed
+	 * @param scale
+	 *            the number of decimal places of a unit
+	 * @return the number of units, or {@link #INVALID} if the text is not a
+	 *         number with at most {@code scale} decimal places
+	 */
+	public static long parse(final String value, final int scale) {
+		int position = 0;
+		if (position < value.length() && value.charAt(position) == RangeIndex.CURRENCY_SYMBOL) {
+			position++;
+		}
+		long result = 0;
+		int integerDigits = 0;
+		for (; position < value.length() && RangeIndex.isDigit(value.charAt(position)); position++) {
+			if (result > RangeIndex.MAXIMUM) {
+				return RangeIndex.INVALID;
+			}
+			result = result * 10 + (value.charAt(position) - '0');
+			integerDigits++;
+		}
+		int decimals = 0;
+		if (position < value.length() && value.charAt(position) == RangeIndex.DECIMAL_SEPARATOR) {
+			for (position++; position < value.length()
+					&& RangeIndex.isDigit(value.charAt(position)); position++) {
+				if (++decimals > scale || result > RangeIndex.MAXIMUM) {
+					return RangeIndex.INVALID;
+				}
+				result = result * 10 + (value.charAt(position) - '0');
+			}
+		}
+		if (integerDigits == 0 || position < value.length()) {
+			return RangeIndex.INVALID;
+		}
+		for (; decimals < scale; decimals++) {
+			if (result > RangeIndex.MAXIMUM) {
+				return RangeIndex.INVALID;
+			}
+			result *= 10;
+		}
+		return result;
+	}
+
+	private static boolean isDigit(final char character) {
+		return character >= '0' && character <= '9';
+	}
+
+	/**
+	 * Gets the index of the field covered by this index.
+	 * 
+	 * @return the field index
+	 */
+	public int getFieldIndex() {
+		return this.fieldIndex;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void add(final int recNo, final String[] data) {
+		final long value = RangeIndex.parse(data[this.fieldIndex], this.scale);
+		if (value != RangeIndex.INVALID) {
+			CompressedRecordSet.add(this.values, value, recNo);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void remove(final int recNo, final String[] data) {
+		final long value = RangeIndex.parse(data[this.fieldIndex], this.scale);
+		if (value != RangeIndex.INVALID) {
+			CompressedRecordSet.remove(this.values, value, recNo);
+		}
+	}
+
+	/**
+	 * Finds the records whose field value lies within the specified range.
+	 * 
+	 * @param minimum
+	 *            the lowest value of the range, inclusive
+	 * @param maximum
+	 *            the highest value of the range, inclusive
+	 * @return the sorted record numbers of the matching records
+	 */
+	public int[] findCandidates(final long minimum, final long maximum) {
+		if (minimum > maximum) {
+			return RecordNumbers.EMPTY;
+		}
+		int[] result = new int[16];
+		int count = 0;
+		for (final CompressedRecordSet set : this.values.subMap(minimum, true, maximum, true)
+				.values()) {
+			final int[] recordNumbers = set.toArray();
+			if (count + recordNumbers.length > result.length) {
+				result = Arrays.copyOf(result, Math.max(result.length * 2, count
+						+ recordNumbers.length));
+			}
+			System.arraycopy(recordNumbers, 0, result, count, recordNumbers.length);
+			count += recordNumbers.length;
+		}
+		result = Arrays.copyOf(result, count);
+		Arrays.sort(result);
+		return result;
+	}
+
+}
@@ -0,0 +1,37 @@
+package suncertify.db.index;
+
+/**
+ * A secondary index over the field values of the valid records of the
+ * database.
+ * <p>
+ * An index is told about every record that becomes valid and every record
+ * that stops being valid, changes to a record being a removal of its old
+ * values followed by an addition of its new ones. Implementations must allow
+ * these calls to run concurrently with each other and with lookups.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public interface RecordIndex {
+
+	/**
+	 * Adds the field values of a valid record to the index.
+	 * 
+	 * @param recNo
+	 *            the record number
+	 * @param data
+	 *            the field values of the record
+	 */
+	void add(int recNo, String[] data);
+
+	/**
+	 * Removes the field values of a record from the index.
+	 * 
+	 * @param recNo
+	 *            the record number
+	 * @param data
+	 *            the field values the record was added with
+	 */
+	void remove(int recNo, String[] data);
+
+}
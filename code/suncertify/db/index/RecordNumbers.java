@@ -0,0 +1,80 @@
+package suncertify.db.index;
+
+import java.util.Arrays;
+
+/**
+ * Operations on sorted arrays of distinct record numbers, as returned by the
+ * lookups of the indexes. Arrays passed to these methods are never modified.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+final class RecordNumbers {
+
+	/** An array holding no record numbers. */
+	static final int[] EMPTY = new int[0];
+
+	/**
+	 * private constructor to prevent creation of a {@code RecordNumbers}
+	 * instance.
+	 */
+	private RecordNumbers() {
+	}
+
+	/**
+	 * Returns the record numbers held by both sorted arrays.
+	 * 
+	 * @param first
+	 *            the first sorted record numbers
+	 * @param second
+	 *            the second sorted record numbers
+	 * @return the sorted intersection
+	 */
+	static int[] intersect(final int[] first, final int[] second) {
+		final int[] result = new int[Math.min(first.length, second.length)];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < first.length && j < second.length) {
+			if (first[i] < second[j]) {
+				i++;
+			} else if (first[i] > second[j]) {
+				j++;
+			} else {
+				result[count++] = first[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Returns the record numbers held by either sorted array.
+	 * 
+	 * @param first
+	 *            the first sorted record numbers
+	 * @param second
+	 *            the second sorted record numbers
+	 * @return the sorted union
+	 */
+	static int[] union(final int[] first, final int[] second) {
+		final int[] result = new int[first.length + second.length];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < first.length || j < second.length) {
+			if (j == second.length || (i < first.length && first[i] < second[j])) {
+				result[count++] = first[i++];
+			} else if (i == first.length || first[i] > second[j]) {
+				result[count++] = second[j++];
+			} else {
+				result[count++] = first[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+}
@@ -0,0 +1,149 @@
+package suncertify.db.index;
+
+/**
+ * The secondary indexes maintained over the records of the database, and the
+ * selection of candidate records for a search from them.
+ * <p>
+ * A search is planned by a {@link QueryPlan}, which looks up the indexes
+ * whose field is constrained by the criteria when they are selective enough
+ * and intersects the results, the candidate records then only need to be
+ * checked against the complete criteria rather than every record being
+ * scanned. The exact indexes, looked up by searches requiring field values
+ * equal to the criteria, are kept apart from the indexes of the match mode
+ * configured. The {@link SpecialtyIndex} answers the searches for records
+ * holding given specialties, and the {@link RangeIndex}'s those for records
+ * with a numeric field within a range.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public final class SearchIndexes implements RecordIndex {
+
+	private final FieldIndex[] exactIndexes;
+
+	private final FieldIndex[] fieldIndexes;
+
+	private final SpecialtyIndex specialtyIndex;
+
+	private final RangeIndex[] rangeIndexes;
+
+	/**
+	 * Creates the search indexes made up of the specified indexes.
+	 * 
+	 * @param specialtyIndex
+	 *            the index of the terms of the specialties
+	 * @param rangeIndexes
+	 *            the indexes of the numeric fields
+	 * @param exactIndexes
+	 *            the field indexes finding the records whose field value is
+	 *            equal to the criteria value
+	 * @param fieldIndexes
+	 *            the field indexes of the match mode configured
+	 */
+	public SearchIndexes(final SpecialtyIndex specialtyIndex, final RangeIndex[] rangeIndexes,
+			final FieldIndex[] exactIndexes, final FieldIndex... fieldIndexes) {
+		this.specialtyIndex = specialtyIndex;
+		this.rangeIndexes = rangeIndexes.clone();
+		this.exactIndexes = exactIndexes.clone();
+		this.fieldIndexes = fieldIndexes.clone();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void add(final int recNo, final String[] data) {
+		this.specialtyIndex.add(recNo, data);
+		for (final RangeIndex index : this.rangeIndexes) {
+			index.add(recNo, data);
+		}
+		for (final FieldIndex index : this.exactIndexes) {
+			index.add(recNo, data);
+		}
+		for (final FieldIndex index : this.fieldIndexes) {
+			index.add(recNo, data);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void remove(final int recNo, final String[] data) {
+		this.specialtyIndex.remove(recNo, data);
+		for (final RangeIndex index : this.rangeIndexes) {
+			index.remove(recNo, data);
+		}
+		for (final FieldIndex index : this.exactIndexes) {
+			index.remove(recNo, data);
+		}
+		for (final FieldIndex index : this.fieldIndexes) {
+			index.remove(recNo, data);
+		}
+	}
+
+	/**
+	 * Plans the search for the records matching the criteria with the
+	 * indexes of the match mode configured.
+	 * 
+	 * @param criteria
+	 *            the search criteria, a null value matching any field value
+	 * @param recordCount
+	 *            the number of records a scan reads
+	 * @return the cheapest plan
+	 */
+	public QueryPlan plan(final String[] criteria, final int recordCount) {
+		return QueryPlan.create(this.fieldIndexes, criteria, recordCount);
+	}
+
+	/**
+	 * Plans the search for the records whose field values are equal to the
+	 * criteria values.
+	 * 
+	 * @param criteria
+	 *            the search criteria, a null value matching any field value
+	 * @param recordCount
+	 *            the number of records a scan reads
+	 * @return the cheapest plan
+	 */
+	public QueryPlan planExact(final String[] criteria, final int recordCount) {
+		return QueryPlan.create(this.exactIndexes, criteria, recordCount);
+	}
+
+	/**
+	 * Finds the records holding all or any of the specified specialties. The
+	 * candidates must still be checked, as the records may have changed since
+	 * they were looked up.
+	 * 
+	 * @param specialties
+	 *            the specialties searched for
+	 * @param matchAll
+	 *            true if every specialty must be held, false if any one
+	 *            suffices
+	 * @return the sorted record numbers of the candidate records
+	 */
+	public int[] findSpecialtyCandidates(final String[] specialties, final boolean matchAll) {
+		return matchAll ? this.specialtyIndex.findAll(specialties) : this.specialtyIndex
+				.findAny(specialties);
+	}
+
+	/**
+	 * Finds the records whose numeric field value lies within the specified
+	 * range. The candidates must still be checked, as the records may have
+	 * changed since they were looked up.
+	 * 
+	 * @param fieldIndex
+	 *            index of the numeric field
+	 * @param minimum
+	 *            the lowest value of the range, inclusive
+	 * @param maximum
+	 *            the highest value of the range, inclusive
+	 * @return the sorted record numbers of the candidate records, or null if
+	 *         the field is not indexed
+	 */
+	public int[] findRangeCandidates(final int fieldIndex, final long minimum, final long maximum) {
+		for (final RangeIndex index : this.rangeIndexes) {
+			if (index.getFieldIndex() == fieldIndex) {
+				return index.findCandidates(minimum, maximum);
+			}
+		}
+		return null;
+	}
+
+}
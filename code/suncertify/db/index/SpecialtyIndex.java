@@ -0,0 +1,142 @@
+package suncertify.db.index;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indexes the specialties of the records, a comma separated list of terms,
+ * on each of their terms.
+ * <p>
+ * Every term is trimmed and case folded, and maps to the set of records
+ * holding it, so that the records holding all or any of several terms are
+ * found by intersecting or joining these sets instead of scanning every
+ * record.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public final class SpecialtyIndex implements RecordIndex {
+
+	private static final String SEPARATOR = ",";
+
+	private final int fieldIndex;
+
+	private final ConcurrentHashMap<String, CompressedRecordSet> terms = new ConcurrentHashMap<String, CompressedRecordSet>();
+
+	/**
+	 * Creates an empty index on the specified field.
+	 * 
+	 * @param fieldIndex
+	 *            index of the specialties field in the record data
+	 */
+	public SpecialtyIndex(final int fieldIndex) {
+		this.fieldIndex = fieldIndex;
+	}
+
+	/**
+	 * Splits a specialties field value into its distinct terms, trimmed and
+	 * case folded.
+	 * 
+	 * @param specialties
+	 *            the specialties field value
+	 * @return the terms of the value
+	 */
+	public static Set<String> getTerms(final String specialties) {
+		final Set<String> result = new LinkedHashSet<String>();
+		for (final String term : specialties.split(SpecialtyIndex.SEPARATOR)) {
+			final String trimmed = term.trim();
+			if (!trimmed.isEmpty()) {
+				result.add(CaseFolding.toKey(CaseFolding.foldField(trimmed)));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Converts the specialties of a search into the terms they match, trimmed
+	 * and case folded.
+	 * 
+	 * @param specialties
+	 *            the specialties searched for
+	 * @return the terms searched for, null for any specialty no record can
+	 *         hold
+	 */
+	public static String[] getCriteriaTerms(final String[] specialties) {
+		final String[] result = new String[specialties.length];
+		for (int i = 0; i < specialties.length; i++) {
+			final byte[] folded = CaseFolding.foldCriteria(specialties[i].trim());
+			result[i] = folded == null ? null : CaseFolding.toKey(folded);
+		}
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void add(final int recNo, final String[] data) {
+		for (final String term : SpecialtyIndex.getTerms(data[this.fieldIndex])) {
+			CompressedRecordSet.add(this.terms, term, recNo);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void remove(final int recNo, final String[] data) {
+		for (final String term : SpecialtyIndex.getTerms(data[this.fieldIndex])) {
+			CompressedRecordSet.remove(this.terms, term, recNo);
+		}
+	}
+
+	/**
+	 * Finds the records holding every one of the specified specialties,
+	 * ignoring case. The set of the rarest specialty is intersected with the
+	 * others, so the cost depends on the rarest specialty.
+	 * 
+	 * @param specialties
+	 *            the specialties searched for
+	 * @return the sorted record numbers of the matching records
+	 */
+	public int[] findAll(final String[] specialties) {
+		final String[] criteriaTerms = SpecialtyIndex.getCriteriaTerms(specialties);
+		final CompressedRecordSet[] sets = new CompressedRecordSet[criteriaTerms.length];
+		for (int i = 0; i < criteriaTerms.length; i++) {
+			sets[i] = criteriaTerms[i] == null ? null : this.terms.get(criteriaTerms[i]);
+			if (sets[i] == null) {
+				return RecordNumbers.EMPTY;
+			}
+		}
+		int smallest = 0;
+		for (int i = 1; i < sets.length; i++) {
+			if (sets[i].size() < sets[smallest].size()) {
+				smallest = i;
+			}
+		}
+		int[] result = sets.length == 0 ? RecordNumbers.EMPTY : sets[smallest].toArray();
+		for (int i = 0; i < sets.length && result.length > 0; i++) {
+			if (i != smallest) {
+				result = sets[i].retain(result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the records holding at least one of the specified specialties,
+	 * ignoring case.
+	 * 
+	 * @param specialties
+	 *            the specialties searched for
+	 * @return the sorted record numbers of the matching records
+	 */
+	public int[] findAny(final String[] specialties) {
+		int[] result = RecordNumbers.EMPTY;
+		for (final String term : SpecialtyIndex.getCriteriaTerms(specialties)) {
+			final CompressedRecordSet set = term == null ? null : this.terms.get(term);
+			if (set != null) {
+				result = RecordNumbers.union(result, set.toArray());
+			}
+		}
+		return result;
+	}
+
+}
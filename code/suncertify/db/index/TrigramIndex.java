@@ -0,0 +1,177 @@
+package suncertify.db.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Indexes a single field on every sequence of three consecutive characters
+ * (trigram) of its case folded value, so that the records whose field value
+ * contains a given value anywhere can be found without scanning every record.
+ * <p>
+ * Each trigram maps to a {@link CompressedRecordSet} of the records holding
+ * it. A field containing a value holds every trigram of that value, so a
+ * lookup intersects the sets of the trigrams of the criteria value, smallest
+ * first. The intersection can hold records whose field has the trigrams in a
+ * different order, so the candidates must still be checked. A criteria value
+ * shorter than three characters has no trigram and can not be looked up.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+public final class TrigramIndex implements FieldIndex {
+
+	private static final int TRIGRAM_LENGTH = 3;
+
+	private final int fieldIndex;
+
+	private final ConcurrentHashMap<Integer, CompressedRecordSet> postings = new ConcurrentHashMap<Integer, CompressedRecordSet>();
+
+	private final AtomicInteger recordCount = new AtomicInteger();
+
+	/**
+	 * Creates an empty index on the specified field.
+	 * 
+	 * @param fieldIndex
+	 *            index of the field in the record data
+	 */
+	public TrigramIndex(final int fieldIndex) {
+		this.fieldIndex = fieldIndex;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getFieldIndex() {
+		return this.fieldIndex;
+	}
+
+	/**
+	 * Gets the distinct trigrams of a folded value, each packed into the lower
+	 * 24 bits of an {@code int}.
+	 */
+	private static int[] getTrigrams(final byte[] folded) {
+		if (folded.length < TrigramIndex.TRIGRAM_LENGTH) {
+			return RecordNumbers.EMPTY;
+		}
+		final int[] trigrams = new int[folded.length - TrigramIndex.TRIGRAM_LENGTH + 1];
+		for (int i = 0; i < trigrams.length; i++) {
+			trigrams[i] = (folded[i] & 0xFF) << 16 | (folded[i + 1] & 0xFF) << 8
+					| folded[i + 2] & 0xFF;
+		}
+		Arrays.sort(trigrams);
+		int count = 0;
+		for (int i = 0; i < trigrams.length; i++) {
+			if (i == 0 || trigrams[i] != trigrams[count - 1]) {
+				trigrams[count++] = trigrams[i];
+			}
+		}
+		return Arrays.copyOf(trigrams, count);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void add(final int recNo, final String[] data) {
+		for (final int trigram : TrigramIndex.getTrigrams(CaseFolding
+				.foldField(data[this.fieldIndex]))) {
+			CompressedRecordSet.add(this.postings, trigram, recNo);
+		}
+		this.recordCount.incrementAndGet();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void remove(final int recNo, final String[] data) {
+		for (final int trigram : TrigramIndex.getTrigrams(CaseFolding
+				.foldField(data[this.fieldIndex]))) {
+			CompressedRecordSet.remove(this.postings, trigram, recNo);
+		}
+		this.recordCount.decrementAndGet();
+	}
+
+	/**
+	 * Finds the records whose field value holds every trigram of the criteria
+	 * value, ignoring case.
+	 * 
+	 * @param criteria
+	 *            the value to be contained by the field
+	 * @return the sorted record numbers of the candidate records, or null if
+	 *         the value is shorter than a trigram
+	 */
+	@Override
+	public int[] findCandidates(final String criteria) {
+		if (criteria.length() < TrigramIndex.TRIGRAM_LENGTH) {
+			return null;
+		}
+		final byte[] folded = CaseFolding.foldCriteria(criteria);
+		if (folded == null) {
+			return RecordNumbers.EMPTY;
+		}
+		final int[] trigrams = TrigramIndex.getTrigrams(folded);
+		final CompressedRecordSet[] sets = new CompressedRecordSet[trigrams.length];
+		final int[] sizes = new int[trigrams.length];
+		final Integer[] order = new Integer[trigrams.length];
+		for (int i = 0; i < trigrams.length; i++) {
+			sets[i] = this.postings.get(trigrams[i]);
+			if (sets[i] == null) {
+				return RecordNumbers.EMPTY;
+			}
+			sizes[i] = sets[i].size();
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(final Integer first, final Integer second) {
+				return sizes[first] < sizes[second] ? -1 : sizes[first] == sizes[second] ? 0 : 1;
+			}
+		});
+		int[] candidates = sets[order[0]].toArray();
+		for (int i = 1; i < order.length && candidates.length > 0; i++) {
+			candidates = sets[order[i]].retain(candidates);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Estimates the number of records whose field value holds every trigram
+	 * of the criteria value by the number of records holding its rarest
+	 * trigram, which no intersection can exceed.
+	 * 
+	 * @param criteria
+	 *            the value to be contained by the field
+	 * @return the estimated number of candidate records, or -1 if the value
+	 *         is shorter than a trigram
+	 */
+	@Override
+	public int estimateCandidates(final String criteria) {
+		if (criteria.length() < TrigramIndex.TRIGRAM_LENGTH) {
+			return -1;
+		}
+		final byte[] folded = CaseFolding.foldCriteria(criteria);
+		if (folded == null) {
+			return 0;
+		}
+		int estimate = Integer.MAX_VALUE;
+		for (final int trigram : TrigramIndex.getTrigrams(folded)) {
+			final CompressedRecordSet recordNumbers = this.postings.get(trigram);
+			if (recordNumbers == null) {
+				return 0;
+			}
+			estimate = Math.min(estimate, recordNumbers.size());
+		}
+		return estimate;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getKeyCount() {
+		return this.postings.size();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getRecordCount() {
+		return this.recordCount.get();
+	}
+
+}
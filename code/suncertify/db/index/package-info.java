@@ -0,0 +1,9 @@
+/**
+ * Provides the secondary indexes maintained by the {@code Data} class over
+ * the field values of its records, so that searches need not scan every
+ * record.
+ * 
+ * @author Damien O'Toole
+ * @since 1.0
+ */
+package suncertify.db.index;
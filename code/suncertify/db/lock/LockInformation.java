@@ -1,99 +1,134 @@
 package suncertify.db.lock;
 
-import java.util.Random;
 import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Holds information about the lock on a record, i.e. whether it is locked and
- * the current lock cookie value.
+ * Holds information about the lock on a record, i.e. the current lock cookie
+ * value, the time its lease runs out, the number of changes in progress under
+ * the lock and the number of threads waiting for the lock to be released.
  * <p>
- * Provides methods to lock and unlock a single <code>Subcontractor</code>.
+ * An instance only exists while its record is locked or waited on, and is
+ * held by a {@link LockTable}, whose lock guards every field of the instance.
  * <p>
- * When a thread tries to acquire a lock that is already locked, it is blocked
- * on an internal condition variable.
- * <p>
- * When a lock is released, threads waiting for its release are notified via the
- * condition variable.
+ * When a thread tries to acquire a lock that is already locked, it waits on
+ * the condition variable of the instance. When the lock is released, a thread
+ * waiting for its release is notified via the condition variable.
  * 
  * @version 1.0
  * @author Damien O'Toole
  * 
  */
-public class LockInformation {
-
-	private static final Random RANDOM = new Random();
+final class LockInformation {
 
-	private final Lock lock = new ReentrantLock();
+	private final Condition lockReleased;
 
 	private long cookie;
 
+	private long leaseExpiry;
+
 	private boolean locked;
 
-	private final Condition lockReleased = this.lock.newCondition();
+	private int changes;
+
+	private int waiters;
 
 	/**
-	 * Creates a new {@link LockInformation} instance.
+	 * Creates a new {@link LockInformation} instance for a record being
+	 * locked.
+	 * 
+	 * @param lockReleased
+	 *            the condition signalled when the lock is released, created
+	 *            from the lock of the {@code LockTable}
+	 * @param cookie
+	 *            the cookie value of the lock
+	 * @param leaseExpiry
+	 *            the {@link System#nanoTime()} at which the lease of the lock
+	 *            runs out
 	 */
-	public LockInformation() {
-		this.cookie = 0;
-		this.locked = false;
+	LockInformation(final Condition lockReleased, final long cookie, final long leaseExpiry) {
+		this.lockReleased = lockReleased;
+		this.cookie = cookie;
+		this.leaseExpiry = leaseExpiry;
+		this.locked = true;
 	}
 
 	/**
-	 * locks the record.
-	 * <p>
-	 * If the lock is not held by any thread, it is locked and a new cookie
-	 * value is generated and returned.
-	 * <p>
-	 * If the lock is already held, the current thread waits on the condition
-	 * variable until it is signaled that the lock is available. After being
-	 * woken up, the thread tries again to get the lock, until it is successful.
+	 * Gets the condition signalled when the lock is released.
+	 * 
+	 * @return the condition
 	 */
-	public long lock() {
-		this.lock.lock();
-		try {
-			while (this.locked) {
-				this.lockReleased.awaitUninterruptibly();
-			}
-			this.locked = true;
-			this.cookie = LockInformation.RANDOM.nextLong();
-
-			return this.cookie;
-		} finally {
-			this.lock.unlock();
-		}
+	Condition getLockReleased() {
+		return this.lockReleased;
 	}
 
 	/**
-	 * unlocks the record.
-	 * <p>
-	 * Once record is unlocked, a notification is sent for any thread waiting on
-	 * the lock to now retry to lock the record.
+	 * Tells whether the record is locked.
 	 * 
-	 * @param cookie
-	 *            cookie value to authorize the unlock
-	 * @throws SecurityException
-	 *             if the record is locked with a cookie other than the cookie
-	 *             supplied
+	 * @return true if the record is locked
+	 */
+	boolean isLocked() {
+		return this.locked;
+	}
+
+	/**
+	 * Locks the record with a new cookie value.
+	 * 
+	 * @param newCookie
+	 *            the cookie value of the lock
+	 * @param newLeaseExpiry
+	 *            the {@link System#nanoTime()} at which the lease of the lock
+	 *            runs out
+	 */
+	void lock(final long newCookie, final long newLeaseExpiry) {
+		this.locked = true;
+		this.cookie = newCookie;
+		this.leaseExpiry = newLeaseExpiry;
+	}
+
+	/**
+	 * Extends the lease of the lock.
+	 * 
+	 * @param newLeaseExpiry
+	 *            the {@link System#nanoTime()} at which the lease of the lock
+	 *            now runs out
+	 */
+	void renew(final long newLeaseExpiry) {
+		this.leaseExpiry = newLeaseExpiry;
+	}
+
+	/**
+	 * Tells whether the record is locked with a lease that ran out.
+	 * 
+	 * @param now
+	 *            the current {@link System#nanoTime()}
+	 * @return true if the lease of the lock expired
+	 */
+	boolean isExpired(final long now) {
+		return this.locked && this.changes == 0 && now - this.leaseExpiry >= 0;
+	}
+
+	/**
+	 * Records that a change of the record starts under the lock. The lease
+	 * cannot run out until the change ends.
 	 */
-	public void unlock(final long cookie) throws SecurityException {
-		this.lock.lock();
-		try {
-			if (this.cookie != cookie) {
-				// can't release the lock as not owner (wrong cookie value)
-				throw new SecurityException("Invalid cookie value");
-			} else {
-				this.locked = false;
-				this.cookie = 0;
-
-				// notify waiting threads about this lock's release
-				this.lockReleased.signal();
-			}
-		} finally {
-			this.lock.unlock();
-		}
+	void beginChange() {
+		this.changes++;
+	}
+
+	/**
+	 * Records that a change of the record under the lock ended.
+	 */
+	void endChange() {
+		this.changes--;
+	}
+
+	/**
+	 * Unlocks the record.
+	 */
+	void unlock() {
+		this.locked = false;
+		this.cookie = 0;
+		this.changes = 0;
 	}
 
 	/**
@@ -101,7 +136,40 @@ public class LockInformation {
 	 * 
 	 * @return the current cookie value
 	 */
-	public long getCookie() {
+	long getCookie() {
 		return this.cookie;
 	}
+
+	/**
+	 * Gets the number of threads waiting for the lock to be released.
+	 * 
+	 * @return the number of waiting threads
+	 */
+	int getWaiters() {
+		return this.waiters;
+	}
+
+	/**
+	 * Records that a thread starts waiting for the lock to be released.
+	 */
+	void addWaiter() {
+		this.waiters++;
+	}
+
+	/**
+	 * Records that a thread stopped waiting for the lock to be released.
+	 */
+	void removeWaiter() {
+		this.waiters--;
+	}
+
+	/**
+	 * Tells whether the instance can be evicted from its table, as the record
+	 * is neither locked nor waited on.
+	 * 
+	 * @return true if the instance is idle
+	 */
+	boolean isIdle() {
+		return !this.locked && this.waiters == 0;
+	}
 }
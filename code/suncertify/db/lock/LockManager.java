@@ -1,27 +1,70 @@
 package suncertify.db.lock;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Used to manage locks on a given record.
  * <p>
  * The operations to lock and unlock a record are delegated by the Data
  * implementation to an instance of this class. Internally, lock information is
- * stored in a static hashmap, mapping record numbers to lock entries.
+ * stored in a fixed number of {@link LockTable} stripes, each guarded by its
+ * own lock and selected by the hash of the record number, so records in
+ * different stripes are locked without contention. A stripe only holds an
+ * entry while the record is locked or waited on, so the memory used is bounded
+ * by the number of locks in use, however many record numbers are touched.
+ * <p>
+ * Locks may be leased for a limited time, so that a lock abandoned by a
+ * client that died while holding it does not keep the record locked forever.
+ * The lease is renewed whenever the lock is used to change the record, cannot
+ * run out while such a change is in progress, and {@link #expireLeases()} must
+ * be called periodically to release the locks whose lease ran out.
+ * <p>
+ * Several records can be locked together with a single <i>cookie</i>. They
+ * are always locked in ascending record number order, so callers locking
+ * overlapping sets of records can never deadlock one another.
  * 
  * @version 1.0
  * @author Damien O'Toole
  */
 public class LockManager {
 
-	private static ConcurrentHashMap<Integer, LockInformation> lockRecordMap = new ConcurrentHashMap<Integer, LockInformation>();
+	private static final int STRIPE_BITS = 6;
+
+	private final LockTable[] stripes = new LockTable[1 << LockManager.STRIPE_BITS];
+
+	/**
+	 * Creates a new {@link LockManager} without any locked record, whose locks
+	 * are held until they are unlocked.
+	 */
+	public LockManager() {
+		this(0);
+	}
+
+	/**
+	 * Creates a new {@link LockManager} without any locked record, whose locks
+	 * are leased for the specified time.
+	 * 
+	 * @param leaseMillis
+	 *            the time in milliseconds a lock is held after it was acquired
+	 *            or last used, or 0 if locks are held until they are unlocked
+	 */
+	public LockManager(final long leaseMillis) {
+		if (leaseMillis < 0) {
+			throw new IllegalArgumentException("lease time must not be negative");
+		}
+		final long leaseNanos = TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+		for (int i = 0; i < this.stripes.length; i++) {
+			this.stripes[i] = new LockTable(leaseNanos);
+		}
+	}
 
 	/**
 	 * locks a record with the given record number and returns a unique
 	 * <i>cookie</i> value of the lock.
 	 * <p>
-	 * This method blocks until the lock succeeds.Threads trying to lock are
-	 * synchronized on the corresponding {@link LockInformation} instance.
+	 * This method blocks until the lock succeeds. Threads trying to lock wait
+	 * on the condition of the corresponding {@link LockInformation} instance.
 	 * <p>
 	 * i.e. if a lock is already held by another thread the calling thread
 	 * suspends execution and must be notified when the lock is released.
@@ -31,12 +74,103 @@ public class LockManager {
 	 * @return <i>cookie</i> value of the lock after it is successfully locked
 	 */
 	public long lock(final int recordNo) {
-		final LockInformation lockRecord = this.getLockRecord(recordNo);
-		final long cookie = lockRecord.lock();
+		return this.getStripe(recordNo).lock(recordNo);
+	}
 
+	/**
+	 * Locks a record with the given record number and returns a unique
+	 * <i>cookie</i> value of the lock, waiting no longer than the specified
+	 * timeout for another thread to release the lock.
+	 * 
+	 * @param recordNo
+	 *            the record number
+	 * @param timeoutMillis
+	 *            the longest time to wait for the lock in milliseconds
+	 * @return <i>cookie</i> value of the lock after it is successfully locked,
+	 *         or 0 if the record is still locked when the timeout elapses
+	 * @throws IllegalArgumentException
+	 *             if the timeout is negative
+	 */
+	public long tryLock(final int recordNo, final long timeoutMillis) {
+		if (timeoutMillis < 0) {
+			throw new IllegalArgumentException("timeout must not be negative");
+		}
+		return this.getStripe(recordNo).tryLock(recordNo,
+				TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+	}
+
+	/**
+	 * Locks every record with the given record numbers and returns a single
+	 * <i>cookie</i> value, valid for each of the records.
+	 * <p>
+	 * The records are locked one at a time in ascending record number order,
+	 * blocking until each of them is locked, so that two callers locking
+	 * overlapping sets of records always lock the records they share in the
+	 * same order. A record number given more than once is locked once.
+	 * 
+	 * @param recordNos
+	 *            the record numbers
+	 * @return <i>cookie</i> value of the locks after they are all locked
+	 * @throws IllegalArgumentException
+	 *             if no record number is given
+	 */
+	public long lockAll(final int[] recordNos) {
+		final int[] ordered = LockManager.toCanonicalOrder(recordNos);
+		final long cookie = LockTable.newCookie();
+		for (final int recordNo : ordered) {
+			this.getStripe(recordNo).lock(recordNo, cookie);
+		}
 		return cookie;
 	}
 
+	/**
+	 * Unlocks every record with the given record numbers, locked together by
+	 * {@link #lockAll(int[])}. Every record locked with the supplied
+	 * <i>cookie</i> is unlocked, even if another is not.
+	 * 
+	 * @param recordNos
+	 *            the record numbers
+	 * @param cookie
+	 *            <i>cookie</i> value of the locks
+	 * @throws SecurityException
+	 *             if any of the records is not locked, or locked with a
+	 *             <i>cookie</i> other than the supplied <i>cookie</i>
+	 * @throws IllegalArgumentException
+	 *             if no record number is given
+	 */
+	public void unlockAll(final int[] recordNos, final long cookie) throws SecurityException {
+		final int[] ordered = LockManager.toCanonicalOrder(recordNos);
+		SecurityException failure = null;
+		for (int i = ordered.length - 1; i >= 0; i--) {
+			try {
+				this.getStripe(ordered[i]).unlock(ordered[i], cookie);
+			} catch (final SecurityException securityException) {
+				failure = securityException;
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Sorts a copy of the record numbers and drops the duplicates.
+	 */
+	private static int[] toCanonicalOrder(final int[] recordNos) {
+		if (recordNos == null || recordNos.length == 0) {
+			throw new IllegalArgumentException("record numbers must not be empty");
+		}
+		final int[] ordered = recordNos.clone();
+		Arrays.sort(ordered);
+		int count = 1;
+		for (int i = 1; i < ordered.length; i++) {
+			if (ordered[i] != ordered[count - 1]) {
+				ordered[count++] = ordered[i];
+			}
+		}
+		return Arrays.copyOf(ordered, count);
+	}
+
 	/**
 	 * Unlock a record for a given record number. To unlock a previously locked
 	 * record the <i>cookie</i> must match the locked record.
@@ -46,18 +180,18 @@ public class LockManager {
 	 * @param cookie
 	 *            <i>cookie</i> value of the lock
 	 * @throws SecurityException
-	 *             if the record is locked with a <i>cookie</i> other than the
-	 *             supplied <i>cookie</i>
+	 *             if the record is not locked, or locked with a <i>cookie</i>
+	 *             other than the supplied <i>cookie</i>
 	 */
 	public void unlock(final int recordNo, final long cookie) throws SecurityException {
-		final LockInformation lockRecord = this.getLockRecord(recordNo);
-		lockRecord.unlock(cookie);
+		this.getStripe(recordNo).unlock(recordNo, cookie);
 	}
 
 	/**
 	 * Checks if the record with the specified number is locked with the
 	 * specified cookie value. If the correct <i>cookie</i> value is used, the
-	 * method simply returns. If the wrong <i>cookie</i> value is supplied, a
+	 * lease of the lock is renewed and the method returns. If the wrong
+	 * <i>cookie</i> value is supplied, or the lease of the lock ran out, a
 	 * {@code SecurityException} is thrown.
 	 * 
 	 * @param recordNo
@@ -65,21 +199,87 @@ public class LockManager {
 	 * @param cookie
 	 *            the <i>cookie</i> value
 	 * @throws SecurityException
-	 *             if the record is locked with a <i>cookie</i> other than the
-	 *             supplied <i>cookie</i>
+	 *             if the record is not locked, or locked with a <i>cookie</i>
+	 *             other than the supplied <i>cookie</i>, or the lease of the
+	 *             lock ran out
 	 */
 	public void checkCookie(final int recordNo, final long cookie) throws SecurityException {
-		LockInformation lockRecord = new LockInformation();
-		lockRecord = LockManager.lockRecordMap.putIfAbsent(recordNo, lockRecord);
-		if (lockRecord.getCookie() != cookie) {
-			throw new SecurityException("Invalid cookie value");
+		this.getStripe(recordNo).checkCookie(recordNo, cookie);
+	}
+
+	/**
+	 * Checks if the record with the specified number is locked with the
+	 * specified cookie value, and starts a change of the record under the
+	 * lock. The lease of the lock cannot run out until
+	 * {@link #endChange(int, long)} is called, so the change is applied by the
+	 * holder of the lock however long it takes.
+	 * 
+	 * @param recordNo
+	 *            the record number
+	 * @param cookie
+	 *            the <i>cookie</i> value
+	 * @throws SecurityException
+	 *             if the record is not locked, or locked with a <i>cookie</i>
+	 *             other than the supplied <i>cookie</i>, or the lease of the
+	 *             lock ran out
+	 */
+	public void beginChange(final int recordNo, final long cookie) throws SecurityException {
+		this.getStripe(recordNo).beginChange(recordNo, cookie);
+	}
+
+	/**
+	 * Ends a change of a record started by {@link #beginChange(int, long)} and
+	 * renews the lease of the lock. Must be called once for every successful
+	 * call of {@code beginChange}, whether the change succeeded or not.
+	 * 
+	 * @param recordNo
+	 *            the record number
+	 * @param cookie
+	 *            the <i>cookie</i> value
+	 */
+	public void endChange(final int recordNo, final long cookie) {
+		this.getStripe(recordNo).endChange(recordNo, cookie);
+	}
+
+	/**
+	 * Releases every lock whose lease ran out, waking a thread waiting for
+	 * each of them. Does nothing if locks are not leased.
+	 */
+	public void expireLeases() {
+		for (final LockTable stripe : this.stripes) {
+			stripe.expireLeases();
 		}
 	}
 
-	private LockInformation getLockRecord(final int recordNo) {
-		final LockInformation lockRecord = new LockInformation();
-		LockManager.lockRecordMap.putIfAbsent(recordNo, lockRecord);
-		return LockManager.lockRecordMap.get(recordNo);
+	/**
+	 * Gets the statistics of the locks currently held and of the leases that
+	 * expired so far.
+	 * 
+	 * @return the lock statistics
+	 */
+	public LockStatistics getStatistics() {
+		long expiredLeaseCount = 0;
+		for (final LockTable stripe : this.stripes) {
+			expiredLeaseCount += stripe.getExpiredLeaseCount();
+		}
+		return new LockStatistics(this.getEntryCount(), expiredLeaseCount);
+	}
+
+	/**
+	 * Gets the number of records currently locked or waited on, i.e. the
+	 * number of entries held by the lock table.
+	 * 
+	 * @return the number of lock entries
+	 */
+	int getEntryCount() {
+		int count = 0;
+		for (final LockTable stripe : this.stripes) {
+			count += stripe.size();
+		}
+		return count;
+	}
 
+	private LockTable getStripe(final int recordNo) {
+		return this.stripes[LockTable.hash(recordNo) >>> (Integer.SIZE - LockManager.STRIPE_BITS)];
 	}
 }
@@ -0,0 +1,63 @@
+package suncertify.db.lock;
+
+/**
+ * An immutable snapshot of the locks managed by a {@link LockManager}.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ * @see LockManager#getStatistics()
+ */
+public final class LockStatistics {
+
+	/** Statistics of a lock manager that has not locked any record yet. */
+	public static final LockStatistics NONE = new LockStatistics(0, 0);
+
+	private final int lockCount;
+
+	private final long expiredLeaseCount;
+
+	/**
+	 * Creates a new {@link LockStatistics} instance.
+	 * 
+	 * @param lockCount
+	 *            number of records locked or waited on
+	 * @param expiredLeaseCount
+	 *            number of locks released because their lease ran out
+	 */
+	LockStatistics(final int lockCount, final long expiredLeaseCount) {
+		this.lockCount = lockCount;
+		this.expiredLeaseCount = expiredLeaseCount;
+	}
+
+	/**
+	 * Gets the number of records locked, or waited on by a thread about to
+	 * lock them.
+	 * 
+	 * @return the lock count
+	 */
+	public int getLockCount() {
+		return this.lockCount;
+	}
+
+	/**
+	 * Gets the number of locks released because their lease ran out before
+	 * they were unlocked.
+	 * 
+	 * @return the expired lease count
+	 */
+	public long getExpiredLeaseCount() {
+		return this.expiredLeaseCount;
+	}
+
+	/**
+	 * Returns a String representation of these statistics.
+	 * 
+	 * @return String representation of these statistics.
+	 */
+	@Override
+	public String toString() {
+		return "LockStatistics [locks:" + this.lockCount + ", expiredLeases:"
+				+ this.expiredLeaseCount + "]";
+	}
+
+}
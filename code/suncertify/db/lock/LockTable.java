@@ -0,0 +1,416 @@
+package suncertify.db.lock;
+
+import java.util.Random;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A stripe of the lock table of a {@link LockManager}, holding the locks of
+ * the records whose numbers hash to it.
+ * <p>
+ * Record numbers are kept in a primitive open addressing table with linear
+ * probing, so looking up a lock neither boxes the record number nor allocates.
+ * An entry is only kept while its record is locked or waited on: the last
+ * thread releasing or giving up on a lock removes it, while holding the table
+ * lock, so a thread can never wait on an entry that has been evicted. Removal
+ * shifts the following entries of the probe sequence back instead of leaving
+ * a marker, and the table shrinks again once most of its entries are gone.
+ * <p>
+ * When leases are enabled, a lock is only held for the lease time after it
+ * was acquired or last used. A lock whose lease ran out is released, waking a
+ * waiting thread, by {@link #expireLeases()} or as soon as it is used again.
+ * The lease of a lock cannot run out while a change made under the lock is in
+ * progress.
+ * 
+ * @version 1.0
+ * @author Damien O'Toole
+ */
+final class LockTable {
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	private static final Random RANDOM = new Random();
+
+	private final Lock lock = new ReentrantLock();
+
+	private int[] recordNumbers = new int[LockTable.INITIAL_CAPACITY];
+
+	private LockInformation[] entries = new LockInformation[LockTable.INITIAL_CAPACITY];
+
+	private final long leaseNanos;
+
+	private int size;
+
+	private long expiredLeaseCount;
+
+	/**
+	 * Creates an empty lock table.
+	 * 
+	 * @param leaseNanos
+	 *            the lease time of a lock in nanoseconds, or 0 if locks are
+	 *            held until they are unlocked
+	 */
+	LockTable(final long leaseNanos) {
+		this.leaseNanos = leaseNanos;
+	}
+
+	/**
+	 * Spreads the bits of a record number, so consecutive record numbers do
+	 * not fill consecutive slots.
+	 * 
+	 * @param recordNo
+	 *            the record number
+	 * @return the hash of the record number
+	 */
+	static int hash(final int recordNo) {
+		final int hash = recordNo * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Locks a record, blocking until it is not locked by another caller.
+	 * 
+	 * @param recordNo
+	 *            the record number
+	 * @return <i>cookie</i> value of the lock
+	 */
+	long lock(final int recordNo) {
+		return this.acquire(recordNo, LockTable.newCookie(), false, 0);
+	}
+
+	/**
+	 * Locks a record with the specified <i>cookie</i>, blocking until it is
+	 * not locked by another caller.
+	 * 
+	 * @param recordNo
+	 *            the record number
+	 * @param cookie
+	 *            <i>cookie</i> value of the lock, as returned by
+	 *            {@link #newCookie()}
+	 */
+	void lock(final int recordNo, final long cookie) {
+		this.acquire(recordNo, cookie, false, 0);
+	}
+
+	/**
+	 * Locks a record, blocking until it is not locked by another caller or
+	 * the timeout elapses.
+	 * 
+	 * @param recordNo
+	 *            the record number
+	 * @param timeoutNanos
+	 *            the longest time to wait for the lock in nanoseconds
+	 * @return <i>cookie</i> value of the lock, or 0 if the record is still
+	 *         locked by another caller when the timeout elapses
+	 */
+	long tryLock(final int recordNo, final long timeoutNanos) {
+		return this.acquire(recordNo, LockTable.newCookie(), true, timeoutNanos);
+	}
+
+	private long acquire(final int recordNo, final long cookie, final boolean timed,
+			final long timeoutNanos) {
+		this.lock.lock();
+		try {
+			final int slot = this.find(recordNo);
+			if (slot < 0) {
+				this.insert(recordNo, new LockInformation(this.lock.newCondition(), cookie,
+						System.nanoTime() + this.leaseNanos));
+				return cookie;
+			}
+			final LockInformation lockRecord = this.entries[slot];
+			if (this.isExpired(lockRecord, System.nanoTime())) {
+				lockRecord.unlock();
+				this.expiredLeaseCount++;
+			}
+			long remainingNanos = timeoutNanos;
+			lockRecord.addWaiter();
+			try {
+				while (lockRecord.isLocked()) {
+					if (!timed) {
+						lockRecord.getLockReleased().awaitUninterruptibly();
+					} else if (remainingNanos <= 0) {
+						// The entry is still locked, so it is not idle and no
+						// release was signalled to this thread in vain
+						return 0;
+					} else {
+						try {
+							remainingNanos = lockRecord.getLockReleased().awaitNanos(remainingNanos);
+						} catch (final InterruptedException interruptedException) {
+							Thread.currentThread().interrupt();
+							remainingNanos = 0;
+						}
+					}
+				}
+			} finally {
+				lockRecord.removeWaiter();
+			}
+			lockRecord.lock(cookie, System.nanoTime() + this.leaseNanos);
+			return cookie;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Unlocks a record, evicting its entry unless other callers wait for it.
+	 * 
+	 * @param recordNo
+	 *            the record number
+	 * @param cookie
+	 *            <i>cookie</i> value of the lock
+	 * @throws SecurityException
+	 *             if the record is not locked with the supplied <i>cookie</i>
+	 */
+	void unlock(final int recordNo, final long cookie) throws SecurityException {
+		this.lock.lock();
+		try {
+			final int slot = this.findLocked(recordNo, cookie);
+			final LockInformation lockRecord = this.entries[slot];
+			lockRecord.unlock();
+			if (lockRecord.isIdle()) {
+				this.remove(slot);
+			} else {
+				lockRecord.getLockReleased().signal();
+			}
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Checks that a record is locked with the supplied <i>cookie</i>, renewing
+	 * the lease of the lock.
+	 * 
+	 * @param recordNo
+	 *            the record number
+	 * @param cookie
+	 *            the <i>cookie</i> value
+	 * @throws SecurityException
+	 *             if the record is not locked with the supplied <i>cookie</i>,
+	 *             or the lease of the lock ran out
+	 */
+	void checkCookie(final int recordNo, final long cookie) throws SecurityException {
+		this.lock.lock();
+		try {
+			final int slot = this.findLocked(recordNo, cookie);
+			final long now = System.nanoTime();
+			if (this.isExpired(this.entries[slot], now)) {
+				this.expire(slot);
+				throw new SecurityException("Lock lease expired");
+			}
+			this.entries[slot].renew(now + this.leaseNanos);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Checks that a record is locked with the supplied <i>cookie</i> and
+	 * starts a change of the record under the lock, which keeps the lease from
+	 * running out until {@link #endChange(int, long)} is called.
+	 * 
+	 * @param recordNo
+	 *            the record number
+	 * @param cookie
+	 *            the <i>cookie</i> value
+	 * @throws SecurityException
+	 *             if the record is not locked with the supplied <i>cookie</i>,
+	 *             or the lease of the lock ran out
+	 */
+	void beginChange(final int recordNo, final long cookie) throws SecurityException {
+		this.lock.lock();
+		try {
+			final int slot = this.findLocked(recordNo, cookie);
+			if (this.isExpired(this.entries[slot], System.nanoTime())) {
+				this.expire(slot);
+				throw new SecurityException("Lock lease expired");
+			}
+			this.entries[slot].beginChange();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Ends a change of a record started by {@link #beginChange(int, long)},
+	 * renewing the lease of the lock. Does nothing if the record was unlocked
+	 * in the meantime.
+	 * 
+	 * @param recordNo
+	 *            the record number
+	 * @param cookie
+	 *            the <i>cookie</i> value
+	 */
+	void endChange(final int recordNo, final long cookie) {
+		this.lock.lock();
+		try {
+			final int slot = this.find(recordNo);
+			if (slot >= 0 && this.entries[slot].isLocked()
+					&& this.entries[slot].getCookie() == cookie) {
+				this.entries[slot].endChange();
+				this.entries[slot].renew(System.nanoTime() + this.leaseNanos);
+			}
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Releases every lock whose lease ran out, waking a thread waiting for
+	 * each of them.
+	 */
+	void expireLeases() {
+		if (this.leaseNanos == 0) {
+			return;
+		}
+		this.lock.lock();
+		try {
+			final long now = System.nanoTime();
+			int slot = 0;
+			while (slot < this.entries.length) {
+				final int capacity = this.entries.length;
+				if (this.entries[slot] != null && this.isExpired(this.entries[slot], now)
+						&& this.expire(slot)) {
+					// Removal shifts a later entry into this slot, or shrinks
+					// the table so that it has to be looked through again
+					if (this.entries.length != capacity) {
+						slot = 0;
+					}
+				} else {
+					slot++;
+				}
+			}
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of locks released because their lease ran out.
+	 * 
+	 * @return the number of expired leases
+	 */
+	long getExpiredLeaseCount() {
+		this.lock.lock();
+		try {
+			return this.expiredLeaseCount;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of records locked or waited on.
+	 * 
+	 * @return the number of entries in the table
+	 */
+	int size() {
+		this.lock.lock();
+		try {
+			return this.size;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	private boolean isExpired(final LockInformation lockRecord, final long now) {
+		return this.leaseNanos > 0 && lockRecord.isExpired(now);
+	}
+
+	private boolean expire(final int slot) {
+		final LockInformation lockRecord = this.entries[slot];
+		lockRecord.unlock();
+		this.expiredLeaseCount++;
+		if (lockRecord.isIdle()) {
+			this.remove(slot);
+			return true;
+		}
+		lockRecord.getLockReleased().signal();
+		return false;
+	}
+
+	/**
+	 * Generates a random <i>cookie</i> value, never 0.
+	 * 
+	 * @return the <i>cookie</i> value
+	 */
+	static long newCookie() {
+		long cookie;
+		do {
+			cookie = LockTable.RANDOM.nextLong();
+		} while (cookie == 0);
+		return cookie;
+	}
+
+	private int findLocked(final int recordNo, final long cookie) {
+		final int slot = this.find(recordNo);
+		if (slot < 0 || !this.entries[slot].isLocked() || this.entries[slot].getCookie() != cookie) {
+			throw new SecurityException("Invalid cookie value");
+		}
+		return slot;
+	}
+
+	private int find(final int recordNo) {
+		final int mask = this.entries.length - 1;
+		for (int slot = LockTable.hash(recordNo) & mask; this.entries[slot] != null; slot = (slot + 1)
+				& mask) {
+			if (this.recordNumbers[slot] == recordNo) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private void insert(final int recordNo, final LockInformation lockRecord) {
+		if ((this.size + 1) * 2 > this.entries.length) {
+			this.resize(this.entries.length * 2);
+		}
+		this.put(recordNo, lockRecord);
+		this.size++;
+	}
+
+	private void put(final int recordNo, final LockInformation lockRecord) {
+		final int mask = this.entries.length - 1;
+		int slot = LockTable.hash(recordNo) & mask;
+		while (this.entries[slot] != null) {
+			slot = (slot + 1) & mask;
+		}
+		this.recordNumbers[slot] = recordNo;
+		this.entries[slot] = lockRecord;
+	}
+
+	private void remove(final int removedSlot) {
+		final int mask = this.entries.length - 1;
+		int emptySlot = removedSlot;
+		int slot = (removedSlot + 1) & mask;
+		while (this.entries[slot] != null) {
+			// An entry can fill the empty slot if that slot lies on its probe
+			// sequence, i.e. between its home slot and its current slot
+			final int homeSlot = LockTable.hash(this.recordNumbers[slot]) & mask;
+			if (((slot - homeSlot) & mask) >= ((slot - emptySlot) & mask)) {
+				this.recordNumbers[emptySlot] = this.recordNumbers[slot];
+				this.entries[emptySlot] = this.entries[slot];
+				emptySlot = slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		this.entries[emptySlot] = null;
+		this.size--;
+		if (this.entries.length > LockTable.INITIAL_CAPACITY && this.size * 8 < this.entries.length) {
+			this.resize(this.entries.length / 2);
+		}
+	}
+
+	private void resize(final int capacity) {
+		final int[] oldRecordNumbers = this.recordNumbers;
+		final LockInformation[] oldEntries = this.entries;
+		this.recordNumbers = new int[capacity];
+		this.entries = new LockInformation[capacity];
+		for (int slot = 0; slot < oldEntries.length; slot++) {
+			if (oldEntries[slot] != null) {
+				this.put(oldRecordNumbers[slot], oldEntries[slot]);
+			}
+		}
+	}
+
+}
@@ -108,6 +108,14 @@ public class DatabaseSchema {
 			DatabaseSchema.FIELD_LENGTH_SIZE, DatabaseSchema.FIELD_LENGTH_RATE,
 			DatabaseSchema.FIELD_LENGTH_OWNER };
 
+	/**
+	 * Field names, in the order of the fields.
+	 */
+	public static final String[] FIELD_NAMES = new String[] { DatabaseSchema.FIELD_NAME_NAME,
+			DatabaseSchema.FIELD_NAME_LOCATION, DatabaseSchema.FIELD_NAME_SPECIALTIES,
+			DatabaseSchema.FIELD_NAME_SIZE, DatabaseSchema.FIELD_NAME_RATE,
+			DatabaseSchema.FIELD_NAME_OWNER };
+
 	static {
 		int tempFieldLeghtTotal = 0;
 		for (final int fieldLength : DatabaseSchema.FIELD_LENGTHS) {
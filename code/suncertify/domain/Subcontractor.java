@@ -40,6 +40,11 @@ public class Subcontractor {
 	 */
 	public static final int INDEX_OWNER = 5;
 
+	/**
+	 * Version of a {@code Subcontractor} whose record version is not known
+	 */
+	public static final long NO_VERSION = 0;
+
 	private static final int NO_RECORD_NUMBER_ASSIGNED = -1;
 
 	private RecordState state;
@@ -58,6 +63,8 @@ public class Subcontractor {
 
 	private final int recordNumber;
 
+	private long version = Subcontractor.NO_VERSION;
+
 	/**
 	 * Creates an instance of a {@code Subcontractor} with a specified record
 	 * number, a {@code RecordState} and a list of initial values.
@@ -120,6 +127,25 @@ public class Subcontractor {
 		return this.recordNumber;
 	}
 
+	/**
+	 * Gets the version of the record this {@code Subcontractor} was read from.
+	 * 
+	 * @return the record version, or {@link #NO_VERSION} if it is not known
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Sets the version of the record this {@code Subcontractor} was read from.
+	 * 
+	 * @param version
+	 *            the record version, or {@link #NO_VERSION} if it is not known
+	 */
+	public void setVersion(final long version) {
+		this.version = version;
+	}
+
 	/**
 	 * The {@code RecordState} of the {@code Subcontractor} entry in the
 	 * database.
@@ -5,14 +5,19 @@ import java.rmi.RemoteException;
 
 import suncertify.db.DB;
 import suncertify.db.DuplicateKeyException;
+import suncertify.db.FoundRecords;
+import suncertify.db.MatchMode;
+import suncertify.db.PagedDB;
+import suncertify.db.RangeField;
 import suncertify.db.RecordNotFoundException;
+import suncertify.db.VersionedRecord;
 
 /**
  * The Interface DBRemote.
  * 
  * Remote interface for network launched clients. This interface needs to be an
- * exact match for the {@link DB} interface stored in the {@code suncertify.db}
- * package. <br>
+ * exact match for the {@link PagedDB} interface, and so of the {@link DB}
+ * interface, stored in the {@code suncertify.db} package. <br>
  * Method signatures are identical except that they can now also have a
  * {@code RemoteException} thrown. This is to allow for RMI interaction from
  * other JVM execution(s).
@@ -94,6 +99,119 @@ public interface DBRemote extends Remote {
 	 */
 	public int[] find(String[] criteria) throws RemoteException;
 
+	/**
+	 * Returns an array of up to {@code limit} record numbers, in ascending
+	 * order, of the records matching the specified criteria whose record
+	 * number is greater than {@code afterRecNo}. The first page is found with
+	 * an {@code afterRecNo} of 0, each next page with the last record number
+	 * of the previous page.
+	 * 
+	 * @param criteria
+	 *            the criteria to be used for finding the applicable record(s)
+	 * @param afterRecNo
+	 *            the record number after which the matching records are
+	 *            returned
+	 * @param limit
+	 *            the maximum number of record numbers to be returned
+	 * @return the array of record numbers that match the specified criteria
+	 * @throws RemoteException
+	 *             if a networking error has occurred
+	 * @see suncertify.db.PagedDB#find(String[], int, int)
+	 */
+	public int[] find(String[] criteria, int afterRecNo, int limit) throws RemoteException;
+
+	/**
+	 * Returns up to {@code limit} records matching the specified criteria
+	 * whose record number is greater than {@code afterRecNo}, together with
+	 * their field values, in a single response.
+	 * 
+	 * @param criteria
+	 *            the criteria to be used for finding the applicable record(s)
+	 * @param afterRecNo
+	 *            the record number after which the matching records are
+	 *            returned
+	 * @param limit
+	 *            the maximum number of records to be returned
+	 * @return the matching records in ascending record number order
+	 * @throws RemoteException
+	 *             if a networking error has occurred
+	 * @see suncertify.db.PagedDB#findRecords(String[], int, int)
+	 */
+	public FoundRecords findRecords(String[] criteria, int afterRecNo, int limit)
+			throws RemoteException;
+
+	/**
+	 * Returns up to {@code limit} records matching the specified criteria in
+	 * the specified way whose record number is greater than
+	 * {@code afterRecNo}, together with their field values, in a single
+	 * response.
+	 * 
+	 * @param criteria
+	 *            the criteria to be used for finding the applicable record(s)
+	 * @param matchMode
+	 *            how a criteria value matches a field value
+	 * @param afterRecNo
+	 *            the record number after which the matching records are
+	 *            returned
+	 * @param limit
+	 *            the maximum number of records to be returned
+	 * @return the matching records in ascending record number order
+	 * @throws RemoteException
+	 *             if a networking error has occurred
+	 * @see suncertify.db.PagedDB#findRecords(String[], MatchMode, int, int)
+	 */
+	public FoundRecords findRecords(String[] criteria, MatchMode matchMode, int afterRecNo,
+			int limit) throws RemoteException;
+
+	/**
+	 * Returns up to {@code limit} records holding all, or any, of the
+	 * specified specialties whose record number is greater than
+	 * {@code afterRecNo}, together with their field values, in a single
+	 * response.
+	 * 
+	 * @param specialties
+	 *            the specialties searched for
+	 * @param matchAll
+	 *            true if a record must hold every specialty, false if any one
+	 *            suffices
+	 * @param afterRecNo
+	 *            the record number after which the matching records are
+	 *            returned
+	 * @param limit
+	 *            the maximum number of records to be returned
+	 * @return the matching records in ascending record number order
+	 * @throws RemoteException
+	 *             if a networking error has occurred
+	 * @see suncertify.db.PagedDB#findBySpecialties(String[], boolean, int, int)
+	 */
+	public FoundRecords findBySpecialties(String[] specialties, boolean matchAll, int afterRecNo,
+			int limit) throws RemoteException;
+
+	/**
+	 * Returns an array of up to {@code limit} record numbers, in ascending
+	 * order, of the records whose numeric field value lies within the
+	 * specified range and whose record number is greater than
+	 * {@code afterRecNo}.
+	 * 
+	 * @param field
+	 *            the numeric field
+	 * @param minimum
+	 *            the lowest value of the range, inclusive
+	 * @param maximum
+	 *            the highest value of the range, inclusive
+	 * @param afterRecNo
+	 *            the record number after which the matching records are
+	 *            returned
+	 * @param limit
+	 *            the maximum number of record numbers to be returned
+	 * @return the array of record numbers of the matching records
+	 * @throws RemoteException
+	 *             if a networking error has occurred
+	 * @see suncertify.db.PagedDB#findInRange(RangeField, long, long, int, int)
+	 */
+	public int[] findInRange(RangeField field, long minimum, long maximum, int afterRecNo,
+			int limit) throws RemoteException;
+
 	/**
 	 * Creates a new record in the database (possibly reusing a deleted entry).
 	 * Inserts the given data, and returns the record number of the new record.
@@ -126,6 +244,66 @@ public interface DBRemote extends Remote {
 	 */
 	public long lock(int recNo) throws RecordNotFoundException, RemoteException;
 
+	/**
+	 * Reads a record from the file together with its version.
+	 * 
+	 * @param recNo
+	 *            number of the record to be read.
+	 * @return the field values and version of the record
+	 * @throws RecordNotFoundException
+	 *             If a specified record does not exist or is marked as deleted
+	 *             in the database file
+	 * @throws RemoteException
+	 *             if a networking error has occurred
+	 * @see suncertify.db.PagedDB#readRecord(int)
+	 */
+	public VersionedRecord readRecord(int recNo) throws RecordNotFoundException, RemoteException;
+
+	/**
+	 * Modifies the fields of a record if it still holds the specified version,
+	 * without the caller locking the record, so that a record is updated in a
+	 * single request.
+	 * 
+	 * @param recNo
+	 *            number of the record to be updated.
+	 * @param expectedVersion
+	 *            the version the record must hold to be updated
+	 * @param data
+	 *            data to be updated
+	 * @return true if the record was updated, false if it no longer holds the
+	 *         expected version or is locked by a client
+	 * @throws RecordNotFoundException
+	 *             If a specified record does not exist or is marked as deleted
+	 *             in the database file
+	 * @throws RemoteException
+	 *             if a networking error has occurred
+	 * @see suncertify.db.PagedDB#compareAndUpdate(int, long, String[])
+	 */
+	public boolean compareAndUpdate(int recNo, long expectedVersion, String[] data)
+			throws RecordNotFoundException, RemoteException;
+
+	/**
+	 * Locks a record as {@link #lock(int)} does, but waits no longer than the
+	 * specified timeout for the record to be unlocked by a different client,
+	 * so that a client never holds a server thread for longer than the
+	 * timeout.
+	 * 
+	 * @param recNo
+	 *            number of the record to be locked.
+	 * @param timeoutMillis
+	 *            the longest time to wait for the lock in milliseconds
+	 * @return the lock cookie value, or 0 if the record is still locked by a
+	 *         different client when the timeout elapses
+	 * @throws RecordNotFoundException
+	 *             If a specified record does not exist or is marked as deleted
+	 *             in the database file
+	 * @throws RemoteException
+	 *             if a networking error has occurred
+	 * @see suncertify.db.PagedDB#tryLock(int, long)
+	 */
+	public long tryLock(int recNo, long timeoutMillis) throws RecordNotFoundException,
+			RemoteException;
+
 	/**
 	 * Releases the lock on a record. Cookie must be the cookie returned when
 	 * the record was locked; otherwise throws SecurityException. *
@@ -144,4 +322,37 @@ public interface DBRemote extends Remote {
 	 */
 	public void unlock(int recNo, long cookie) throws RecordNotFoundException, SecurityException,
 			RemoteException;
+
+	/**
+	 * Locks several records in ascending record number order, returning a
+	 * single cookie valid for each of them, so that a booking of several
+	 * records is locked in a single request.
+	 * 
+	 * @param recNos
+	 *            numbers of the records to be locked.
+	 * @return the lock cookie value of every record
+	 * @throws RecordNotFoundException
+	 *             If any of the records does not exist or is marked as deleted
+	 *             in the database file
+	 * @throws RemoteException
+	 *             if a networking error has occurred
+	 * @see suncertify.db.PagedDB#lockAll(int[])
+	 */
+	public long lockAll(int[] recNos) throws RecordNotFoundException, RemoteException;
+
+	/**
+	 * Releases the locks on several records locked by {@link #lockAll(int[])}.
+	 * 
+	 * @param recNos
+	 *            numbers of the records to be unlocked.
+	 * @param cookie
+	 *            the lock cookie value
+	 * @throws SecurityException
+	 *             if any of the records is locked with a cookie other than
+	 *             cookie
+	 * @throws RemoteException
+	 *             if a networking error has occurred
+	 * @see suncertify.db.PagedDB#unlockAll(int[], long)
+	 */
+	public void unlockAll(int[] recNos, long cookie) throws SecurityException, RemoteException;
 }
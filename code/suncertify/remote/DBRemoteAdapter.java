@@ -5,11 +5,16 @@ import java.rmi.RemoteException;
 import suncertify.db.CommunicationException;
 import suncertify.db.DB;
 import suncertify.db.DuplicateKeyException;
+import suncertify.db.FoundRecords;
+import suncertify.db.MatchMode;
+import suncertify.db.PagedDB;
+import suncertify.db.RangeField;
 import suncertify.db.RecordNotFoundException;
+import suncertify.db.VersionedRecord;
 
 /**
  * Adapter that wraps a {@link DBRemote} instance and exposes its methods behind
- * the corresponding {@link DB} methods.
+ * the corresponding {@link DB} and {@link PagedDB} methods.
  * <p>
  * {@code RemoteException} instances thrown by {@code DBRemote} are caught and
  * re-thrown as a {@link CommunicationException}
@@ -17,7 +22,7 @@ import suncertify.db.RecordNotFoundException;
  * @version 1.0
  * @author Damien O'Toole
  */
-public class DBRemoteAdapter implements DB {
+public class DBRemoteAdapter implements PagedDB {
 
 	private final DBRemote dbRemote;
 
@@ -74,6 +79,61 @@ public class DBRemoteAdapter implements DB {
 		}
 	}
 
+	@Override
+	/** {@inheritDoc} */
+	public int[] find(final String[] criteria, final int afterRecNo, final int limit) {
+		try {
+			return this.dbRemote.find(criteria, afterRecNo, limit);
+		} catch (final RemoteException remoteException) {
+			throw new CommunicationException("Cannot invoke find remotely", remoteException);
+		}
+	}
+
+	@Override
+	/** {@inheritDoc} */
+	public FoundRecords findRecords(final String[] criteria, final int afterRecNo,
+			final int limit) {
+		try {
+			return this.dbRemote.findRecords(criteria, afterRecNo, limit);
+		} catch (final RemoteException remoteException) {
+			throw new CommunicationException("Cannot invoke findRecords remotely", remoteException);
+		}
+	}
+
+	@Override
+	/** {@inheritDoc} */
+	public FoundRecords findRecords(final String[] criteria, final MatchMode matchMode,
+			final int afterRecNo, final int limit) {
+		try {
+			return this.dbRemote.findRecords(criteria, matchMode, afterRecNo, limit);
+		} catch (final RemoteException remoteException) {
+			throw new CommunicationException("Cannot invoke findRecords remotely", remoteException);
+		}
+	}
+
+	@Override
+	/** {@inheritDoc} */
+	public FoundRecords findBySpecialties(final String[] specialties, final boolean matchAll,
+			final int afterRecNo, final int limit) {
+		try {
+			return this.dbRemote.findBySpecialties(specialties, matchAll, afterRecNo, limit);
+		} catch (final RemoteException remoteException) {
+			throw new CommunicationException("Cannot invoke findBySpecialties remotely",
+					remoteException);
+		}
+	}
+
+	@Override
+	/** {@inheritDoc} */
+	public int[] findInRange(final RangeField field, final long minimum, final long maximum,
+			final int afterRecNo, final int limit) {
+		try {
+			return this.dbRemote.findInRange(field, minimum, maximum, afterRecNo, limit);
+		} catch (final RemoteException remoteException) {
+			throw new CommunicationException("Cannot invoke findInRange remotely", remoteException);
+		}
+	}
+
 	@Override
 	/** {@inheritDoc} */
 	public int create(final String[] data) throws DuplicateKeyException {
@@ -94,6 +154,58 @@ public class DBRemoteAdapter implements DB {
 		}
 	}
 
+	@Override
+	/** {@inheritDoc} */
+	public long tryLock(final int recNo, final long timeoutMillis) throws RecordNotFoundException {
+		try {
+			return this.dbRemote.tryLock(recNo, timeoutMillis);
+		} catch (final RemoteException remoteException) {
+			throw new CommunicationException("Cannot invoke tryLock remotely", remoteException);
+		}
+	}
+
+	@Override
+	/** {@inheritDoc} */
+	public VersionedRecord readRecord(final int recNo) throws RecordNotFoundException {
+		try {
+			return this.dbRemote.readRecord(recNo);
+		} catch (final RemoteException remoteException) {
+			throw new CommunicationException("Cannot invoke readRecord remotely", remoteException);
+		}
+	}
+
+	@Override
+	/** {@inheritDoc} */
+	public boolean compareAndUpdate(final int recNo, final long expectedVersion,
+			final String[] data) throws RecordNotFoundException {
+		try {
+			return this.dbRemote.compareAndUpdate(recNo, expectedVersion, data);
+		} catch (final RemoteException remoteException) {
+			throw new CommunicationException("Cannot invoke compareAndUpdate remotely",
+					remoteException);
+		}
+	}
+
+	@Override
+	/** {@inheritDoc} */
+	public long lockAll(final int[] recNos) throws RecordNotFoundException {
+		try {
+			return this.dbRemote.lockAll(recNos);
+		} catch (final RemoteException remoteException) {
+			throw new CommunicationException("Cannot invoke lockAll remotely", remoteException);
+		}
+	}
+
+	@Override
+	/** {@inheritDoc} */
+	public void unlockAll(final int[] recNos, final long cookie) throws SecurityException {
+		try {
+			this.dbRemote.unlockAll(recNos, cookie);
+		} catch (final RemoteException remoteException) {
+			throw new CommunicationException("Cannot invoke unlockAll remotely", remoteException);
+		}
+	}
+
 	@Override
 	/** {@inheritDoc} */
 	public void unlock(final int recNo, final long cookie) throws RecordNotFoundException,
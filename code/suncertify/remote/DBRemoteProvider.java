@@ -3,10 +3,14 @@ package suncertify.remote;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 
-import suncertify.db.DB;
 import suncertify.db.Data;
 import suncertify.db.DuplicateKeyException;
+import suncertify.db.FoundRecords;
+import suncertify.db.MatchMode;
+import suncertify.db.PagedDB;
+import suncertify.db.RangeField;
 import suncertify.db.RecordNotFoundException;
+import suncertify.db.VersionedRecord;
 
 /**
  * The Class DBRemoteProvider is an implementation of the {@link DBRemote}
@@ -22,7 +26,7 @@ public final class DBRemoteProvider extends UnicastRemoteObject implements DBRem
 
 	private static final long serialVersionUID = -6199759573206229884L;
 
-	private transient final DB db;
+	private transient final PagedDB db;
 
 	/**
 	 * Constructor for the RMI implementation of the {@link DBRemote} interface.
@@ -62,6 +66,40 @@ public final class DBRemoteProvider extends UnicastRemoteObject implements DBRem
 		return this.db.find(criteria);
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public int[] find(final String[] criteria, final int afterRecNo, final int limit) {
+		return this.db.find(criteria, afterRecNo, limit);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public FoundRecords findRecords(final String[] criteria, final int afterRecNo,
+			final int limit) {
+		return this.db.findRecords(criteria, afterRecNo, limit);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public FoundRecords findRecords(final String[] criteria, final MatchMode matchMode,
+			final int afterRecNo, final int limit) {
+		return this.db.findRecords(criteria, matchMode, afterRecNo, limit);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public FoundRecords findBySpecialties(final String[] specialties, final boolean matchAll,
+			final int afterRecNo, final int limit) {
+		return this.db.findBySpecialties(specialties, matchAll, afterRecNo, limit);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int[] findInRange(final RangeField field, final long minimum, final long maximum,
+			final int afterRecNo, final int limit) {
+		return this.db.findInRange(field, minimum, maximum, afterRecNo, limit);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public int create(final String[] data) throws DuplicateKeyException {
@@ -74,6 +112,37 @@ public final class DBRemoteProvider extends UnicastRemoteObject implements DBRem
 		return this.db.lock(recNo);
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public long tryLock(final int recNo, final long timeoutMillis) throws RecordNotFoundException {
+		return this.db.tryLock(recNo, timeoutMillis);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public VersionedRecord readRecord(final int recNo) throws RecordNotFoundException {
+		return this.db.readRecord(recNo);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean compareAndUpdate(final int recNo, final long expectedVersion,
+			final String[] data) throws RecordNotFoundException {
+		return this.db.compareAndUpdate(recNo, expectedVersion, data);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long lockAll(final int[] recNos) throws RecordNotFoundException {
+		return this.db.lockAll(recNos);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void unlockAll(final int[] recNos, final long cookie) throws SecurityException {
+		this.db.unlockAll(recNos, cookie);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void unlock(final int recNo, final long cookie) throws RecordNotFoundException,
@@ -3,6 +3,7 @@ package suncertify.ui.client;
 import java.util.regex.Pattern;
 
 import suncertify.db.RecordAlreadyBookedException;
+import suncertify.db.RecordBusyException;
 import suncertify.db.RecordNotFoundException;
 import suncertify.domain.Subcontractor;
 
@@ -60,6 +61,10 @@ public class ClientController implements SubcontractorController {
 					.displayErrorMessage("The selected Subcontractor information can not be found!");
 		} catch (final RecordAlreadyBookedException recordAlreadyBookedException) {
 			this.view.displayErrorMessage("The selected Subcontractor is already booked.");
+		} catch (final RecordBusyException recordBusyException) {
+			this.view
+					.displayErrorMessage("The selected Subcontractor is busy being booked by another user."
+							+ "\nPlease retry the booking.");
 		}
 	}
 
@@ -2,12 +2,16 @@ package suncertify.ui.client;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
+import javax.swing.SwingWorker;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableModel;
 
 import suncertify.application.DBService;
+import suncertify.application.SubcontractorPage;
 import suncertify.db.RecordAlreadyBookedException;
+import suncertify.db.RecordBusyException;
 import suncertify.db.RecordNotFoundException;
 import suncertify.domain.Subcontractor;
 
@@ -24,6 +28,14 @@ import suncertify.domain.Subcontractor;
  * {@code ClientModel} implements the {@link SubcontractorModel} interface which
  * needs to manage the different requests via the
  * {@link SubcontractorController}.
+ * <p>
+ * Search results are retrieved a page at a time. The first page is shown as
+ * soon as it arrives, and each further page is retrieved once the rows
+ * shown in the table come close to the end of the rows retrieved so far, so
+ * showing the first matches of a search does not depend on how many
+ * {@code Subcontractors} match. Further pages are retrieved by a
+ * {@link SwingWorker}, so the table stays responsive while a page is on its
+ * way, and their rows are added on the event dispatch thread.
  * 
  * @version 1.0
  * @author Damien O'Toole
@@ -35,10 +47,34 @@ public class ClientModel extends AbstractTableModel implements SubcontractorMode
 	private static final String[] COLUMN_NAMES = { "Name", "Location", "Specialties", "Size",
 			"Rate", "Owner" };
 
+	/** Number of matching records retrieved per page. */
+	private static final int PAGE_SIZE = 100;
+
+	/**
+	 * Number of rows from the end of the retrieved rows at which the next
+	 * page is retrieved.
+	 */
+	private static final int PREFETCH_ROWS = 20;
+
 	private List<Subcontractor> subContractors = new ArrayList<Subcontractor>();
 
 	private final DBService dbService;
 
+	private String searchName;
+
+	private String searchLocation;
+
+	private boolean searchExactMatch;
+
+	private int lastRecordNumber;
+
+	private boolean morePages;
+
+	private boolean pageRequested;
+
+	/** Identifies the current search, so a stale page request is ignored. */
+	private int searchCount;
+
 	/**
 	 * Constructs a new table model that contains the relevant
 	 * {@code Subcontractor(s)} based on User requests via the
@@ -73,6 +109,10 @@ public class ClientModel extends AbstractTableModel implements SubcontractorMode
 	/** {@inheritDoc} */
 	@Override
 	public Object getValueAt(final int rowIndex, final int columnIndex) {
+		if (this.morePages && !this.pageRequested
+				&& rowIndex >= this.subContractors.size() - ClientModel.PREFETCH_ROWS) {
+			this.requestNextPage();
+		}
 		Object value = null;
 		if (this.subContractors != null && this.subContractors.size() > rowIndex) {
 			final Subcontractor subContractor = this.subContractors.get(rowIndex);
@@ -104,7 +144,7 @@ public class ClientModel extends AbstractTableModel implements SubcontractorMode
 	@Override
 	public void bookSubcontractor(final Subcontractor subContractor, final String customerID,
 			final int currentRowSelection) throws RecordNotFoundException,
-			RecordAlreadyBookedException {
+			RecordAlreadyBookedException, RecordBusyException {
 		try {
 			this.subContractors = this.dbService.bookSubcontractor(subContractor,
 					this.subContractors, customerID);
@@ -118,16 +158,81 @@ public class ClientModel extends AbstractTableModel implements SubcontractorMode
 	@Override
 	public void searchSubcontractor(final String name, final String location,
 			final boolean exactMatchRequired) {
-		this.subContractors = this.dbService
-				.searchSubcontractor(name, location, exactMatchRequired);
+		this.searchName = name;
+		this.searchLocation = location;
+		this.searchExactMatch = exactMatchRequired;
+		this.searchCount++;
+		this.subContractors = new ArrayList<Subcontractor>();
+		this.lastRecordNumber = 0;
+		this.morePages = true;
+		this.pageRequested = false;
+		this.retrieveNextPage();
 		this.fireTableDataChanged();
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void retrieveAllSubcontractors() {
-		this.subContractors = this.dbService.retrieveAllSubcontractors();
-		this.fireTableDataChanged();
+		// Fetching all Subcontractors is the same as searching for records
+		// without any filtering criteria
+		this.searchSubcontractor(null, null, false);
+	}
+
+	private void retrieveNextPage() {
+		this.addPage(this.dbService.searchSubcontractor(this.searchName, this.searchLocation,
+				this.searchExactMatch, this.lastRecordNumber, ClientModel.PAGE_SIZE));
+	}
+
+	private void addPage(final SubcontractorPage page) {
+		this.subContractors.addAll(page.getSubcontractors());
+		this.lastRecordNumber = page.getLastRecordNumber();
+		this.morePages = page.hasMorePages();
+	}
+
+	/**
+	 * Retrieves the next page in the background. The rows are only added once
+	 * the page has arrived, on the event dispatch thread, as the table must
+	 * not be changed while it requests the values of its rows.
+	 */
+	private void requestNextPage() {
+		this.pageRequested = true;
+		final int requestedSearch = this.searchCount;
+		final String name = this.searchName;
+		final String location = this.searchLocation;
+		final boolean exactMatchRequired = this.searchExactMatch;
+		final int afterRecordNumber = this.lastRecordNumber;
+		new SwingWorker<SubcontractorPage, Void>() {
+			@Override
+			protected SubcontractorPage doInBackground() {
+				return ClientModel.this.dbService.searchSubcontractor(name, location,
+						exactMatchRequired, afterRecordNumber, ClientModel.PAGE_SIZE);
+			}
+
+			@Override
+			protected void done() {
+				if (requestedSearch != ClientModel.this.searchCount) {
+					// A new search was made while the page was on its way
+					return;
+				}
+				ClientModel.this.pageRequested = false;
+				final SubcontractorPage page;
+				try {
+					page = this.get();
+				} catch (final InterruptedException interruptedException) {
+					Thread.currentThread().interrupt();
+					return;
+				} catch (final ExecutionException executionException) {
+					throw new IllegalStateException("Cannot retrieve the next page of "
+							+ "Subcontractors", executionException.getCause());
+				}
+				final int firstRow = ClientModel.this.subContractors.size();
+				ClientModel.this.addPage(page);
+				final int lastRow = ClientModel.this.subContractors.size() - 1;
+				if (lastRow >= firstRow) {
+					ClientModel.this.fireTableRowsInserted(firstRow, lastRow);
+				}
+			}
+		}.execute();
 	}
 
 	/** {@inheritDoc} */
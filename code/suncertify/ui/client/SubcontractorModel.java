@@ -5,6 +5,7 @@ import javax.swing.table.TableModel;
 
 import suncertify.application.LaunchMode;
 import suncertify.db.RecordAlreadyBookedException;
+import suncertify.db.RecordBusyException;
 import suncertify.db.RecordNotFoundException;
 import suncertify.domain.Subcontractor;
 
@@ -49,10 +50,12 @@ public interface SubcontractorModel {
 	 *             exists or if it is marked as deleted
 	 * @throws RecordAlreadyBookedException
 	 *             if the record is already booked
+	 * @throws RecordBusyException
+	 *             if the record is being booked by another user for too long
 	 */
 	public void bookSubcontractor(final Subcontractor subContractor, final String customerID,
 			final int currentRowSelection) throws RecordNotFoundException,
-			RecordAlreadyBookedException;
+			RecordAlreadyBookedException, RecordBusyException;
 
 	/**
 	 * Returns the {@link Subcontractor} at the specified position.
@@ -64,7 +64,8 @@ public class ServerModel implements ServerStateModel {
 	}
 
 	private void initDBConnection() throws DatabaseException {
-		Data.getInstance().init(this.applicationProperties.getDatabaseLocation());
+		Data.getInstance().init(this.applicationProperties.getDatabaseLocation(),
+				this.applicationProperties.getDatabaseOptions());
 	}
 
 	private void registerDBinRMIRegistry() throws RemoteException {
@@ -0,0 +1,292 @@
+package suncertify.db;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import suncertify.application.ApplicationProperties;
+import suncertify.domain.DatabaseSchema;
+import suncertify.domain.Subcontractor;
+
+public class DataTest {
+
+	private File databaseFile;
+
+	private final Data data = Data.getInstance();
+
+	@Before
+	public void openCopyOfDatabase() throws IOException, DatabaseException {
+		this.databaseFile = File.createTempFile("data-test", ".db");
+		final FileChannel source = new FileInputStream(ApplicationProperties.getInstance()
+				.getDatabaseLocation()).getChannel();
+		final FileChannel target = new FileOutputStream(this.databaseFile).getChannel();
+		try {
+			target.transferFrom(source, 0, source.size());
+		} finally {
+			source.close();
+			target.close();
+		}
+		this.data.init(this.databaseFile.getPath());
+	}
+
+	@After
+	public void deleteCopyOfDatabase() throws DatabaseException {
+		this.data.destroy();
+		new File(this.databaseFile.getPath() + WriteAheadLog.FILE_EXTENSION).delete();
+		this.databaseFile.delete();
+	}
+
+	@Test
+	public void versionReadBeforeReopeningIsStale() throws Exception {
+		final VersionedRecord read = this.data.readRecord(1);
+		final String[] changed = read.getData().clone();
+		changed[5] = "12345678";
+		final long cookie = this.data.lock(1);
+		this.data.update(1, changed, cookie);
+		this.data.unlock(1, cookie);
+
+		// The reopened database starts the record over at its first version
+		this.data.destroy();
+		this.data.init(this.databaseFile.getPath());
+
+		Assert.assertFalse(this.data.compareAndUpdate(1, read.getVersion(), read.getData()));
+		Assert.assertEquals("12345678", this.data.read(1)[5]);
+		final VersionedRecord reread = this.data.readRecord(1);
+		Assert.assertTrue(this.data.compareAndUpdate(1, reread.getVersion(), read.getData()));
+	}
+
+	@Test
+	public void pagedFindReturnsSameRecordsAsFullFind() throws Exception {
+		final String[][] searches = { new String[DatabaseSchema.FIELD_COUNT],
+				{ "Bitter", null, null, null, null, null },
+				{ null, "ville", null, null, null, null },
+				{ "nobody", null, null, null, null, null } };
+		for (final String[] criteria : searches) {
+			final List<Integer> expected = DataTest.toList(this.data.find(criteria));
+			for (final int limit : new int[] { 1, 4, 100 }) {
+				final List<Integer> paged = new ArrayList<Integer>();
+				int afterRecNo = 0;
+				int[] page;
+				do {
+					page = this.data.find(criteria, afterRecNo, limit);
+					Assert.assertTrue(page.length <= limit);
+					paged.addAll(DataTest.toList(page));
+					if (page.length > 0) {
+						afterRecNo = page[page.length - 1];
+					}
+				} while (page.length == limit);
+				Assert.assertEquals(expected, paged);
+
+				final FoundRecords found = this.data.findRecords(criteria, 0, limit);
+				Assert.assertEquals(Math.min(limit, expected.size()), found.size());
+				for (int i = 0; i < found.size(); i++) {
+					Assert.assertEquals(expected.get(i).intValue(), found.getRecordNumber(i));
+					Assert.assertArrayEquals(this.data.read(found.getRecordNumber(i)),
+							found.getRecordData(i));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void prefixIndexFindsSameRecordsAsScan() throws Exception {
+		final DatabaseOptions options = new DatabaseOptions();
+		options.setMatchMode(MatchMode.PREFIX);
+		this.reopen(options);
+
+		this.assertFindsScannedRecords(MatchMode.PREFIX, "Fred", null);
+		this.assertFindsScannedRecords(MatchMode.PREFIX, "bitter homes", null);
+		this.assertFindsScannedRecords(MatchMode.PREFIX, null, "Bali");
+		this.assertFindsScannedRecords(MatchMode.PREFIX, "B", "P");
+		this.assertFindsScannedRecords(MatchMode.PREFIX, "Nobby", null);
+		this.assertFindsScannedRecords(MatchMode.PREFIX, "", "");
+	}
+
+	@Test
+	public void trigramIndexFindsSameRecordsAsScan() throws Exception {
+		final DatabaseOptions options = new DatabaseOptions();
+		options.setSubstringIndexed(true);
+		this.reopen(options);
+
+		this.assertFindsScannedRecords(MatchMode.CONTAINS, "obb", null);
+		this.assertFindsScannedRecords(MatchMode.CONTAINS, "Nob", "ville");
+		this.assertFindsScannedRecords(MatchMode.CONTAINS, "& COMPANY", null);
+		this.assertFindsScannedRecords(MatchMode.CONTAINS, null, "topolis");
+		this.assertFindsScannedRecords(MatchMode.CONTAINS, "xyz", null);
+		// Values shorter than a trigram are left to a scan
+		this.assertFindsScannedRecords(MatchMode.CONTAINS, "B", "P");
+	}
+
+	@Test
+	public void exactSearchFindsSameRecordsAsScan() throws Exception {
+		final String[][] searches = { { "Fred & Nobby", null }, { "fred & nobby", null },
+				{ "Fred", null }, { null, "Bali Hai" }, { "Fred & Nobby", "Xanadu" },
+				{ "Dogs With Tools", "Smallville" } };
+		for (final String[] search : searches) {
+			final String[] criteria = new String[DatabaseSchema.FIELD_COUNT];
+			criteria[0] = search[0];
+			criteria[1] = search[1];
+			final FoundRecords found = this.data.findRecords(criteria, MatchMode.EXACT, 0, 100);
+			final List<Integer> recordNumbers = new ArrayList<Integer>();
+			for (int i = 0; i < found.size(); i++) {
+				recordNumbers.add(found.getRecordNumber(i));
+			}
+			Assert.assertEquals(this.scan(criteria, MatchMode.EXACT), recordNumbers);
+		}
+	}
+
+	@Test
+	public void findBySpecialtiesMatchesAllOrAny() throws Exception {
+		final String[][] searches = { { "Heating", "drywall" }, { "Glass", " roofing " },
+				{ "Air Conditioning" }, { "Heating", "Masonry" } };
+		for (final String[] specialties : searches) {
+			for (final boolean matchAll : new boolean[] { true, false }) {
+				final List<Integer> expected = new ArrayList<Integer>();
+				for (final int recNo : this.data.find(new String[DatabaseSchema.FIELD_COUNT])) {
+					final List<String> held = new ArrayList<String>();
+					for (final String term : this.data.read(recNo)[Subcontractor.INDEX_SPECIALTIES]
+							.split(",")) {
+						held.add(term.trim().toLowerCase());
+					}
+					int heldCount = 0;
+					for (final String specialty : specialties) {
+						if (held.contains(specialty.trim().toLowerCase())) {
+							heldCount++;
+						}
+					}
+					if (matchAll ? heldCount == specialties.length : heldCount > 0) {
+						expected.add(recNo);
+					}
+				}
+
+				final FoundRecords found = this.data.findBySpecialties(specialties, matchAll, 0,
+						100);
+				final List<Integer> recordNumbers = new ArrayList<Integer>();
+				for (int i = 0; i < found.size(); i++) {
+					recordNumbers.add(found.getRecordNumber(i));
+				}
+				Assert.assertEquals(expected, recordNumbers);
+			}
+		}
+	}
+
+	@Test
+	public void findInRangeIncludesBoundsAndSkipsUnparsableValues() throws Exception {
+		final int unparsable = this.data.create(new String[] { "Unrated", "Athlone",
+				"Programming", "ten", "TBD", "" });
+
+		final List<Integer> expected = new ArrayList<Integer>();
+		for (final int recNo : this.data.find(new String[DatabaseSchema.FIELD_COUNT])) {
+			final String rate = this.data.read(recNo)[Subcontractor.INDEX_RATE];
+			if (rate.equals("$45.00") || rate.equals("$50.00") || rate.equals("$55.00")) {
+				expected.add(recNo);
+			}
+		}
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected,
+				DataTest.toList(this.data.findInRange(RangeField.RATE, 4500, 5500, 0, 100)));
+
+		final List<Integer> threeStaff = new ArrayList<Integer>();
+		for (final int recNo : this.data.find(new String[DatabaseSchema.FIELD_COUNT])) {
+			if (this.data.read(recNo)[Subcontractor.INDEX_SIZE].equals("3")) {
+				threeStaff.add(recNo);
+			}
+		}
+		Assert.assertEquals(threeStaff,
+				DataTest.toList(this.data.findInRange(RangeField.SIZE, 3, 3, 0, 100)));
+
+		final List<Integer> anyRate = DataTest.toList(this.data.findInRange(RangeField.RATE,
+				Long.MIN_VALUE, Long.MAX_VALUE, 0, 100));
+		final List<Integer> anySize = DataTest.toList(this.data.findInRange(RangeField.SIZE,
+				Long.MIN_VALUE, Long.MAX_VALUE, 0, 100));
+		Assert.assertFalse(anyRate.contains(unparsable));
+		Assert.assertFalse(anySize.contains(unparsable));
+		Assert.assertEquals(this.data.find(new String[DatabaseSchema.FIELD_COUNT]).length - 1,
+				anyRate.size());
+		Assert.assertEquals(0, this.data.findInRange(RangeField.RATE, 5600, 5900, 0, 100).length);
+	}
+
+	@Test
+	public void explainDescribesIndexLookupOrScan() throws Exception {
+		final String[] anyRecord = new String[DatabaseSchema.FIELD_COUNT];
+		final String[] byName = { "Fred", null, null, null, null, null };
+		final int recordCount = this.data.find(anyRecord).length;
+		Assert.assertEquals("scan all " + recordCount + " records", this.data.explain(byName));
+		Assert.assertEquals("no records are searched for invalid criteria",
+				this.data.explain(new String[] { "Fred" }));
+
+		final DatabaseOptions options = new DatabaseOptions();
+		options.setMatchMode(MatchMode.PREFIX);
+		this.reopen(options);
+		Assert.assertEquals("scan all " + recordCount + " records", this.data.explain(anyRecord));
+		final String plan = this.data.explain(byName);
+		Assert.assertTrue(plan, plan.startsWith("look up PrefixIndex on name for \"Fred\""));
+		Assert.assertTrue(plan, plan.endsWith("\ncheck the candidates against the criteria"));
+		// A name common to most records is not worth looking up
+		final String commonPlan = this.data.explain(new String[] { "B", null, null, null, null,
+				null });
+		Assert.assertTrue(commonPlan, commonPlan.startsWith("scan all "));
+		Assert.assertTrue(commonPlan, commonPlan.contains("\nskip PrefixIndex on name"));
+	}
+
+	private void reopen(final DatabaseOptions options) throws DatabaseException {
+		this.data.destroy();
+		this.data.init(this.databaseFile.getPath(), options);
+	}
+
+	private void assertFindsScannedRecords(final MatchMode matchMode, final String name,
+			final String location) throws RecordNotFoundException {
+		final String[] criteria = new String[DatabaseSchema.FIELD_COUNT];
+		criteria[0] = name;
+		criteria[1] = location;
+		// The plan is reported, so that a failure shows how the records were
+		// searched for
+		Assert.assertEquals(this.data.explain(criteria), this.scan(criteria, matchMode),
+				DataTest.toList(this.data.find(criteria)));
+	}
+
+	private List<Integer> scan(final String[] criteria, final MatchMode matchMode)
+			throws RecordNotFoundException {
+		final List<Integer> matching = new ArrayList<Integer>();
+		for (final int recNo : this.data.find(new String[DatabaseSchema.FIELD_COUNT])) {
+			final String[] fields = this.data.read(recNo);
+			boolean matches = true;
+			for (int i = 0; i < criteria.length; i++) {
+				matches &= criteria[i] == null || DataTest.matches(fields[i], criteria[i], matchMode);
+			}
+			if (matches) {
+				matching.add(recNo);
+			}
+		}
+		return matching;
+	}
+
+	private static boolean matches(final String field, final String criterion,
+			final MatchMode matchMode) {
+		switch (matchMode) {
+		case EXACT:
+			return field.equals(criterion);
+		case PREFIX:
+			return field.toLowerCase().startsWith(criterion.toLowerCase());
+		default:
+			return field.toLowerCase().contains(criterion.toLowerCase());
+		}
+	}
+
+	private static List<Integer> toList(final int[] recordNumbers) {
+		final List<Integer> list = new ArrayList<Integer>();
+		for (final int recNo : recordNumbers) {
+			list.add(recNo);
+		}
+		return list;
+	}
+}
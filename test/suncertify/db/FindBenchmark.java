@@ -0,0 +1,121 @@
+package suncertify.db;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import suncertify.domain.RecordState;
+import suncertify.domain.Subcontractor;
+
+/**
+ * Measures the records per second scanned by a search, and the bytes
+ * allocated per scanned record, for the original matcher decoding every
+ * record and lower casing its fields and for the {@link RecordMatcher}
+ * comparing the encoded records.
+ * <p>
+ * Run with {@code java suncertify.db.FindBenchmark [records]}. Each matcher
+ * is warmed up before it is measured. Allocated bytes are only reported on a
+ * JVM that supports measuring them per thread.
+ */
+public class FindBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 5;
+
+	private static final int MEASURED_ITERATIONS = 10;
+
+	private static final String[] CRITERIA = { "contractor 9", "SMALL", null, null, null, null };
+
+	public static void main(final String[] args) {
+		final int recordCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		final RecordStore store = FindBenchmark.createStore(recordCount);
+		final Matcher[] matchers = { new DecodingMatcher(), new EncodedMatcher() };
+		for (final Matcher matcher : matchers) {
+			for (int i = 0; i < FindBenchmark.WARMUP_ITERATIONS; i++) {
+				FindBenchmark.scan(store, matcher);
+			}
+			final long allocatedBefore = FindBenchmark.getAllocatedBytes();
+			long elapsed = 0;
+			int matches = 0;
+			for (int i = 0; i < FindBenchmark.MEASURED_ITERATIONS; i++) {
+				final long start = System.nanoTime();
+				matches = FindBenchmark.scan(store, matcher);
+				elapsed += System.nanoTime() - start;
+			}
+			final long allocated = FindBenchmark.getAllocatedBytes() - allocatedBefore;
+			final double seconds = elapsed / 1e9 / FindBenchmark.MEASURED_ITERATIONS;
+			final double scanned = (double) recordCount * FindBenchmark.MEASURED_ITERATIONS;
+			System.out.printf("%-16s %,15.0f records/second %,10.1f bytes/record %,8d matches%n",
+					matcher.getClass().getSimpleName(), recordCount / seconds,
+					allocatedBefore < 0 ? Double.NaN : allocated / scanned, matches);
+		}
+	}
+
+	private static RecordStore createStore(final int recordCount) {
+		final RecordStore store = new RecordStore();
+		for (int i = 0; i < recordCount; i++) {
+			store.put(i + 1, new Subcontractor(RecordState.valid, new String[] {
+					"Contractor " + i, i % 2 == 0 ? "Smallville" : "Lendmarch",
+					"Drywall, Painting, Carpets", "10", "$75.00", "" }));
+		}
+		return store;
+	}
+
+	private static int scan(final RecordStore store, final Matcher matcher) {
+		final int[] matches = new int[1];
+		store.scan(new RecordStore.RecordVisitor() {
+			@Override
+			public boolean visit(final int recNo, final long version, final byte[] record) {
+				if (matcher.matches(record)) {
+					matches[0]++;
+				}
+				return true;
+			}
+		});
+		return matches[0];
+	}
+
+	private static long getAllocatedBytes() {
+		final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread
+					.currentThread().getId());
+		}
+		return -1;
+	}
+
+	private interface Matcher {
+		boolean matches(byte[] record);
+	}
+
+	/**
+	 * The matcher used by {@code Data.find} before the introduction of the
+	 * {@code RecordMatcher}.
+	 */
+	private static class DecodingMatcher implements Matcher {
+
+		@Override
+		public boolean matches(final byte[] record) {
+			final String[] data = RecordCodec.decode(record, 0).getData();
+			boolean criteriaMatch = true;
+			for (int i = 0; i < FindBenchmark.CRITERIA.length; i++) {
+				final String attribute = FindBenchmark.CRITERIA[i];
+				if (attribute != null) {
+					if (!data[i].toLowerCase().contains(attribute.toLowerCase())) {
+						criteriaMatch = false;
+					}
+				}
+			}
+			return criteriaMatch;
+		}
+	}
+
+	private static class EncodedMatcher implements Matcher {
+
+		private final RecordMatcher matcher = new RecordMatcher(FindBenchmark.CRITERIA,
+				MatchMode.CONTAINS);
+
+		@Override
+		public boolean matches(final byte[] record) {
+			return this.matcher.matches(record, 0);
+		}
+	}
+}
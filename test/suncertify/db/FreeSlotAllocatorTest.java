@@ -0,0 +1,90 @@
+package suncertify.db;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FreeSlotAllocatorTest {
+
+	@Test
+	public void reusesSlotOfDeletedRecord() {
+		final FreeSlotAllocator allocator = new FreeSlotAllocator(10);
+		allocator.release(4);
+		allocator.release(4);
+
+		Assert.assertEquals(4, allocator.allocate());
+		Assert.assertEquals(11, allocator.allocate());
+		Assert.assertEquals(12, allocator.allocate());
+	}
+
+	@Test
+	public void growsPastWordBoundaries() {
+		final int farRecNo = 100000;
+		final FreeSlotAllocator allocator = new FreeSlotAllocator(farRecNo);
+		allocator.release(farRecNo);
+		allocator.release(65);
+		allocator.release(64);
+		allocator.release(63);
+
+		Assert.assertEquals(63, allocator.allocate());
+		Assert.assertEquals(64, allocator.allocate());
+		Assert.assertEquals(65, allocator.allocate());
+		Assert.assertEquals(farRecNo, allocator.allocate());
+		Assert.assertEquals(farRecNo + 1, allocator.allocate());
+
+		// A slot released below the slots already claimed is found again
+		allocator.release(1);
+		Assert.assertEquals(1, allocator.allocate());
+	}
+
+	@Test
+	public void concurrentAllocationsNeverShareRecordNumber() throws InterruptedException {
+		final int threadCount = 8;
+		final int allocationsPerThread = 1000;
+		final int freeSlotCount = 2000;
+		final FreeSlotAllocator allocator = new FreeSlotAllocator(freeSlotCount);
+		for (int recNo = 1; recNo <= freeSlotCount; recNo++) {
+			allocator.release(recNo);
+		}
+
+		final int[][] allocated = new int[threadCount][allocationsPerThread];
+		final CountDownLatch start = new CountDownLatch(1);
+		final Thread[] threads = new Thread[threadCount];
+		for (int i = 0; i < threadCount; i++) {
+			final int[] recordNumbers = allocated[i];
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (final InterruptedException interruptedException) {
+						return;
+					}
+					for (int j = 0; j < recordNumbers.length; j++) {
+						recordNumbers[j] = allocator.allocate();
+					}
+				}
+			};
+			threads[i].start();
+		}
+		start.countDown();
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		// Every free slot is reused before any record number is appended
+		final Set<Integer> recordNumbers = new HashSet<Integer>();
+		for (final int[] threadRecordNumbers : allocated) {
+			for (final int recNo : threadRecordNumbers) {
+				Assert.assertTrue("Record number allocated twice: " + recNo,
+						recordNumbers.add(recNo));
+			}
+		}
+		for (int recNo = 1; recNo <= threadCount * allocationsPerThread; recNo++) {
+			Assert.assertTrue(recordNumbers.contains(recNo));
+		}
+	}
+}
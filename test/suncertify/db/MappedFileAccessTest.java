@@ -0,0 +1,103 @@
+package suncertify.db;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import suncertify.application.ApplicationProperties;
+import suncertify.domain.DatabaseSchema;
+
+public class MappedFileAccessTest {
+
+	private File databaseFile;
+
+	private final Data data = Data.getInstance();
+
+	@Before
+	public void copyDatabase() throws IOException {
+		this.databaseFile = File.createTempFile("mapped-test", ".db");
+		final FileChannel source = new FileInputStream(ApplicationProperties.getInstance()
+				.getDatabaseLocation()).getChannel();
+		final FileChannel target = new FileOutputStream(this.databaseFile).getChannel();
+		try {
+			target.transferFrom(source, 0, source.size());
+		} finally {
+			source.close();
+			target.close();
+		}
+	}
+
+	@After
+	public void deleteCopyOfDatabase() {
+		new File(this.databaseFile.getPath() + WriteAheadLog.FILE_EXTENSION).delete();
+		this.databaseFile.delete();
+	}
+
+	@Test
+	public void createdRecordsGrowTheFile() throws Exception {
+		final long initialLength = this.databaseFile.length();
+		this.open();
+		final List<String[]> created = new ArrayList<String[]>();
+		final List<Integer> recordNumbers = new ArrayList<Integer>();
+		try {
+			for (int i = 1; i <= 5; i++) {
+				final String[] record = { "Mapped " + i, "Athlone", "Programming", "10",
+						"$100.00", "" };
+				created.add(record);
+				recordNumbers.add(this.data.create(record));
+			}
+		} finally {
+			this.data.destroy();
+		}
+
+		// The checkpoint saved every record into the file, the log is not needed
+		final int lastRecNo = recordNumbers.get(recordNumbers.size() - 1);
+		Assert.assertTrue(FileAccess.getFilePosition(lastRecNo) >= initialLength);
+		Assert.assertEquals(FileAccess.getFilePosition(lastRecNo + 1),
+				this.databaseFile.length());
+		new File(this.databaseFile.getPath() + WriteAheadLog.FILE_EXTENSION).delete();
+
+		this.open();
+		try {
+			for (int i = 0; i < created.size(); i++) {
+				Assert.assertArrayEquals(created.get(i), this.data.read(recordNumbers.get(i)));
+			}
+		} finally {
+			this.data.destroy();
+		}
+	}
+
+	@Test
+	public void readPastEndOfMappingFails() throws Exception {
+		final MappedFileAccess fileAccess = new MappedFileAccess(this.databaseFile.getPath());
+		try {
+			final ByteBuffer record = ByteBuffer.allocate(DatabaseSchema.TOTAL_FIELD_LENGTH);
+			try {
+				fileAccess.readRecords(record, fileAccess.getDatabaseLength()
+						- DatabaseSchema.TOTAL_FIELD_LENGTH / 2);
+				Assert.fail("Read past the end of the mapping");
+			} catch (final EOFException eofException) {
+				Assert.assertEquals(DatabaseSchema.TOTAL_FIELD_LENGTH, record.remaining());
+			}
+		} finally {
+			fileAccess.close();
+		}
+	}
+
+	private void open() throws DatabaseException {
+		final DatabaseOptions options = new DatabaseOptions();
+		options.setStorageMode(StorageMode.MEMORY_MAPPED);
+		this.data.init(this.databaseFile.getPath(), options);
+	}
+}
@@ -0,0 +1,135 @@
+package suncertify.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import suncertify.domain.DatabaseSchema;
+import suncertify.domain.RecordState;
+import suncertify.domain.Subcontractor;
+
+/**
+ * Measures the records per second written to a database file by the original
+ * byte-at-a-time {@code RandomAccessFile} writer and by the batched
+ * {@link RecordCodec} writer.
+ * <p>
+ * Run with {@code java suncertify.db.RecordCodecBenchmark [records]}. Each
+ * writer is warmed up before it is measured.
+ */
+public class RecordCodecBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 3;
+
+	private static final int MEASURED_ITERATIONS = 5;
+
+	public static void main(final String[] args) throws IOException {
+		final int recordCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		final Subcontractor[] records = RecordCodecBenchmark.createRecords(recordCount);
+		final File file = File.createTempFile("codec-benchmark", ".db");
+		file.deleteOnExit();
+
+		final RandomAccessFile database = new RandomAccessFile(file, "rw");
+		try {
+			final Writer[] writers = { new ByteAtATimeWriter(database), new BatchedWriter(database) };
+			for (final Writer writer : writers) {
+				for (int i = 0; i < RecordCodecBenchmark.WARMUP_ITERATIONS; i++) {
+					writer.write(records);
+				}
+				long elapsed = 0;
+				for (int i = 0; i < RecordCodecBenchmark.MEASURED_ITERATIONS; i++) {
+					final long start = System.nanoTime();
+					writer.write(records);
+					elapsed += System.nanoTime() - start;
+				}
+				final double seconds = elapsed / 1e9 / RecordCodecBenchmark.MEASURED_ITERATIONS;
+				System.out.printf("%-20s %,15.0f records/second%n", writer.getClass()
+						.getSimpleName(), recordCount / seconds);
+			}
+		} finally {
+			database.close();
+		}
+	}
+
+	private static Subcontractor[] createRecords(final int recordCount) {
+		final Subcontractor[] records = new Subcontractor[recordCount];
+		for (int i = 0; i < recordCount; i++) {
+			records[i] = new Subcontractor(i + 1, RecordState.valid, new String[] {
+					"Contractor " + i, "Smallville", "Drywall, Painting, Carpets", "10",
+					"$75.00", "" });
+		}
+		return records;
+	}
+
+	private interface Writer {
+		void write(Subcontractor[] records) throws IOException;
+	}
+
+	/**
+	 * The writer used by {@code FileAccess.writeSingleEntry} before the
+	 * introduction of the {@code RecordCodec}.
+	 */
+	private static class ByteAtATimeWriter implements Writer {
+
+		private final RandomAccessFile database;
+
+		ByteAtATimeWriter(final RandomAccessFile database) {
+			this.database = database;
+		}
+
+		@Override
+		public void write(final Subcontractor[] records) throws IOException {
+			long filePosition = DatabaseSchema.EXPECTED_INITIAL_OFFSET;
+			for (final Subcontractor contractor : records) {
+				this.database.seek(filePosition);
+				this.database.writeByte((byte) contractor.getState().getCode());
+				final String[] data = contractor.getData();
+				for (int i = 0; i < DatabaseSchema.FIELD_COUNT; i++) {
+					final byte[] fieldValue = data[i].getBytes(FileAccess.ENCODING);
+					for (int currentPos = 0; currentPos < DatabaseSchema.FIELD_LENGTHS[i]; currentPos++) {
+						if (currentPos < fieldValue.length) {
+							this.database.writeByte(fieldValue[currentPos]);
+						} else {
+							this.database.writeByte(0x020);
+						}
+					}
+				}
+				filePosition += DatabaseSchema.TOTAL_FIELD_LENGTH;
+			}
+		}
+	}
+
+	private static class BatchedWriter implements Writer {
+
+		private final FileChannel channel;
+
+		private final ByteBuffer batch = RecordCodec.allocateBatch();
+
+		BatchedWriter(final RandomAccessFile database) {
+			this.channel = database.getChannel();
+		}
+
+		@Override
+		public void write(final Subcontractor[] records) throws IOException {
+			long filePosition = DatabaseSchema.EXPECTED_INITIAL_OFFSET;
+			for (final Subcontractor contractor : records) {
+				RecordCodec.encode(contractor, this.batch);
+				if (!this.batch.hasRemaining()) {
+					filePosition += this.flush(filePosition);
+				}
+			}
+			this.flush(filePosition);
+		}
+
+		private int flush(final long filePosition) throws IOException {
+			this.batch.flip();
+			final int length = this.batch.limit();
+			while (this.batch.hasRemaining()) {
+				this.channel.write(this.batch, filePosition + this.batch.position());
+			}
+			this.batch.clear();
+			return length;
+		}
+	}
+}
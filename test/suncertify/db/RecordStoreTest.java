@@ -0,0 +1,137 @@
+package suncertify.db;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import suncertify.domain.DatabaseSchema;
+import suncertify.domain.RecordState;
+import suncertify.domain.Subcontractor;
+
+public class RecordStoreTest {
+
+	@Test
+	public void returnsLatestRecordPut() {
+		final RecordStore store = new RecordStore();
+		store.put(1, this.createSubcontractor(RecordState.valid, "First"));
+		store.put(1, this.createSubcontractor(RecordState.deleted, "Replaced"));
+
+		Assert.assertEquals("Replaced", store.get(1).getName());
+		Assert.assertEquals(RecordState.deleted, store.getState(1));
+		Assert.assertNull(store.get(2));
+		Assert.assertFalse(store.isResident(0));
+	}
+
+	@Test
+	public void readReturnsVersionChangedByEveryPut() {
+		final RecordStore store = new RecordStore();
+		final byte[] record = new byte[DatabaseSchema.TOTAL_FIELD_LENGTH];
+		Assert.assertEquals(0, store.read(1, record));
+
+		store.put(1, this.createSubcontractor(RecordState.valid, "First"));
+		final long version = store.read(1, record);
+		Assert.assertTrue(version != 0);
+		Assert.assertEquals(version, store.read(1, record));
+
+		store.put(1, this.createSubcontractor(RecordState.valid, "Second"));
+		Assert.assertTrue(store.read(1, record) != version);
+		Assert.assertEquals("Second", RecordCodec.decode(record, 0).getName());
+	}
+
+	@Test
+	public void versionHoldsEpochAboveStamp() {
+		final RecordStore store = new RecordStore();
+		final byte[] record = new byte[DatabaseSchema.TOTAL_FIELD_LENGTH];
+		store.put(1, this.createSubcontractor(RecordState.valid, "First"));
+		final long first = store.read(1, record);
+		store.put(1, this.createSubcontractor(RecordState.valid, "Second"));
+		final long second = store.read(1, record);
+
+		// The stamp is in the low 32 bits, the epoch of the store above it
+		Assert.assertEquals(2, first & 0xFFFFFFFFL);
+		Assert.assertEquals(4, second & 0xFFFFFFFFL);
+		Assert.assertEquals(first >>> 32, second >>> 32);
+		final long epoch = first >>> 32;
+		Assert.assertTrue(epoch > 0);
+
+		// A store created later starts its stamps over under a later epoch
+		final RecordStore replacement = new RecordStore();
+		replacement.put(1, this.createSubcontractor(RecordState.valid, "First"));
+		final long replaced = replacement.read(1, record);
+		Assert.assertEquals(2, replaced & 0xFFFFFFFFL);
+		Assert.assertTrue((replaced >>> 32) > epoch);
+		Assert.assertTrue(replaced != first);
+	}
+
+	@Test
+	public void loadKeepsResidentRecords() {
+		final RecordStore store = new RecordStore();
+		final int recordCount = RecordStore.SEGMENT_RECORDS + 2;
+		final ByteBuffer records = ByteBuffer.allocate(recordCount
+				* DatabaseSchema.TOTAL_FIELD_LENGTH);
+		for (int i = 0; i < recordCount; i++) {
+			RecordCodec.encode(this.createSubcontractor(RecordState.valid, "Loaded"), records);
+		}
+		records.flip();
+		store.put(2, this.createSubcontractor(RecordState.valid, "Changed"));
+
+		store.load(1, records);
+
+		Assert.assertEquals("Loaded", store.get(1).getName());
+		Assert.assertEquals("Changed", store.get(2).getName());
+		Assert.assertEquals("Loaded", store.get(recordCount).getName());
+		Assert.assertEquals(recordCount, store.getHighestRecNo());
+	}
+
+	@Test
+	public void scanVisitsResidentRecordsInOrder() {
+		final RecordStore store = new RecordStore();
+		final int farRecNo = 3 * RecordStore.SEGMENT_RECORDS;
+		store.put(farRecNo, this.createSubcontractor(RecordState.valid, "Far"));
+		store.put(3, this.createSubcontractor(RecordState.valid, "Third"));
+		store.put(1, this.createSubcontractor(RecordState.valid, "First"));
+
+		final List<Integer> visited = new ArrayList<Integer>();
+		store.scan(new RecordStore.RecordVisitor() {
+			@Override
+			public boolean visit(final int recNo, final long version, final byte[] record) {
+				visited.add(recNo);
+				return true;
+			}
+		});
+
+		Assert.assertEquals(3, visited.size());
+		Assert.assertEquals(Integer.valueOf(1), visited.get(0));
+		Assert.assertEquals(Integer.valueOf(3), visited.get(1));
+		Assert.assertEquals(Integer.valueOf(farRecNo), visited.get(2));
+	}
+
+	@Test
+	public void scanStopsWhenVisitorIsDone() {
+		final RecordStore store = new RecordStore();
+		for (int recNo = 1; recNo <= 10; recNo++) {
+			store.put(recNo, this.createSubcontractor(RecordState.valid, "Record " + recNo));
+		}
+
+		final List<Integer> visited = new ArrayList<Integer>();
+		store.scan(new int[] { 2, 4, 6, 8 }, 1, new RecordStore.RecordVisitor() {
+			@Override
+			public boolean visit(final int recNo, final long version, final byte[] record) {
+				visited.add(recNo);
+				return visited.size() < 2;
+			}
+		});
+
+		Assert.assertEquals(2, visited.size());
+		Assert.assertEquals(Integer.valueOf(4), visited.get(0));
+		Assert.assertEquals(Integer.valueOf(6), visited.get(1));
+	}
+
+	private Subcontractor createSubcontractor(final RecordState state, final String name) {
+		return new Subcontractor(state, new String[] { name, "Athlone", "Programming", "10",
+				"$100.00", "" });
+	}
+}
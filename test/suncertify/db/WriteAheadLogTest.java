@@ -0,0 +1,97 @@
+package suncertify.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import suncertify.domain.RecordState;
+import suncertify.domain.Subcontractor;
+
+public class WriteAheadLogTest {
+
+	private File databaseFile;
+
+	private File logFile;
+
+	@Before
+	public void createFiles() throws IOException {
+		this.databaseFile = File.createTempFile("wal-test", ".db");
+		this.logFile = new File(this.databaseFile.getPath() + WriteAheadLog.FILE_EXTENSION);
+	}
+
+	@After
+	public void deleteFiles() {
+		this.logFile.delete();
+		this.databaseFile.delete();
+	}
+
+	@Test
+	public void replaysLatestStateOfEachRecord() throws IOException {
+		WriteAheadLog log = this.openLog(SyncPolicy.PER_OPERATION);
+		log.append(1, this.createSubcontractor(RecordState.valid, "First"));
+		log.append(2, this.createSubcontractor(RecordState.valid, "Second"));
+		log.append(1, this.createSubcontractor(RecordState.deleted, "First updated"));
+		// closing without a truncate is what remains after the JVM is killed
+		log.close();
+
+		log = this.openLog(SyncPolicy.NONE);
+		final Map<Integer, Subcontractor> replayed = log.replay();
+		log.close();
+
+		Assert.assertEquals(2, replayed.size());
+		Assert.assertEquals("First updated", replayed.get(1).getName());
+		Assert.assertEquals(RecordState.deleted, replayed.get(1).getState());
+		Assert.assertEquals("Second", replayed.get(2).getName());
+	}
+
+	@Test
+	public void ignoresPartiallyWrittenEntry() throws IOException {
+		WriteAheadLog log = this.openLog(SyncPolicy.INTERVAL);
+		log.append(3, this.createSubcontractor(RecordState.valid, "Complete"));
+		log.close();
+
+		final RandomAccessFile file = new RandomAccessFile(this.logFile, "rw");
+		final long completeLength = file.length();
+		file.seek(completeLength);
+		file.write(new byte[] { 0, 0, 0, 4, 'T', 'o', 'r', 'n' });
+		file.close();
+
+		log = this.openLog(SyncPolicy.PER_OPERATION);
+		final Map<Integer, Subcontractor> replayed = log.replay();
+		log.append(4, this.createSubcontractor(RecordState.valid, "After recovery"));
+		log.close();
+		Assert.assertEquals(1, replayed.size());
+		Assert.assertEquals("Complete", replayed.get(3).getName());
+
+		log = this.openLog(SyncPolicy.PER_OPERATION);
+		Assert.assertEquals("After recovery", log.replay().get(4).getName());
+		log.close();
+	}
+
+	@Test
+	public void truncateDiscardsAllEntries() throws IOException {
+		WriteAheadLog log = this.openLog(SyncPolicy.PER_OPERATION);
+		log.append(1, this.createSubcontractor(RecordState.valid, "Checkpointed"));
+		log.truncate();
+		log.close();
+
+		log = this.openLog(SyncPolicy.PER_OPERATION);
+		Assert.assertTrue(log.replay().isEmpty());
+		log.close();
+	}
+
+	private WriteAheadLog openLog(final SyncPolicy syncPolicy) throws IOException {
+		return new WriteAheadLog(this.databaseFile.getPath(), syncPolicy, 10);
+	}
+
+	private Subcontractor createSubcontractor(final RecordState state, final String name) {
+		return new Subcontractor(state, new String[] { name, "Athlone", "Programming", "10",
+				"$100.00", "" });
+	}
+}
@@ -0,0 +1,62 @@
+package suncertify.db.index;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompressedRecordSetTest {
+
+	@Test
+	public void holdsSameNumbersAsSortedSet() {
+		final CompressedRecordSet set = new CompressedRecordSet();
+		final TreeSet<Integer> expected = new TreeSet<Integer>();
+		final Random random = new Random(42);
+		// Dense enough for the first container to switch to a bitmap and back
+		for (int i = 0; i < 20000; i++) {
+			final int recNo = 1 + random.nextInt(i < 10000 ? 8000 : 140000);
+			set.add(recNo);
+			expected.add(recNo);
+		}
+		for (int i = 0; i < 15000; i++) {
+			final int recNo = 1 + random.nextInt(8000);
+			set.remove(recNo);
+			expected.remove(recNo);
+		}
+
+		Assert.assertEquals(expected.size(), set.size());
+		Assert.assertArrayEquals(this.toArray(expected), set.toArray());
+	}
+
+	@Test
+	public void retainsCommonNumbers() {
+		final CompressedRecordSet set = new CompressedRecordSet();
+		for (int recNo = 2; recNo <= 200000; recNo += 2) {
+			set.add(recNo);
+		}
+
+		Assert.assertArrayEquals(new int[] { 2, 70000, 199998 }, set.retain(new int[] { 1, 2,
+				3, 70000, 70001, 199998, 250000 }));
+	}
+
+	@Test
+	public void isDiscardedOnceEmpty() {
+		final CompressedRecordSet set = new CompressedRecordSet();
+		set.add(7);
+
+		Assert.assertFalse(set.remove(8));
+		Assert.assertTrue(set.remove(7));
+		Assert.assertFalse(set.add(9));
+		Assert.assertEquals(0, set.size());
+	}
+
+	private int[] toArray(final TreeSet<Integer> numbers) {
+		final int[] result = new int[numbers.size()];
+		int i = 0;
+		for (final Integer recNo : numbers) {
+			result[i++] = recNo;
+		}
+		return result;
+	}
+}
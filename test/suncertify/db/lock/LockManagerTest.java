@@ -0,0 +1,171 @@
+package suncertify.db.lock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LockManagerTest {
+
+	@Test
+	public void evictsEntriesOnceUnlocked() {
+		final LockManager lockManager = new LockManager();
+		final long[] cookies = new long[1000];
+		for (int recNo = 0; recNo < cookies.length; recNo++) {
+			cookies[recNo] = lockManager.lock(recNo);
+		}
+		Assert.assertEquals(cookies.length, lockManager.getEntryCount());
+
+		for (int recNo = 0; recNo < cookies.length; recNo += 2) {
+			lockManager.unlock(recNo, cookies[recNo]);
+		}
+		for (int recNo = 1; recNo < cookies.length; recNo += 2) {
+			lockManager.checkCookie(recNo, cookies[recNo]);
+			lockManager.unlock(recNo, cookies[recNo]);
+		}
+		Assert.assertEquals(0, lockManager.getEntryCount());
+	}
+
+	@Test
+	public void rejectsCookiesOfUnlockedRecords() {
+		final LockManager lockManager = new LockManager();
+		final long cookie = lockManager.lock(1);
+		lockManager.unlock(1, cookie);
+
+		try {
+			lockManager.checkCookie(1, cookie);
+			Assert.fail("Cookie of an unlocked record accepted");
+		} catch (final SecurityException expected) {
+			Assert.assertEquals(0, lockManager.getEntryCount());
+		}
+		try {
+			lockManager.unlock(2, 0);
+			Assert.fail("Record never locked unlocked");
+		} catch (final SecurityException expected) {
+			Assert.assertEquals(0, lockManager.getEntryCount());
+		}
+	}
+
+	@Test
+	public void handsLockToWaiterBeforeEviction() throws InterruptedException {
+		final LockManager lockManager = new LockManager();
+		final long cookie = lockManager.lock(1);
+		final AtomicLong waiterCookie = new AtomicLong();
+		final CountDownLatch locked = new CountDownLatch(1);
+		final Thread waiter = new Thread() {
+			@Override
+			public void run() {
+				waiterCookie.set(lockManager.lock(1));
+				locked.countDown();
+			}
+		};
+		waiter.start();
+		while (waiter.getState() != Thread.State.WAITING) {
+			Thread.sleep(1);
+		}
+
+		lockManager.unlock(1, cookie);
+
+		Assert.assertTrue(locked.await(10, TimeUnit.SECONDS));
+		lockManager.checkCookie(1, waiterCookie.get());
+		Assert.assertEquals(1, lockManager.getEntryCount());
+		lockManager.unlock(1, waiterCookie.get());
+		Assert.assertEquals(0, lockManager.getEntryCount());
+	}
+
+	@Test
+	public void expiredLeaseReleasesLockToWaiter() throws InterruptedException {
+		final LockManager lockManager = new LockManager(20);
+		final long cookie = lockManager.lock(1);
+		final CountDownLatch locked = new CountDownLatch(1);
+		final Thread waiter = new Thread() {
+			@Override
+			public void run() {
+				lockManager.lock(1);
+				locked.countDown();
+			}
+		};
+		waiter.start();
+
+		while (!locked.await(5, TimeUnit.MILLISECONDS)) {
+			lockManager.expireLeases();
+		}
+
+		Assert.assertEquals(1, lockManager.getStatistics().getExpiredLeaseCount());
+		try {
+			lockManager.checkCookie(1, cookie);
+			Assert.fail("Cookie of an expired lock accepted");
+		} catch (final SecurityException expected) {
+			Assert.assertEquals(1, lockManager.getStatistics().getLockCount());
+		}
+	}
+
+	@Test
+	public void leaseDoesNotExpireDuringChange() throws InterruptedException {
+		final LockManager lockManager = new LockManager(1);
+		final long cookie = lockManager.lock(1);
+		lockManager.beginChange(1, cookie);
+		Thread.sleep(10);
+		lockManager.expireLeases();
+		Assert.assertEquals(0, lockManager.getStatistics().getExpiredLeaseCount());
+		Assert.assertEquals(0, lockManager.tryLock(1, 0));
+
+		lockManager.endChange(1, cookie);
+		Thread.sleep(10);
+		lockManager.expireLeases();
+		Assert.assertEquals(1, lockManager.getStatistics().getExpiredLeaseCount());
+		Assert.assertEquals(0, lockManager.getEntryCount());
+	}
+
+	@Test
+	public void tryLockTimesOutWhileRecordLocked() {
+		final LockManager lockManager = new LockManager();
+		final long cookie = lockManager.tryLock(1, 0);
+		Assert.assertTrue(cookie != 0);
+
+		Assert.assertEquals(0, lockManager.tryLock(1, 10));
+		Assert.assertEquals(1, lockManager.getEntryCount());
+
+		lockManager.unlock(1, cookie);
+		Assert.assertEquals(0, lockManager.getEntryCount());
+		Assert.assertTrue(lockManager.tryLock(1, 10) != 0);
+	}
+
+	@Test
+	public void lockAllSharesCookieAcrossRecords() {
+		final LockManager lockManager = new LockManager();
+		final long cookie = lockManager.lockAll(new int[] { 7, 3, 7, 5 });
+		lockManager.checkCookie(3, cookie);
+		lockManager.checkCookie(5, cookie);
+		lockManager.checkCookie(7, cookie);
+		Assert.assertEquals(3, lockManager.getEntryCount());
+
+		lockManager.unlockAll(new int[] { 5, 3, 7 }, cookie);
+		Assert.assertEquals(0, lockManager.getEntryCount());
+	}
+
+	@Test
+	public void lockAllInOppositeOrdersDoesNotDeadlock() throws InterruptedException {
+		final LockManager lockManager = new LockManager();
+		final Thread[] threads = new Thread[2];
+		for (int t = 0; t < threads.length; t++) {
+			final int[] recordNos = t == 0 ? new int[] { 1, 2, 3 } : new int[] { 3, 2, 1 };
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						lockManager.unlockAll(recordNos, lockManager.lockAll(recordNos));
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (final Thread thread : threads) {
+			thread.join(10000);
+			Assert.assertFalse("Threads deadlocked", thread.isAlive());
+		}
+		Assert.assertEquals(0, lockManager.getEntryCount());
+	}
+}